@@ -0,0 +1,99 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Shared helpers of the benchmarks. */
+final class BenchmarkSupport {
+
+  private BenchmarkSupport() {}
+
+  /** Swallows all messages, so logging does not influence the results. */
+  static final Logger SILENT_LOGGER = new Logger() {
+    @Override
+    public void error(String msg) {}
+
+    @Override
+    public void warn(String msg) {}
+
+    @Override
+    public void info(String msg) {}
+
+    @Override
+    public void debug(String msg) {}
+  };
+
+  /** Creates a checker with the signatures usually used by projects. */
+  static Checker createChecker(Checker.Option... options) throws IOException,ParseException {
+    final Checker checker = new Checker(SILENT_LOGGER, ClassLoader.getSystemClassLoader(), options);
+    checker.addBundledSignatures("jdk-unsafe", "1.8");
+    checker.addBundledSignatures("jdk-deprecated", "1.8");
+    checker.addBundledSignatures("jdk-non-portable", null);
+    checker.addBundledSignatures("jdk-system-out", null);
+    return checker;
+  }
+
+  static byte[] readFully(InputStream in) throws IOException {
+    try (final InputStream _in = in) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[8192];
+      int len;
+      while ((len = _in.read(buffer)) >= 0) {
+        out.write(buffer, 0, len);
+      }
+      return out.toByteArray();
+    }
+  }
+
+  /** Returns the bytecode of the runtime classes with the given binary names. */
+  static List<byte[]> readRuntimeClasses(String... classNames) throws IOException {
+    final List<byte[]> classes = new ArrayList<>();
+    for (final String name : classNames) {
+      final InputStream in = ClassLoader.getSystemClassLoader().getResourceAsStream(AsmUtils.getClassResourceName(name));
+      if (in == null) {
+        throw new IOException("Runtime class not found: " + name);
+      }
+      classes.add(readFully(in));
+    }
+    return classes;
+  }
+
+  /** Returns the bytecode of all class files in the given directory (not recursive), sorted by file name.
+   * Returns an empty list, if the directory does not exist. */
+  static List<byte[]> readClassFiles(File dir) throws IOException {
+    final List<byte[]> classes = new ArrayList<>();
+    final File[] files = dir.listFiles();
+    if (files != null) {
+      Arrays.sort(files);
+      for (final File f : files) {
+        if (f.getName().endsWith(".class")) {
+          classes.add(readFully(new FileInputStream(f)));
+        }
+      }
+    }
+    return classes;
+  }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Construction of a {@link Checker} with the usual bundled signatures. The cold variant measures the first
+ * construction in a fresh JVM (one shot per fork, like a command line invocation), the warm one repeated
+ * constructions in a long-running JVM (like a build daemon). */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CheckerConstructionBenchmark {
+
+  @Param({"false", "true"})
+  public boolean lazySignatureResolution;
+
+  private Checker create() throws Exception {
+    return lazySignatureResolution ?
+        BenchmarkSupport.createChecker(Checker.Option.LAZY_SIGNATURE_RESOLUTION) : BenchmarkSupport.createChecker();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 0)
+  @Measurement(iterations = 1)
+  @Fork(10)
+  public Checker cold() throws Exception {
+    return create();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  public Checker warm() throws Exception {
+    return create();
+  }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.objectweb.asm.ClassReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Throughput of {@link ClassScanner} on representative class files: some large runtime classes and the
+ * antunit samples (from {@code src/test/antunit}, pass {@code -Dbenchmark.antunit.dir=...} if run from elsewhere).
+ * One operation scans all classes. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ClassScannerBenchmark {
+
+  @Param({"runtime", "antunit"})
+  public String classes;
+
+  /** whether the resolution results are shared between the scans, like in {@link Checker#run()} */
+  @Param({"true", "false"})
+  public boolean resolutionCache;
+
+  private Checker checker;
+  private GlobMatcher suppressAnnotations;
+  private ResolutionCache cache;
+  private final List<byte[]> bytecode = new ArrayList<>();
+
+  @Setup
+  public void setup() throws Exception {
+    checker = BenchmarkSupport.createChecker();
+    suppressAnnotations = new GlobMatcher(SuppressForbidden.class.getName());
+    cache = resolutionCache ? new ResolutionCache() : null;
+    bytecode.clear();
+    switch (classes) {
+      case "runtime":
+        bytecode.addAll(BenchmarkSupport.readRuntimeClasses("java.util.HashMap", "java.util.concurrent.ConcurrentHashMap",
+            "java.lang.String", "java.util.regex.Pattern", "java.util.Formatter"));
+        break;
+      case "antunit":
+        bytecode.addAll(BenchmarkSupport.readClassFiles(new File(System.getProperty("benchmark.antunit.dir", "src/test/antunit"))));
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown classes: " + classes);
+    }
+    if (bytecode.isEmpty()) {
+      throw new IllegalStateException("No classes found to scan: " + classes);
+    }
+  }
+
+  @Benchmark
+  public void scan(Blackhole bh) throws Exception {
+    for (final byte[] b : bytecode) {
+      final ClassReader reader = AsmUtils.readAndPatchClass(new java.io.ByteArrayInputStream(b));
+      final ClassMetadata metadata = new ClassMetadata(reader, false, false);
+      final ClassScanner scanner = new ClassScanner(metadata, checker, checker.forbiddenSignatures, suppressAnnotations, true, cache);
+      reader.accept(scanner, ClassReader.SKIP_FRAMES);
+      bh.consume(scanner.getSortedViolations());
+    }
+  }
+
+}
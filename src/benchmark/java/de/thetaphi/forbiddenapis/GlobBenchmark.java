@@ -0,0 +1,69 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Matching class names against globs, as done for the class patterns of the signatures and the suppress annotations:
+ * the regex created by {@link AsmUtils#glob2Pattern(String...)} compared to {@link GlobMatcher}. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GlobBenchmark {
+
+  private static final String[] GLOBS = {
+    "sun.**", "com.sun.**", "jdk.internal.**", "java.lang.reflect.**", "**.SuppressForbidden", "org.apache.*.Unsafe?"
+  };
+  
+  @Param({"java.lang.String", "com.sun.management.internal.Flag", "de.thetaphi.forbiddenapis.SuppressForbidden", "org.apache.lucene.util.UnsafeX"})
+  public String className;
+
+  private Pattern pattern;
+  private GlobMatcher matcher;
+
+  @Setup
+  public void setup() {
+    pattern = AsmUtils.glob2Pattern(GLOBS);
+    matcher = new GlobMatcher(GLOBS);
+  }
+
+  @Benchmark
+  public boolean regex() {
+    return pattern.matcher(className).matches();
+  }
+
+  @Benchmark
+  public boolean globMatcher() {
+    return matcher.matches(className);
+  }
+
+  @Benchmark
+  public Pattern compileRegex() {
+    return AsmUtils.glob2Pattern(GLOBS);
+  }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import java.io.ByteArrayInputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+import java.util.Locale;
+
+/** End-to-end macro benchmark: generates synthetic corpora of different sizes (see {@link SyntheticCorpus}) and
+ * checks them with all bundled JDK signatures of the running JVM, reporting wall time, peak heap and classes/s.
+ * Configured by system properties (see {@code ant benchmark-macro}):
+ * <ul>
+ * <li>{@code benchmark.macro.classes}: comma separated list of corpus sizes
+ * <li>{@code benchmark.macro.depth}: depth of the class and interface hierarchies
+ * <li>{@code benchmark.macro.lambdas}: number of lambdas and method references per class
+ * <li>{@code benchmark.macro.violationsEvery}: every n-th class contains violations
+ * <li>{@code benchmark.macro.threads}: number of threads for scanning
+ * <li>{@code benchmark.macro.runs}: number of runs per corpus size (the first one is reported as cold)
+ * </ul>
+ * The heap is measured from the start of loading the classes till the end of scanning, it includes the bytecode
+ * of the corpus held by the checker, but not the generated corpus itself. */
+public final class ScanMacroBenchmark {
+
+  private ScanMacroBenchmark() {}
+
+  /** Counts the violations and drops all other messages. */
+  static final class CountingLogger implements Logger {
+    int violations = 0;
+
+    private void count(String msg) {
+      // each violation has exactly one location line:
+      if (msg.startsWith("  in ")) violations++;
+    }
+
+    @Override
+    public void error(String msg) {
+      count(msg);
+    }
+
+    @Override
+    public void warn(String msg) {
+      count(msg);
+    }
+
+    @Override
+    public void info(String msg) {}
+
+    @Override
+    public void debug(String msg) {}
+  }
+  
+  private static final String[] JDK_SIGNATURES = {
+    "jdk-unsafe", "jdk-deprecated", "jdk-internal", "jdk-non-portable", "jdk-system-out", "jdk-reflection"
+  };
+
+  private static int intProperty(String name, int def) {
+    return Integer.parseInt(System.getProperty(name, Integer.toString(def)));
+  }
+
+  private static void resetPeakHeap() {
+    System.gc();
+    for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+      }
+    }
+  }
+
+  /** Returns the sum of the peak usages of all heap pools (as pools peak at different times, this is an upper bound). */
+  private static long getPeakHeap() {
+    long peak = 0L;
+    for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    return peak;
+  }
+
+  public static void main(String... args) throws Exception {
+    @SuppressWarnings("resource")
+    final PrintStream out = System.out;
+    final int depth = intProperty("benchmark.macro.depth", 8),
+        lambdas = intProperty("benchmark.macro.lambdas", 4),
+        violationsEvery = intProperty("benchmark.macro.violationsEvery", 10),
+        threads = intProperty("benchmark.macro.threads", Runtime.getRuntime().availableProcessors()),
+        runs = intProperty("benchmark.macro.runs", 3);
+    final String jdkVersion = System.getProperty("java.specification.version");
+    final SyntheticCorpus generator = new SyntheticCorpus(depth, lambdas, violationsEvery);
+    
+    out.println(String.format(Locale.ENGLISH, "Corpus: hierarchy depth=%d, lambdas/class=%d, violations in every %d. class; threads=%d; signatures of JDK %s",
+        depth, lambdas, violationsEvery, threads, jdkVersion));
+    out.println(String.format(Locale.ENGLISH, "%10s %5s %12s %12s %14s %12s %12s", "classes", "run", "wall [ms]", "scan [ms]", "classes/s", "peak [MiB]", "violations"));
+    for (final String size : System.getProperty("benchmark.macro.classes", "10000,100000").split(",")) {
+      final int numClasses = Integer.parseInt(size.trim());
+      List<byte[]> corpus = generator.generate(numClasses);
+      for (int run = 1; run <= runs; run++) {
+        final CountingLogger logger = new CountingLogger();
+        final Checker checker = new Checker(logger, ClassLoader.getSystemClassLoader());
+        for (final String name : JDK_SIGNATURES) {
+          checker.addBundledSignatures(name, jdkVersion);
+        }
+        checker.setThreads(threads);
+        
+        resetPeakHeap();
+        final long start = System.nanoTime();
+        int i = 0;
+        for (final byte[] b : corpus) {
+          checker.streamReadClassToCheck(new ByteArrayInputStream(b), "C" + (i++) + ".class");
+        }
+        final long scanStart = System.nanoTime();
+        checker.run();
+        final long end = System.nanoTime();
+        final long peak = getPeakHeap();
+        
+        final double wallMillis = (end - start) / 1e6, scanMillis = (end - scanStart) / 1e6;
+        out.println(String.format(Locale.ENGLISH, "%10d %5s %12.1f %12.1f %14.0f %12.1f %12d",
+            corpus.size(), (run == 1) ? "cold" : Integer.toString(run), wallMillis, scanMillis,
+            corpus.size() / (wallMillis / 1000.0), peak / (1024.0 * 1024.0), logger.violations));
+      }
+      corpus = null;
+    }
+  }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import java.util.concurrent.TimeUnit;
+
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.Method;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import de.thetaphi.forbiddenapis.Signatures.ViolationResult;
+
+/** Lookups of methods, fields and types in the signatures, for hits and misses. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SignaturesLookupBenchmark {
+
+  private Signatures signatures;
+
+  private final Method forbiddenMethod = new Method("toUpperCase", "()Ljava/lang/String;"),
+      allowedMethod = new Method("length", "()I");
+  private final Type forbiddenType = Type.getObjectType("java/util/Vector"),
+      allowedType = Type.getObjectType("java/util/ArrayList");
+
+  @Setup
+  public void setup() throws Exception {
+    final Checker checker = BenchmarkSupport.createChecker();
+    checker.parseSignaturesString("java.lang.String#CASE_INSENSITIVE_ORDER @ Benchmark\njava.util.Vector @ Benchmark\njava.lang.invoke.** @ Benchmark");
+    signatures = checker.forbiddenSignatures;
+  }
+
+  @Benchmark
+  public ViolationResult checkMethodHit() {
+    return signatures.checkMethod("java/lang/String", forbiddenMethod);
+  }
+
+  @Benchmark
+  public ViolationResult checkMethodMiss() {
+    return signatures.checkMethod("java/lang/String", allowedMethod);
+  }
+
+  @Benchmark
+  public ViolationResult checkFieldHit() {
+    return signatures.checkField("java/lang/String", "CASE_INSENSITIVE_ORDER");
+  }
+
+  @Benchmark
+  public ViolationResult checkFieldMiss() {
+    return signatures.checkField("java/lang/Integer", "MAX_VALUE");
+  }
+
+  @Benchmark
+  public ViolationResult checkTypeHit() {
+    return signatures.checkType(forbiddenType, "class");
+  }
+
+  @Benchmark
+  public ViolationResult checkTypeMiss() {
+    return signatures.checkType(allowedType, "class");
+  }
+
+}
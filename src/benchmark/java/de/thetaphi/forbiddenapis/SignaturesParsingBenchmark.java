@@ -0,0 +1,59 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import de.thetaphi.forbiddenapis.Signatures.ParsedSignatures;
+
+/** Parsing of bundled signatures: the text files and their precompiled binary form, and adding them to a checker
+ * (which resolves them against the runtime, the parsed form is cached in the JVM). Other bundled signatures can be given
+ * with {@code -p name=...}. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SignaturesParsingBenchmark {
+
+  @Param({"jdk-unsafe-1.8", "jdk-deprecated-1.8", "jdk-deprecated-21", "jdk-internal-21", "jdk-system-out", "jdk-reflection", "commons-io-unsafe-2.20.0"})
+  public String name;
+
+  @Benchmark
+  public ParsedSignatures parseText() throws Exception {
+    return Signatures.parseBundledSignatures(name, BenchmarkSupport.SILENT_LOGGER);
+  }
+
+  @Benchmark
+  public ParsedSignatures readCompiled() throws Exception {
+    return Signatures.readBundledSignaturesUncached(name, BenchmarkSupport.SILENT_LOGGER);
+  }
+
+  @Benchmark
+  public Checker addToChecker() throws Exception {
+    final Checker checker = new Checker(BenchmarkSupport.SILENT_LOGGER, ClassLoader.getSystemClassLoader());
+    checker.addBundledSignatures(name, null);
+    return checker;
+  }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/** Generates a synthetic corpus of class files with ASM. The classes are organized in chains of subclasses
+ * (of the given depth), each implementing an interface of a family of interface chains with the same depth.
+ * Every class calls the methods of its ancestors and of the runtime, creates lambdas and method references with
+ * {@code invokedynamic}, and every n-th class contains violations of the bundled JDK signatures. */
+final class SyntheticCorpus implements Opcodes {
+
+  static final String PACKAGE = "corpus/";
+  static final int INTERFACE_FAMILIES = 16;
+  
+  private static final Handle LAMBDA_METAFACTORY = new Handle(H_INVOKESTATIC, "java/lang/invoke/LambdaMetafactory", "metafactory",
+      "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;",
+      false);
+  private static final Type SUPPLIER_METHOD = Type.getMethodType("()Ljava/lang/Object;"),
+      FUNCTION_METHOD = Type.getMethodType("(Ljava/lang/Object;)Ljava/lang/Object;");
+
+  private final int depth, lambdas, violationsEvery;
+
+  /**
+   * @param depth depth of the class and interface hierarchies
+   * @param lambdas number of lambdas and method references per class
+   * @param violationsEvery every n-th class contains violations (0 for none)
+   */
+  SyntheticCorpus(int depth, int lambdas, int violationsEvery) {
+    if (depth < 1 || lambdas < 0 || violationsEvery < 0) {
+      throw new IllegalArgumentException("Invalid corpus parameters.");
+    }
+    this.depth = depth;
+    this.lambdas = lambdas;
+    this.violationsEvery = violationsEvery;
+  }
+
+  /** Generates the interfaces and the given number of classes. */
+  List<byte[]> generate(int numClasses) {
+    final List<byte[]> corpus = new ArrayList<>(numClasses + INTERFACE_FAMILIES * depth);
+    for (int family = 0; family < INTERFACE_FAMILIES; family++) {
+      for (int level = 0; level < depth; level++) {
+        corpus.add(generateInterface(family, level));
+      }
+    }
+    for (int i = 0; i < numClasses; i++) {
+      corpus.add(generateClass(i));
+    }
+    return corpus;
+  }
+
+  /** Returns the number of classes that contain violations. */
+  int countViolatingClasses(int numClasses) {
+    return (violationsEvery == 0) ? 0 : (numClasses + violationsEvery - 1) / violationsEvery;
+  }
+
+  private static String interfaceName(int family, int level) {
+    return PACKAGE + "i" + family + "/I" + level;
+  }
+
+  private static String className(int i) {
+    return PACKAGE + "p" + (i % 100) + "/C" + i;
+  }
+
+  private static void lineNumber(MethodVisitor mv, int line) {
+    final Label label = new Label();
+    mv.visitLabel(label);
+    mv.visitLineNumber(line, label);
+  }
+
+  private byte[] generateInterface(int family, int level) {
+    final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    cw.visit(V1_8, ACC_PUBLIC | ACC_ABSTRACT | ACC_INTERFACE, interfaceName(family, level), null, "java/lang/Object",
+        (level == 0) ? new String[] { "java/lang/Runnable" } : new String[] { interfaceName(family, level - 1) });
+    cw.visitMethod(ACC_PUBLIC | ACC_ABSTRACT, "call" + level, "()V", null, null).visitEnd();
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+
+  private byte[] generateClass(int i) {
+    final int level = i % depth, family = (i / depth) % INTERFACE_FAMILIES;
+    final String name = className(i);
+    // chains alternate between a plain root and a root in the runtime with a deep hierarchy of its own:
+    final String superName = (level > 0) ? className(i - 1) : (((i / depth) % 2 == 0) ? "java/lang/Object" : "java/util/ArrayList");
+    final boolean violations = violationsEvery > 0 && (i % violationsEvery) == 0;
+    
+    final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    cw.visit(V1_8, ACC_PUBLIC | ACC_SUPER, name, null, superName, new String[] { interfaceName(family, level) });
+    cw.visitSource("C" + i + ".java", null);
+    cw.visitField(ACC_PRIVATE, "list", "Ljava/util/List;", "Ljava/util/List<Ljava/lang/String;>;", null).visitEnd();
+    cw.visitField(ACC_PRIVATE | ACC_STATIC, "counter", "Ljava/util/concurrent/atomic/AtomicLong;", null, null).visitEnd();
+    
+    MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+    mv.visitCode();
+    mv.visitVarInsn(ALOAD, 0);
+    mv.visitMethodInsn(INVOKESPECIAL, superName, "<init>", "()V", false);
+    mv.visitInsn(RETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+    
+    mv = cw.visitMethod(ACC_PUBLIC, "call" + level, "()V", null, null);
+    mv.visitCode();
+    int line = 10;
+    lineNumber(mv, line++);
+    // calls into the own hierarchy (resolved via the ancestors):
+    if (level > 0) {
+      mv.visitVarInsn(ALOAD, 0);
+      mv.visitMethodInsn(INVOKEVIRTUAL, name, "call" + (level - 1), "()V", false);
+    }
+    mv.visitVarInsn(ALOAD, 0);
+    mv.visitMethodInsn(INVOKEINTERFACE, interfaceName(family, 0), "call0", "()V", true);
+    mv.visitVarInsn(ALOAD, 0);
+    mv.visitMethodInsn(INVOKEVIRTUAL, name, "run", "()V", false);
+    mv.visitVarInsn(ALOAD, 0);
+    mv.visitMethodInsn(INVOKEVIRTUAL, name, "hashCode", "()I", false);
+    mv.visitInsn(POP);
+    // calls into the runtime:
+    mv.visitTypeInsn(NEW, "java/lang/StringBuilder");
+    mv.visitInsn(DUP);
+    mv.visitMethodInsn(INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "()V", false);
+    mv.visitLdcInsn(name);
+    mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(Ljava/lang/String;)Ljava/lang/StringBuilder;", false);
+    mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;", false);
+    mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/String", "length", "()I", false);
+    mv.visitInsn(POP);
+    mv.visitVarInsn(ALOAD, 0);
+    mv.visitFieldInsn(GETFIELD, name, "list", "Ljava/util/List;");
+    mv.visitMethodInsn(INVOKEINTERFACE, "java/util/List", "size", "()I", true);
+    mv.visitInsn(POP);
+    mv.visitFieldInsn(GETSTATIC, name, "counter", "Ljava/util/concurrent/atomic/AtomicLong;");
+    mv.visitMethodInsn(INVOKEVIRTUAL, "java/util/concurrent/atomic/AtomicLong", "incrementAndGet", "()J", false);
+    mv.visitInsn(POP2);
+    mv.visitLdcInsn(Type.getObjectType("java/util/HashMap"));
+    mv.visitInsn(POP);
+    // lambdas and method references:
+    for (int k = 0; k < lambdas; k++) {
+      lineNumber(mv, line++);
+      if (k % 2 == 0) {
+        mv.visitInvokeDynamicInsn("get", "()Ljava/util/function/Supplier;", LAMBDA_METAFACTORY,
+            SUPPLIER_METHOD, new Handle(H_INVOKESTATIC, name, "lambda$call$" + k, "()Ljava/lang/Object;", false), SUPPLIER_METHOD);
+      } else {
+        final Handle ref = (violations && k == 1) ?
+            new Handle(H_INVOKEVIRTUAL, "java/lang/String", "toUpperCase", "()Ljava/lang/String;", false) :
+            new Handle(H_INVOKEVIRTUAL, "java/lang/String", "trim", "()Ljava/lang/String;", false);
+        mv.visitInvokeDynamicInsn("apply", "()Ljava/util/function/Function;", LAMBDA_METAFACTORY,
+            FUNCTION_METHOD, ref, Type.getMethodType("(Ljava/lang/String;)Ljava/lang/String;"));
+      }
+      mv.visitInsn(POP);
+    }
+    if (violations) {
+      lineNumber(mv, line++);
+      mv.visitFieldInsn(GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
+      mv.visitLdcInsn(name);
+      mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/String", "toLowerCase", "()Ljava/lang/String;", false);
+      mv.visitMethodInsn(INVOKEVIRTUAL, "java/io/PrintStream", "println", "(Ljava/lang/String;)V", false);
+      mv.visitTypeInsn(NEW, "java/util/Vector");
+      mv.visitInsn(DUP);
+      mv.visitMethodInsn(INVOKESPECIAL, "java/util/Vector", "<init>", "()V", false);
+      mv.visitInsn(POP);
+    }
+    mv.visitInsn(RETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+    
+    mv = cw.visitMethod(ACC_PUBLIC, "run", "()V", null, null);
+    mv.visitCode();
+    mv.visitInsn(RETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+    
+    for (int k = 0; k < lambdas; k += 2) {
+      mv = cw.visitMethod(ACC_PRIVATE | ACC_STATIC | ACC_SYNTHETIC, "lambda$call$" + k, "()Ljava/lang/Object;", null, null);
+      mv.visitCode();
+      mv.visitTypeInsn(NEW, "java/util/ArrayList");
+      mv.visitInsn(DUP);
+      mv.visitMethodInsn(INVOKESPECIAL, "java/util/ArrayList", "<init>", "()V", false);
+      mv.visitInsn(ARETURN);
+      mv.visitMaxs(0, 0);
+      mv.visitEnd();
+    }
+    
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+
+}
@@ -17,12 +17,15 @@
 package de.thetaphi.forbiddenapis;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Locale;
 import java.util.Objects;
@@ -165,21 +168,64 @@ public final class AsmUtils {
   }
   
   /** This method is used to read the whole stream into byte array. This allows patching. */
-  private static byte[] readStream(final InputStream in) throws IOException {
+  static byte[] readStream(final InputStream in) throws IOException {
     final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    copyStream(in, bos);
+    return bos.toByteArray();
+  }
+  
+  /** Reads the stream fully. If the size is known before reading (not negative), the bytes are read directly into an
+   * exactly sized array, so nothing is copied. If the stream is shorter or longer than expected (e.g., the file was
+   * modified), this falls back to copying. */
+  static byte[] readStream(final InputStream in, final long size) throws IOException {
+    if (size < 0L || size > Integer.MAX_VALUE - 8) {
+      return readStream(in);
+    }
+    final byte[] data = new byte[(int) size];
+    int pos = 0;
+    while (pos < data.length) {
+      final int bytesRead = in.read(data, pos, data.length - pos);
+      if (bytesRead == -1) {
+        return Arrays.copyOf(data, pos);
+      }
+      pos += bytesRead;
+    }
+    final int next = in.read();
+    if (next == -1) {
+      return data;
+    }
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length + 4096);
+    bos.write(data);
+    bos.write(next);
+    copyStream(in, bos);
+    return bos.toByteArray();
+  }
+  
+  /** Reads a file fully into an exactly sized array. */
+  static byte[] readFile(final File file) throws IOException {
+    try (final FileInputStream in = new FileInputStream(file)) {
+      return readStream(in, in.getChannel().size());
+    }
+  }
+  
+  private static void copyStream(final InputStream in, final ByteArrayOutputStream bos) throws IOException {
     final byte[] data = new byte[4096];
     int bytesRead;
     while ((bytesRead = in.read(data, 0, data.length)) != -1) {
       bos.write(data, 0, bytesRead);
     }
-    return bos.toByteArray();
   }
   
   /** Utility method to load class files of later Java versions by patching them, so ASM can read them. Does nothing at the moment. */
+  public static ClassReader readAndPatchClass(InputStream in) throws IOException {
+    return readAndPatchClass(readStream(in));
+  }
+  
+  /** Same as {@link #readAndPatchClass(InputStream)}, but for bytecode that was already read. The array may be modified.
+   * @since 3.11 */
   @SuppressForbidden
   @SuppressWarnings("unused")
-  public static ClassReader readAndPatchClass(InputStream in) throws IOException {
-    final byte[] bytecode = readStream(in);
+  public static ClassReader readAndPatchClass(byte[] bytecode) {
     if (false) patchClassMajorVersion(bytecode, Opcodes.V23 + 1, Opcodes.V23);
     return new ClassReader(bytecode);
   }
@@ -18,6 +18,7 @@
 
 package de.thetaphi.forbiddenapis;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -29,8 +30,11 @@ import java.net.JarURLConnection;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
@@ -41,6 +45,13 @@ import java.util.NavigableSet;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.regex.Pattern;
 
 import org.objectweb.asm.ClassReader;
@@ -49,14 +60,17 @@ import org.objectweb.asm.Type;
 /**
  * Forbidden APIs checker class.
  */
-public final class Checker implements RelatedClassLookup, Constants {
+public final class Checker implements RelatedClassLookup, Constants, Closeable {
   
   public static enum Option {
     FAIL_ON_MISSING_CLASSES,
     FAIL_ON_VIOLATION,
     FAIL_ON_UNRESOLVABLE_SIGNATURES,
     IGNORE_SIGNATURES_OF_MISSING_CLASSES,
-    DISABLE_CLASSLOADING_CACHE
+    DISABLE_CLASSLOADING_CACHE,
+    /** Resolves signatures against the classpath on first use of their class, problems are reported after scanning.
+     * @since 3.11 */
+    LAZY_SIGNATURE_RESOLUTION
   }
 
   public enum ViolationSeverity {
@@ -72,21 +86,63 @@ public final class Checker implements RelatedClassLookup, Constants {
   
   final ClassLoader loader;
   final java.lang.reflect.Method method_Class_getModule, method_Module_getName;
+  /** Direct access to the classes of the Java 9+ runtime, {@code null} if not available */
+  private final JrtClassIndex jrtIndex;
   final EnumSet<Option> options;
   
   /** Classes to check: key is the binary name (dotted) */
-  final Map<String,ClassMetadata> classesToCheck = new HashMap<>();
-  /** Cache of loaded classes: key is the binary name (dotted) */
-  final Map<String,ClassMetadata> classpathClassCache = new HashMap<>();
+  final Map<String,ClassMetadata> classesToCheck = new ConcurrentHashMap<>();
+  /** Times and counters of this checker */
+  private final ScanStatistics statistics = new ScanStatistics();
+  
+  /** Cache of loaded classes (each class is only loaded once, also if requested by multiple threads) */
+  final RelatedClassCache classpathClassCache = new RelatedClassCache(statistics);
   
   /** Related classes (binary name, dotted) which were not found while looking up
    * class metadata [referenced (super)classes, interfaces,...] */
-  final Set<String> missingClasses = new TreeSet<>();
+  final Set<String> missingClasses = new ConcurrentSkipListSet<>();
   
   final Signatures forbiddenSignatures;
   
+  /** Results of member resolution shared by all scanners of a run, created on {@link #run()} */
+  private ResolutionCache resolutionCache = null;
+  
   /** descriptors (not internal names) of all annotations that suppress */
   final Set<String> suppressAnnotations = new LinkedHashSet<>();
+  
+  /** number of threads used to scan the classes, 1 means sequential */
+  private int threads = 1;
+  
+  /** if enabled, the bytecode of classes to check is not kept in memory, but read again from its source while scanning */
+  private boolean lowMemory = false;
+  
+  /** Directory for persistent caches, {@code null} if disabled */
+  private File cacheDirectory = null;
+  /** Persistent cache of runtime classes, {@code null} if no cache directory was given */
+  private MetadataCacheFile runtimeCache = null;
+  /** Persistent indexes of JAR files on classpath, each opened only once (result is {@code null}, if a JAR file cannot be indexed) */
+  private final ConcurrentMap<File,FutureTask<JarMetadataIndex>> jarIndexes = new ConcurrentHashMap<>();
+  /** In-memory cache shared with other checkers, {@code null} if disabled */
+  private SharedCache sharedCache = null;
+  /** Classes of JAR files in {@link #sharedCache}, validated on first use by this checker (value is {@code null}, if a JAR file cannot be cached) */
+  private final Map<File,Map<String,ClassMetadata>> sharedJarClasses = new HashMap<>();
+  
+  /** Files of the classpath of {@link #loader} (below its parent), {@code null} if unknown */
+  private List<File> classpathFiles = null;
+  /** Index of {@link #classpathFiles}, created on first use */
+  private volatile ClasspathIndex classpathIndex = null;
+  
+  /** File with results of previous run for incremental checks, {@code null} if disabled */
+  private File incrementalCacheFile = null;
+  /** Fingerprints of the bytecode of all classes to check (only if incremental checks are enabled) */
+  final Map<String,Long> bytecodeFingerprints = new ConcurrentHashMap<>();
+  /** Results of the previous run, only available while {@link #run()} is executing */
+  private IncrementalCache incrementalCache = null;
+  
+  /** if enabled, the statistics are logged after scanning */
+  private boolean logStatistics = false;
+  /** File to write the statistics to (as JSON) after scanning, {@code null} if disabled */
+  private File statisticsFile = null;
     
   public Checker(Logger logger, ClassLoader loader, Option... options) {
     this(logger, loader, (options.length == 0) ? EnumSet.noneOf(Option.class) : EnumSet.copyOf(Arrays.asList(options)));
@@ -97,6 +153,7 @@ public final class Checker implements RelatedClassLookup, Constants {
     this.loader = loader;
     this.options = options;
     this.start = System.currentTimeMillis();
+    this.classpathFiles = ClasspathIndex.getClasspathFiles(loader);
     
     // default (always available)
     addSuppressAnnotation(SuppressForbidden.class);
@@ -117,6 +174,12 @@ public final class Checker implements RelatedClassLookup, Constants {
     this.method_Class_getModule = method_Class_getModule;
     this.method_Module_getName = method_Module_getName;
     
+    final JrtClassIndex jrtIndex = isSupportedJDK ? JrtClassIndex.create() : null;
+    if (jrtIndex != null) {
+      logger.debug("Reading classes of " + jrtIndex.size() + " runtime packages directly from JRT.");
+    }
+    this.jrtIndex = jrtIndex;
+    
     final NavigableSet<String> runtimePaths = new TreeSet<>();
     
     // fall back to legacy behavior:
@@ -198,7 +261,7 @@ public final class Checker implements RelatedClassLookup, Constants {
   }
   
   /** Loads the class from Java9's module system and uses reflection to get methods and fields. */
-  private ClassMetadata loadClassFromJigsaw(String classname) throws IOException {
+  private ClassMetadata loadClassFromJigsaw(String classname, ClassLoader loader) throws IOException {
     if (method_Class_getModule == null || method_Module_getName == null) {
       return null; // not Jigsaw Module System
     }
@@ -231,6 +294,15 @@ public final class Checker implements RelatedClassLookup, Constants {
   }
   
   private boolean isRuntimeClass(URLConnection conn) throws IOException {
+    final long start = System.nanoTime();
+    try {
+      return isRuntimeClassImpl(conn);
+    } finally {
+      statistics.addTimeSince(ScanStatistics.Phase.RUNTIME_CLASSIFICATION, start);
+    }
+  }
+  
+  private boolean isRuntimeClassImpl(URLConnection conn) throws IOException {
     final URL url = conn.getURL();
     if (isRuntimePath(url)) {
        return true;
@@ -247,56 +319,347 @@ public final class Checker implements RelatedClassLookup, Constants {
   /** Reads a class (binary name) from the given {@link ClassLoader}. If not found there, falls back to the list of classes to be checked. */
   @Override
   public ClassMetadata getClassFromClassLoader(final String clazz) throws ClassNotFoundException,IOException {
-    if (classpathClassCache.containsKey(clazz)) {
-      final ClassMetadata c = classpathClassCache.get(clazz);
+    final Object event = FlightRecorderEvents.INSTANCE.beginRelatedClassLoading();
+    if (event == null) {
+      return classpathClassCache.get(clazz, classLoading);
+    }
+    final boolean cacheHit = classpathClassCache.contains(clazz);
+    ClassMetadata c = null;
+    try {
+      return c = classpathClassCache.get(clazz, classLoading);
+    } finally {
+      final String source = (c == null) ? "not found" :
+        c.isRuntimeClass ? "runtime" : (classesToCheck.get(clazz) == c) ? "classes to check" : "classpath";
+      FlightRecorderEvents.INSTANCE.commitRelatedClassLoading(event, clazz, source, cacheHit);
+    }
+  }
+  
+  /** Returns {@code true}, if the class (binary name) exists, without reading it, if possible. This is used to validate
+   * signatures that were never resolved with lazy resolution. Only if the class is not found as a resource (e.g., classes
+   * only visible through the module system), it is loaded like {@link #getClassFromClassLoader(String)} does. */
+  boolean classExists(String clazz) throws IOException {
+    if (classesToCheck.containsKey(clazz)) {
+      return true;
+    }
+    final String resource = AsmUtils.getClassResourceName(clazz);
+    final ClasspathIndex classpathIndex = getClasspathIndex();
+    if (classpathIndex != null) {
+      if (loader.getParent().getResource(resource) != null || classpathIndex.find(clazz) != null) {
+        return true;
+      }
+    } else if (loader.getResource(resource) != null) {
+      return true;
+    }
+    try {
+      getClassFromClassLoader(clazz);
+      return true;
+    } catch (ClassNotFoundException cnfe) {
+      return false;
+    }
+  }
+  
+  /** Loads a class (binary name) on cache miss. Returns {@code null} if the class was not found. */
+  private final RelatedClassCache.Loader classLoading = new RelatedClassCache.Loader() {
+    @Override
+    public ClassMetadata load(String clazz) throws IOException {
+      final SharedCache sharedCache = Checker.this.sharedCache;
+      if (sharedCache == null) {
+        return loadFromRuntimeCache(clazz);
+      }
+      ClassMetadata c = sharedCache.getRuntimeClass(clazz);
       if (c == null) {
-        throw new ClassNotFoundException(clazz);
+        c = loadFromRuntimeCache(clazz);
+        if (c != null && c.isRuntimeClass) {
+          sharedCache.putRuntimeClass(c);
+        }
       }
       return c;
-    } else {
+    }
+    
+    private ClassMetadata loadFromRuntimeCache(String clazz) throws IOException {
+      final MetadataCacheFile runtimeCache = Checker.this.runtimeCache;
+      if (runtimeCache != null) {
+        final ClassMetadata c = runtimeCache.get(clazz);
+        if (c != null) {
+          return c;
+        }
+      }
+      final ClassMetadata c = loadFromClassLoader(clazz);
+      if (runtimeCache != null && c != null && c.isRuntimeClass) {
+        runtimeCache.put(c);
+      }
+      return c;
+    }
+    
+    private ClassMetadata loadFromClassLoader(String clazz) throws IOException {
+      final String module = (jrtIndex == null) ? null : jrtIndex.getModule(clazz);
+      if (module != null) {
+        final ClassMetadata c = loadFromJrt(clazz, module);
+        if (c != null) {
+          return c;
+        }
+      }
+      final ClasspathIndex classpathIndex = getClasspathIndex();
+      if (classpathIndex != null) {
+        // like the class loader: first ask the parent, then our own classpath
+        final ClassLoader parent = loader.getParent();
+        final URL url = parent.getResource(AsmUtils.getClassResourceName(clazz));
+        if (url != null) {
+          return loadFromURL(clazz, url);
+        }
+        final ClasspathIndex.Element element = classpathIndex.find(clazz);
+        if (element == null) {
+          final ClassMetadata c = loadClassFromJigsaw(clazz, parent);
+          if (c != null) {
+            return c;
+          }
+          // try to get class from our list of classes we are checking (may be null, if the class does not exist):
+          return classesToCheck.get(clazz);
+        }
+        if (!element.isMultiRelease()) {
+          return loadFromIndex(clazz, element);
+        }
+        // multi-release JAR files are read by the class loader, as it selects the versioned class file
+      }
       final URL url = loader.getResource(AsmUtils.getClassResourceName(clazz));
       if (url != null) {
-        final URLConnection conn = url.openConnection();
-        final boolean isRuntimeClass = isRuntimeClass(conn);
-        if (!isRuntimeClass && options.contains(Option.DISABLE_CLASSLOADING_CACHE)) {
-          conn.setUseCaches(false);
+        return loadFromURL(clazz, url);
+      } else {
+        final ClassMetadata c = loadClassFromJigsaw(clazz, loader);
+        if (c != null) {
+          return c;
         }
-        final ClassReader cr;
-        try (final InputStream in = conn.getInputStream()) {
-          cr = AsmUtils.readAndPatchClass(in);
-        } catch (IllegalArgumentException iae) {
-          // if class is too new for this JVM, we try to load it as Class<?> via Jigsaw
-          // (only if it's a runtime class):
-          if (isRuntimeClass) {
-            final ClassMetadata c = loadClassFromJigsaw(clazz);
-            if (c != null) {
-              classpathClassCache.put(clazz, c);
-              return c;
-            }
+      }
+      // try to get class from our list of classes we are checking (may be null, if the class does not exist):
+      return classesToCheck.get(clazz);
+    }
+    
+    private ClassMetadata loadFromURL(String clazz, URL url) throws IOException {
+      final URLConnection conn = url.openConnection();
+      final boolean isRuntimeClass = isRuntimeClass(conn);
+      final File jarFile = isRuntimeClass ? null : getJarFile(conn);
+      final Map<String,ClassMetadata> sharedJar = (jarFile == null) ? null : getSharedJarClasses(jarFile);
+      if (sharedJar != null) {
+        final ClassMetadata c = sharedJar.get(clazz);
+        if (c != null) {
+          return c;
+        }
+      }
+      final JarMetadataIndex jarIndex = (jarFile == null) ? null : getJarIndex(jarFile);
+      if (jarIndex != null) {
+        final ClassMetadata c = jarIndex.get(clazz);
+        if (c != null) {
+          if (sharedJar != null) {
+            sharedJar.put(clazz, c);
           }
-          throw new IllegalArgumentException(String.format(Locale.ENGLISH,
-              "The class file format of '%s' (loaded from location '%s') is too recent to be parsed by ASM.",
-              clazz, url.toExternalForm()));
+          return c;
         }
-        final ClassMetadata c = new ClassMetadata(cr, isRuntimeClass, false);
-        classpathClassCache.put(clazz, c);
-        return c;
-      } else {
-        final ClassMetadata c = loadClassFromJigsaw(clazz);
+      }
+      if (!isRuntimeClass && options.contains(Option.DISABLE_CLASSLOADING_CACHE)) {
+        conn.setUseCaches(false);
+      }
+      final ClassReader cr;
+      try (final InputStream in = conn.getInputStream()) {
+        cr = readClass(AsmUtils.readStream(in, conn.getContentLengthLong()));
+      } catch (IllegalArgumentException iae) {
+        // if class is too new for this JVM, we try to load it as Class<?> via Jigsaw
+        // (only if it's a runtime class):
+        if (isRuntimeClass) {
+          final ClassMetadata c = loadClassFromJigsaw(clazz, loader);
+          if (c != null) {
+            return c;
+          }
+        }
+        throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+            "The class file format of '%s' (loaded from location '%s') is too recent to be parsed by ASM.",
+            clazz, url.toExternalForm()));
+      }
+      final ClassMetadata c = new ClassMetadata(cr, isRuntimeClass, false);
+      if (jarIndex != null) {
+        jarIndex.put(c);
+      }
+      if (sharedJar != null) {
+        sharedJar.put(clazz, c);
+      }
+      return c;
+    }
+    
+    private ClassMetadata loadFromJrt(String clazz, String module) throws IOException {
+      final byte[] bytecode = JrtClassIndex.readBytes(module, clazz);
+      if (bytecode == null) {
+        return null; // fall back to class loader
+      }
+      final ClassReader cr;
+      try {
+        cr = readClass(bytecode);
+      } catch (IllegalArgumentException iae) {
+        // if class is too new for this JVM, we try to load it as Class<?> via Jigsaw:
+        final ClassMetadata c = loadClassFromJigsaw(clazz, loader);
         if (c != null) {
-          classpathClassCache.put(clazz, c);
           return c;
         }
+        throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+            "The class file format of '%s' (loaded from location '%s') is too recent to be parsed by ASM.",
+            clazz, JrtClassIndex.getURL(module, clazz).toExternalForm()));
       }
-      // try to get class from our list of classes we are checking:
-      final ClassMetadata c = classesToCheck.get(clazz);
+      return new ClassMetadata(cr, AsmUtils.isRuntimeModule(module), false);
+    }
+    
+    private ClassMetadata loadFromIndex(String clazz, ClasspathIndex.Element element) throws IOException {
+      final Map<String,ClassMetadata> sharedJar = (element.isJar && !element.isRuntime) ? getSharedJarClasses(element.file) : null;
+      ClassMetadata c = (sharedJar == null) ? null : sharedJar.get(clazz);
       if (c != null) {
-        classpathClassCache.put(clazz, c);
         return c;
       }
-      // all failed => the class does not exist!
-      classpathClassCache.put(clazz, null);
-      throw new ClassNotFoundException(clazz);
+      c = element.getCached(clazz);
+      if (c != null) {
+        if (sharedJar != null) {
+          sharedJar.put(clazz, c);
+        }
+        return c;
+      }
+      final byte[] bytecode = element.readBytes(clazz);
+      final ClassReader cr;
+      try {
+        cr = readClass(bytecode);
+      } catch (IllegalArgumentException iae) {
+        throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+            "The class file format of '%s' (loaded from location '%s') is too recent to be parsed by ASM.",
+            clazz, element.getLocation(clazz)));
+      }
+      c = new ClassMetadata(cr, element.isRuntime, false);
+      element.putCached(c);
+      if (sharedJar != null) {
+        sharedJar.put(clazz, c);
+      }
+      return c;
+    }
+  };
+  
+  /** Sets the files of the classpath of the class loader given in the constructor (in search order, without the files
+   * of its parent). Related classes are then looked up in an index of these files, instead of asking the class loader,
+   * which searches all files for every lookup. The class loader must ask its parent first.
+   * If the class loader is a {@link java.net.URLClassLoader}, the files are detected automatically.
+   * Passing {@code null} disables the index. */
+  public void setClasspathFiles(List<File> classpathFiles) {
+    closeClasspathIndex();
+    this.classpathFiles = classpathFiles;
+  }
+  
+  /** Returns the index of the classpath, {@code null} if not available. */
+  private ClasspathIndex getClasspathIndex() {
+    final ClasspathIndex classpathIndex = this.classpathIndex;
+    if (classpathIndex != null) {
+      return classpathIndex;
+    }
+    synchronized (this) {
+      if (this.classpathIndex == null && classpathFiles != null && loader.getParent() != null) {
+        this.classpathIndex = new ClasspathIndex(classpathFiles, classpathEnvironment, logger);
+      }
+      return this.classpathIndex;
+    }
+  }
+  
+  private synchronized void closeClasspathIndex() {
+    if (classpathIndex != null) {
+      try {
+        classpathIndex.close();
+      } catch (IOException ioe) {
+        logger.warn("Cannot close JAR files of classpath: " + ioe);
+      }
+      classpathIndex = null;
+    }
+  }
+  
+  private final ClasspathIndex.Environment classpathEnvironment = new ClasspathIndex.Environment() {
+    @Override
+    public boolean isRuntimePath(File file) throws IOException {
+      final long start = System.nanoTime();
+      try {
+        return Checker.this.isRuntimePath(file.toURI().toURL());
+      } finally {
+        statistics.addTimeSince(ScanStatistics.Phase.RUNTIME_CLASSIFICATION, start);
+      }
+    }
+    
+    @Override
+    public JarMetadataIndex getJarIndex(File jarFile) {
+      return Checker.this.getJarIndex(jarFile);
+    }
+  };
+  
+  /** Returns the local JAR file of the connection, {@code null} if it does not refer to one. */
+  private static File getJarFile(URLConnection conn) {
+    if (!(conn instanceof JarURLConnection)) {
+      return null;
+    }
+    final URL jarUrl = ((JarURLConnection) conn).getJarFileURL();
+    if (!"file".equalsIgnoreCase(jarUrl.getProtocol())) {
+      return null;
+    }
+    try {
+      return new File(jarUrl.toURI());
+    } catch (URISyntaxException e) {
+      return null;
+    }
+  }
+  
+  /** Returns the classes of the given JAR file in the shared cache, {@code null} if there is no shared cache or the JAR file cannot be cached. */
+  private Map<String,ClassMetadata> getSharedJarClasses(File jarFile) {
+    final SharedCache sharedCache = this.sharedCache;
+    if (sharedCache == null) {
+      return null;
+    }
+    synchronized (sharedJarClasses) {
+      if (sharedJarClasses.containsKey(jarFile)) {
+        return sharedJarClasses.get(jarFile);
+      }
+      Map<String,ClassMetadata> classes = null;
+      try {
+        classes = sharedCache.getJarClasses(jarFile);
+      } catch (IOException ioe) {
+        logger.warn("Cannot use shared cache for JAR file '" + jarFile + "', ignoring it: " + ioe);
+      }
+      sharedJarClasses.put(jarFile, classes);
+      return classes;
+    }
+  }
+  
+  /** Returns the persistent index of the given JAR file, {@code null} if caching is disabled or the JAR file cannot be indexed.
+   * Every index is opened only once: if multiple threads request the same JAR file at the same time, all of them wait for
+   * the thread that opens it, while other JAR files are opened in parallel. */
+  private JarMetadataIndex getJarIndex(final File jarFile) {
+    final File cacheDirectory = this.cacheDirectory;
+    if (cacheDirectory == null) {
+      return null;
+    }
+    FutureTask<JarMetadataIndex> task = jarIndexes.get(jarFile);
+    if (task == null) {
+      final FutureTask<JarMetadataIndex> newTask = new FutureTask<>(new Callable<JarMetadataIndex>() {
+        @Override
+        public JarMetadataIndex call() {
+          try {
+            return JarMetadataIndex.open(cacheDirectory, jarFile, logger);
+          } catch (IOException ioe) {
+            logger.warn("Cannot index JAR file '" + jarFile + "', ignoring it for the cache: " + ioe);
+            return null;
+          }
+        }
+      });
+      task = jarIndexes.putIfAbsent(jarFile, newTask);
+      if (task == null) {
+        task = newTask;
+        newTask.run();
+      }
+    }
+    return getJarIndexResult(task);
+  }
+  
+  private static JarMetadataIndex getJarIndexResult(FutureTask<JarMetadataIndex> task) {
+    try {
+      return RelatedClassCache.getResult(task);
+    } catch (IOException ioe) {
+      throw new AssertionError("Opening the index never throws IOException.", ioe);
     }
   }
   
@@ -330,14 +693,43 @@ public final class Checker implements RelatedClassLookup, Constants {
     }
   }
   
+  /** Reads a class file, counting its bytes for the statistics. */
+  private ClassReader readClass(byte[] bytecode) {
+    statistics.add(ScanStatistics.Counter.BYTES_READ, bytecode.length);
+    return AsmUtils.readAndPatchClass(bytecode);
+  }
+  
   /** Reads a list of bundled API signatures from classpath. */
   public void addBundledSignatures(String name, String jdkTargetVersion) throws IOException,ParseException {
-    forbiddenSignatures.addBundledSignatures(name, jdkTargetVersion);
+    final long start = System.nanoTime();
+    try {
+      forbiddenSignatures.addBundledSignatures(name, jdkTargetVersion);
+    } finally {
+      statistics.addTimeSince(ScanStatistics.Phase.SIGNATURES, start);
+    }
+  }
+  
+  /** Reads all given sources of API signatures. With more than one thread (see {@link #setThreads(int)}), the sources are parsed
+   * concurrently and their classes are loaded in parallel. The signatures are added in the given order, so the result is the same
+   * as when adding them one after another.
+   * @since 3.11 */
+  public void addSignatures(List<SignaturesSource> sources) throws IOException,ParseException {
+    final long start = System.nanoTime();
+    try {
+      forbiddenSignatures.addSignatures(sources, threads);
+    } finally {
+      statistics.addTimeSince(ScanStatistics.Phase.SIGNATURES, start);
+    }
   }
   
   /** Reads a list of API signatures. Closes the Reader when done (on Exception, too)! */
   public void parseSignaturesFile(InputStream in, String name) throws IOException,ParseException {
-    forbiddenSignatures.parseSignaturesStream(in, name);
+    final long start = System.nanoTime();
+    try {
+      forbiddenSignatures.parseSignaturesStream(in, name);
+    } finally {
+      statistics.addTimeSince(ScanStatistics.Phase.SIGNATURES, start);
+    }
   }
   
   /** Reads a list of API signatures from the given URL. */
@@ -352,7 +744,12 @@ public final class Checker implements RelatedClassLookup, Constants {
     
   /** Reads a list of API signatures from a String. */
   public void parseSignaturesString(String signatures) throws IOException,ParseException {
-    forbiddenSignatures.parseSignaturesString(signatures);
+    final long start = System.nanoTime();
+    try {
+      forbiddenSignatures.parseSignaturesString(signatures);
+    } finally {
+      statistics.addTimeSince(ScanStatistics.Phase.SIGNATURES, start);
+    }
   }
   
   /** Returns if there are any signatures. */
@@ -370,17 +767,46 @@ public final class Checker implements RelatedClassLookup, Constants {
     forbiddenSignatures.setSignaturesSeverity(signatures, severity);
   }
   
+  /** Enables the low memory mode: Only the metadata of classes to check that were added from a {@link ClassBytesSource}
+   * (or a {@link File}) is kept in memory. While scanning, the class files are read a second time from their source,
+   * so the memory needed for bytecode is limited by the number of threads and not by the number of classes.
+   * Classes added by {@link #streamReadClassToCheck(InputStream, String)} always keep their bytecode.
+   * This must be called before adding the classes to check. */
+  public void setLowMemory(boolean lowMemory) {
+    this.lowMemory = lowMemory;
+  }
+  
   /** Parses and adds a class from the given stream to the list of classes to check. Does not log anything. */
   public void streamReadClassToCheck(final InputStream in, String name) throws IOException {
+    readClassToCheck(AsmUtils.readStream(in), name, null);
+  }
+  
+  /** Parses and adds a class from the given source to the list of classes to check. In low memory mode, the source
+   * is opened again while scanning, otherwise the bytecode is kept in memory. Does not log anything. */
+  public void addClassToCheck(ClassBytesSource source) throws IOException {
+    readClassToCheck(source.readBytes(), source.getName(), lowMemory ? source : null);
+  }
+  
+  private void readClassToCheck(final byte[] bytecode, String name, ClassBytesSource source) {
+    final long start = System.nanoTime();
+    final MessageDigest digest = (incrementalCacheFile == null) ? null : IncrementalCache.newDigest();
+    if (digest != null) {
+      // digest the bytes before ASM sees them, as patching may modify them:
+      digest.update(bytecode);
+    }
     final ClassReader reader;
     try {
-      reader = AsmUtils.readAndPatchClass(in);
+      reader = readClass(bytecode);
     } catch (IllegalArgumentException iae) {
       throw new IllegalArgumentException(String.format(Locale.ENGLISH,
           "The class file format of '%s' is too recent to be parsed by ASM.", name));
     }
-    final ClassMetadata metadata = new ClassMetadata(reader, false, true);
+    final ClassMetadata metadata = (source == null) ? new ClassMetadata(reader, false, true) : new ClassMetadata(reader, source);
     classesToCheck.put(metadata.getBinaryClassName(), metadata);
+    if (digest != null) {
+      bytecodeFingerprints.put(metadata.getBinaryClassName(), IncrementalCache.fingerprint(digest));
+    }
+    statistics.addTimeSince(ScanStatistics.Phase.CLASSES_TO_CHECK, start);
   }
   
   /** Parses and adds a class from the given stream to the list of classes to check. Closes the stream when parsed (on Exception, too)!
@@ -395,9 +821,7 @@ public final class Checker implements RelatedClassLookup, Constants {
   
   /** Parses and adds a class from the given file to the list of classes to check. Does not log anything. */
   public void addClassToCheck(File f) throws IOException {
-    try (InputStream in = new FileInputStream(f)) {
-      streamReadClassToCheck(in, f.toString());
-    }
+    addClassToCheck(ClassBytesSource.of(f));
   }
 
   /** Parses and adds a multiple class files. */
@@ -436,12 +860,230 @@ public final class Checker implements RelatedClassLookup, Constants {
     suppressAnnotations.add(annoName);
   }
   
-  /** Parses a class and checks for valid method invocations */
-  private int checkClass(ClassMetadata c, Pattern suppressAnnotationsPattern) throws ForbiddenApiException {
+  /** Sets the number of threads used to scan the classes in {@link #run()}. The default is 1, which scans all classes
+   * sequentially in the calling thread. With more threads, the violations are still reported in the same order. */
+  public void setThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("The number of threads must be at least 1: " + threads);
+    }
+    this.threads = threads;
+  }
+  
+  /** Returns the default directory for persistent caches, which is located in the platform specific cache directory of the user. */
+  public static File getDefaultCacheDirectory() {
+    final String osName = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+    final File userHome = new File(System.getProperty("user.home", "."));
+    final File baseDir;
+    if (osName.startsWith("windows") && System.getenv("LOCALAPPDATA") != null) {
+      baseDir = new File(System.getenv("LOCALAPPDATA"));
+    } else if (osName.startsWith("mac")) {
+      baseDir = new File(new File(userHome, "Library"), "Caches");
+    } else if (System.getenv("XDG_CACHE_HOME") != null) {
+      baseDir = new File(System.getenv("XDG_CACHE_HOME"));
+    } else {
+      baseDir = new File(userHome, ".cache");
+    }
+    return new File(baseDir, "forbiddenapis");
+  }
+  
+  /** Enables a persistent cache in the given directory, {@code null} disables it. The metadata of runtime classes
+   * is read from the cache (keyed by the Java runtime's home directory, version and vendor), so they
+   * don't need to be parsed again. The same applies to classes from JAR files on the classpath: each JAR
+   * file gets its own index (keyed by its path, and validated by size, modification time and contents).
+   * New classes are written back when {@link #run()} finishes.
+   * If a cache file is missing or corrupt, the cache starts empty. */
+  public void setCacheDirectory(File cacheDirectory) {
+    closeClasspathIndex(); // it refers to the indexes of JAR files
+    jarIndexes.clear();
+    this.cacheDirectory = cacheDirectory;
+    if (cacheDirectory == null) {
+      this.runtimeCache = null;
+      return;
+    }
+    final String key = String.format(Locale.ENGLISH, "java.home=%s;java.version=%s;java.vendor=%s",
+        System.getProperty("java.home"), System.getProperty("java.version"), System.getProperty("java.vendor"));
+    final MetadataCacheFile runtimeCache = new MetadataCacheFile(new File(cacheDirectory, MetadataCacheFile.getFileName("runtime", key)), key);
+    logger.debug("Using persistent cache for runtime classes: " + runtimeCache.getFile());
+    try {
+      if (runtimeCache.load()) {
+        logger.debug("Loaded metadata of " + runtimeCache.size() + " runtime classes from cache: " + runtimeCache.getFile());
+      }
+    } catch (IOException ioe) {
+      logger.warn("Cannot read cache file, ignoring it: " + ioe);
+    }
+    this.runtimeCache = runtimeCache;
+  }
+  
+  /** Sets an in-memory cache of class metadata, which is shared with other checkers in the same JVM (e.g., by a daemon
+   * checking many modules). Runtime classes, classes of JAR files on the classpath and bundled signatures are looked up
+   * there first, and those loaded by this checker are added to it. Passing {@code null} disables it.
+   * @since 3.11 */
+  public void setSharedCache(SharedCache sharedCache) {
+    synchronized (sharedJarClasses) {
+      sharedJarClasses.clear();
+    }
+    this.sharedCache = sharedCache;
+    forbiddenSignatures.setSharedCache(sharedCache);
+  }
+  
+  /** Returns the statistics of this checker, they are updated while adding signatures and classes, and while scanning.
+   * @since 3.11 */
+  public ScanStatistics getStatistics() {
+    return statistics;
+  }
+  
+  /** Enables logging of the statistics (see {@link #getStatistics()}) at the end of {@link #run()}.
+   * @since 3.11 */
+  public void setLogStatistics(boolean logStatistics) {
+    this.logStatistics = logStatistics;
+  }
+  
+  /** Writes the statistics (see {@link #getStatistics()}) as JSON to the given file at the end of {@link #run()},
+   * {@code null} disables it.
+   * @since 3.11 */
+  public void setStatisticsFile(File statisticsFile) {
+    this.statisticsFile = statisticsFile;
+  }
+  
+  /** Enables incremental checks, {@code null} disables them. The results of every checked class are stored in the given file
+   * and reused on the next {@link #run()}, if the class, all related classes looked up while scanning it,
+   * and the configuration (signatures, severities, suppressing annotations, options) are unchanged.
+   * This must be called before adding the classes to check. */
+  public void setIncrementalCacheFile(File incrementalCacheFile) {
+    this.incrementalCacheFile = incrementalCacheFile;
+  }
+  
+  /** Calculates the fingerprint of everything that affects the results of a scan, except the classes. */
+  private long getConfigFingerprint(GlobMatcher suppressAnnotationsMatcher) {
+    final List<String> items = new ArrayList<>();
+    items.add(String.valueOf(Checker.class.getPackage().getImplementationVersion()));
+    items.add(options.toString());
+    items.add(suppressAnnotationsMatcher.getGlobs().toString());
+    forbiddenSignatures.addFingerprintItems(items);
+    return IncrementalCache.fingerprint(items);
+  }
+  
+  private void loadIncrementalCache(GlobMatcher suppressAnnotationsMatcher) {
+    incrementalCache = null;
+    if (incrementalCacheFile == null) {
+      return;
+    }
+    final IncrementalCache incrementalCache = new IncrementalCache(incrementalCacheFile, getConfigFingerprint(suppressAnnotationsMatcher));
+    try {
+      if (incrementalCache.load()) {
+        logger.debug("Loaded results of " + incrementalCache.size() + " classes from previous run: " + incrementalCache.getFile());
+      } else {
+        logger.debug("No results of previous run available or configuration changed, checking all classes.");
+      }
+    } catch (IOException ioe) {
+      logger.warn("Cannot read results of previous run, checking all classes: " + ioe);
+    }
+    this.incrementalCache = incrementalCache;
+  }
+  
+  private void savePersistentCaches() {
+    if (incrementalCache != null) {
+      logger.info("Incremental check: Reused results of " + incrementalCache.getReusedCount() + " unchanged class file(s).");
+      try {
+        incrementalCache.save();
+      } catch (IOException ioe) {
+        logger.warn("Cannot write results for incremental checks: " + ioe);
+      }
+      incrementalCache = null;
+    }
+    if (runtimeCache != null) {
+      try {
+        runtimeCache.save();
+      } catch (IOException ioe) {
+        logger.warn("Cannot write cache file: " + ioe);
+      }
+    }
+    for (final FutureTask<JarMetadataIndex> task : jarIndexes.values()) {
+      final JarMetadataIndex jarIndex = getJarIndexResult(task);
+      if (jarIndex != null) {
+        try {
+          jarIndex.save();
+        } catch (IOException ioe) {
+          logger.warn("Cannot write cache file for JAR file '" + jarIndex.getJarFile() + "': " + ioe);
+        }
+      }
+    }
+  }
+  
+  /** Records the fingerprints of all related classes looked up while scanning a class, for incremental checks */
+  private final class RecordingLookup implements RelatedClassLookup {
+    final Map<String,Long> relatedClasses = new HashMap<>();
+    
+    @Override
+    public ClassMetadata lookupRelatedClass(String internalName, String internalNameOrig) {
+      final ClassMetadata c = Checker.this.lookupRelatedClass(internalName, internalNameOrig);
+      relatedClasses.put(internalName, (c == null) ? 0L : c.getFingerprint());
+      return c;
+    }
+    
+    @Override
+    public ClassMetadata getClassFromClassLoader(String clazz) throws ClassNotFoundException,IOException {
+      return Checker.this.getClassFromClassLoader(clazz);
+    }
+  }
+  
+  /** Returns {@code true}, if none of the related classes of a previous result have changed. */
+  private boolean isUpToDate(IncrementalCache.Entry previous) {
+    for (final Map.Entry<String,Long> e : previous.relatedClasses.entrySet()) {
+      final ClassMetadata c;
+      try {
+        c = lookupRelatedClass(e.getKey(), e.getKey());
+      } catch (RelatedClassLoadingException rcle) {
+        return false; // scan again to report the problem
+      }
+      if (((c == null) ? 0L : c.getFingerprint()) != e.getValue().longValue()) {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  /** Checks a class and returns the violations. With incremental checks enabled, the results of the previous run
+   * are reused, if nothing has changed. */
+  private IncrementalCache.Entry checkClass(ClassMetadata c, GlobMatcher suppressAnnotationsMatcher) throws ForbiddenApiException {
+    final String className = c.getBinaryClassName();
+    statistics.increment(ScanStatistics.Counter.CLASSES_SCANNED);
+    final IncrementalCache incrementalCache = this.incrementalCache;
+    final Long bytecodeFingerprint = bytecodeFingerprints.get(className);
+    if (incrementalCache == null || bytecodeFingerprint == null) {
+      final ClassScanner scanner = scanClass(c, this, suppressAnnotationsMatcher);
+      return new IncrementalCache.Entry(className, scanner.getSourceFile(), 0L,
+          Collections.<String,Long>emptyMap(), scanner.getSortedViolations());
+    }
+    final IncrementalCache.Entry previous = incrementalCache.getPrevious(className);
+    if (previous != null && previous.bytecodeFingerprint == bytecodeFingerprint.longValue() && isUpToDate(previous)) {
+      incrementalCache.reuse(previous);
+      return previous;
+    }
+    final RecordingLookup recorder = new RecordingLookup();
+    final ClassScanner scanner = scanClass(c, recorder, suppressAnnotationsMatcher);
+    final IncrementalCache.Entry entry = new IncrementalCache.Entry(className, scanner.getSourceFile(), bytecodeFingerprint.longValue(),
+        recorder.relatedClasses, scanner.getSortedViolations());
+    incrementalCache.put(entry);
+    return entry;
+  }
+  
+  /** Parses a class and returns the scanner with the violations */
+  private ClassScanner scanClass(ClassMetadata c, RelatedClassLookup lookup, GlobMatcher suppressAnnotationsMatcher) throws ForbiddenApiException {
     final String className = c.getBinaryClassName();
-    final ClassScanner scanner = new ClassScanner(c, this, forbiddenSignatures, suppressAnnotationsPattern, options.contains(Option.FAIL_ON_VIOLATION)); 
+    // the resolution cache is not used while recording related classes, because cached results would hide the lookups:
+    final ClassScanner scanner = new ClassScanner(c, lookup, forbiddenSignatures, suppressAnnotationsMatcher, options.contains(Option.FAIL_ON_VIOLATION),
+        (lookup == this) ? resolutionCache : null);
+    final Object event = FlightRecorderEvents.INSTANCE.beginClassScanning();
     try {
       c.getReader().accept(scanner, ClassReader.SKIP_FRAMES);
+      statistics.add(ScanStatistics.Counter.ANCESTOR_WALK_STEPS, scanner.ancestorWalkSteps);
+      statistics.add(ScanStatistics.Counter.SIGNATURE_LOOKUPS, scanner.signatureLookups);
+      if (event != null) {
+        FlightRecorderEvents.INSTANCE.commitClassScanning(event, className, scanner.instructions, scanner.getSortedViolations().size());
+      }
+    } catch (IOException ioe) {
+      throw new ForbiddenApiException("Failed to read class '" + className + "' again for scanning: " + ioe, ioe);
     } catch (RelatedClassLoadingException rcle) {
       final Exception cause = rcle.getException();
       final StringBuilder msg = new StringBuilder()
@@ -472,14 +1114,23 @@ public final class Checker implements RelatedClassLookup, Constants {
       // else rethrow (it's occuring in our code):
       throw re;
     }
-    final List<ForbiddenViolation> violations = scanner.getSortedViolations();
-    final Pattern splitter = Pattern.compile(Pattern.quote(ForbiddenViolation.SEPARATOR));
+    return scanner;
+  }
+  
+  private static final Pattern VIOLATION_LINE_SPLITTER = Pattern.compile(Pattern.quote(ForbiddenViolation.SEPARATOR));
+  
+  /** Logs the violations of a class and returns the number of errors */
+  private int reportViolations(IncrementalCache.Entry result) {
+    final String className = result.className;
+    final List<ForbiddenViolation> violations = result.violations;
     int numErrors = 0;
     for (final ForbiddenViolation v : violations) {
       if (v.severity == ViolationSeverity.ERROR) {
         numErrors++;
+      } else if (v.severity == ViolationSeverity.SUPPRESS) {
+        continue; // don't format the message, it is not logged
       }
-      for (final String line : splitter.split(v.format(className, scanner.getSourceFile()))) {
+      for (final String line : VIOLATION_LINE_SPLITTER.split(v.format(className, result.sourceFile))) {
         switch (v.severity) {
         case DEBUG:
           logger.debug(line);
@@ -501,12 +1152,92 @@ public final class Checker implements RelatedClassLookup, Constants {
     return numErrors;
   }
   
+  /** Scans one class in a thread of the {@link ForkJoinPool}, the {@link ForbiddenApiException} is saved for later reporting */
+  @SuppressWarnings("serial")
+  private final class ScanTask extends RecursiveTask<IncrementalCache.Entry> {
+    private final ClassMetadata c;
+    private final GlobMatcher suppressAnnotationsMatcher;
+    ForbiddenApiException exception = null;
+    
+    ScanTask(ClassMetadata c, GlobMatcher suppressAnnotationsMatcher) {
+      this.c = c;
+      this.suppressAnnotationsMatcher = suppressAnnotationsMatcher;
+    }
+    
+    @Override
+    protected IncrementalCache.Entry compute() {
+      try {
+        return checkClass(c, suppressAnnotationsMatcher);
+      } catch (ForbiddenApiException fae) {
+        exception = fae;
+        return null;
+      }
+    }
+  }
+  
+  private int runParallel(GlobMatcher suppressAnnotationsMatcher) throws ForbiddenApiException {
+    final ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      final List<ScanTask> tasks = new ArrayList<>(classesToCheck.size());
+      for (final ClassMetadata c : classesToCheck.values()) {
+        final ScanTask task = new ScanTask(c, suppressAnnotationsMatcher);
+        pool.execute(task);
+        tasks.add(task);
+      }
+      // report in the same order like the sequential scan, so output is deterministic:
+      int errors = 0;
+      for (int i = 0, size = tasks.size(); i < size; i++) {
+        final ScanTask task = tasks.set(i, null);
+        final IncrementalCache.Entry result = task.join();
+        if (task.exception != null) {
+          throw task.exception;
+        }
+        errors += reportViolations(result);
+      }
+      return errors;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+  
+  private void reportStatistics() {
+    if (logStatistics) {
+      statistics.log(logger);
+    }
+    if (statisticsFile != null) {
+      try {
+        statistics.writeJson(statisticsFile);
+      } catch (IOException ioe) {
+        logger.warn("Cannot write statistics: " + ioe);
+      }
+    }
+  }
+  
   public void run() throws ForbiddenApiException {
     logger.info("Scanning classes for violations...");
+    final long scanStart = System.nanoTime();
     int errors = 0;
-    final Pattern suppressAnnotationsPattern = AsmUtils.glob2Pattern(suppressAnnotations.toArray(new String[suppressAnnotations.size()]));
-    for (final ClassMetadata c : classesToCheck.values()) {
-      errors += checkClass(c, suppressAnnotationsPattern);
+    final GlobMatcher suppressAnnotationsMatcher = new GlobMatcher(new ArrayList<>(suppressAnnotations));
+    loadIncrementalCache(suppressAnnotationsMatcher);
+    resolutionCache = new ResolutionCache();
+    try {
+      if (threads > 1 && classesToCheck.size() > 1) {
+        logger.debug("Scanning classes using " + threads + " threads.");
+        errors = runParallel(suppressAnnotationsMatcher);
+      } else {
+        for (final ClassMetadata c : classesToCheck.values()) {
+          errors += reportViolations(checkClass(c, suppressAnnotationsMatcher));
+        }
+      }
+      // before closing the classpath index, as the classes of unused signatures are looked up:
+      forbiddenSignatures.reportLazyResolutionProblems();
+    } catch (ParseException pe) {
+      throw new ForbiddenApiException("Parsing signatures failed: " + pe.getMessage(), pe);
+    } finally {
+      resolutionCache = null;
+      savePersistentCaches();
+      closeClasspathIndex();
+      statistics.addTimeSince(ScanStatistics.Phase.SCANNING, scanStart);
     }
     
     if (!missingClasses.isEmpty() ) {
@@ -514,6 +1245,8 @@ public final class Checker implements RelatedClassLookup, Constants {
       logger.warn(AsmUtils.formatClassesAbbreviated(missingClasses));
     }
     
+    reportStatistics();
+    
     final String message = String.format(Locale.ENGLISH, 
         "Scanned %d class file(s) for forbidden API invocations (in %.2fs), %d error(s).",
         classesToCheck.size(), (System.currentTimeMillis() - start) / 1000.0, errors);
@@ -524,4 +1257,14 @@ public final class Checker implements RelatedClassLookup, Constants {
       logger.info(message);
     }
   }
+  
+  /** Closes the JAR files of the classpath, which may already be opened while adding signatures. {@link #run()}
+   * closes them, too, but frontends should call this in a {@code finally} block, so they are not leaked (and locked
+   * on Windows) if adding signatures or classes fails. The checker can still be used afterwards, JAR files are
+   * opened again on demand.
+   * @since 3.11 */
+  @Override
+  public void close() {
+    closeClasspathIndex();
+  }
 }
@@ -0,0 +1,99 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/** Source of a class file that can be opened multiple times. This is used in low memory mode
+ * (see {@link Checker#setLowMemory(boolean)}), where the bytecode of the classes to check is
+ * not kept in memory, but read a second time while scanning. All reads go through {@link #readBytes()},
+ * so sources that know the size of the class file up front can pass an exactly sized array to ASM. */
+public abstract class ClassBytesSource {
+
+  /** Returns a name of the source for error messages. */
+  public abstract String getName();
+
+  /** Opens a new stream to read the class file. The caller must close it. */
+  public abstract InputStream openStream() throws IOException;
+
+  /** Returns the size of the class file in bytes, if it is known before reading, otherwise {@code -1}.
+   * The default implementation returns {@code -1}.
+   * @since 3.11 */
+  public long getSize() {
+    return -1L;
+  }
+
+  /** Reads the whole class file. If the size is known (see {@link #getSize()}), the bytes are read directly into
+   * an exactly sized array. The caller owns the returned array.
+   * @since 3.11 */
+  public byte[] readBytes() throws IOException {
+    try (final InputStream in = openStream()) {
+      return AsmUtils.readStream(in, getSize());
+    }
+  }
+
+  @Override
+  public String toString() {
+    return getName();
+  }
+
+  /** Returns a source for a class file in the file system. */
+  public static ClassBytesSource of(final File file) {
+    return new ClassBytesSource() {
+      @Override
+      public String getName() {
+        return file.toString();
+      }
+
+      @Override
+      public InputStream openStream() throws IOException {
+        return new FileInputStream(file);
+      }
+
+      @Override
+      public byte[] readBytes() throws IOException {
+        return AsmUtils.readFile(file);
+      }
+    };
+  }
+
+  /** Returns a source for a class file in a ZIP/JAR file. The {@link ZipFile} must stay open while checking. */
+  public static ClassBytesSource of(final ZipFile zip, final ZipEntry entry) {
+    return new ClassBytesSource() {
+      @Override
+      public String getName() {
+        return entry.getName();
+      }
+
+      @Override
+      public InputStream openStream() throws IOException {
+        return zip.getInputStream(entry);
+      }
+
+      @Override
+      public long getSize() {
+        return entry.getSize();
+      }
+    };
+  }
+
+}
@@ -18,10 +18,13 @@
 
 package de.thetaphi.forbiddenapis;
 
+import java.io.IOException;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
 
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
@@ -32,32 +35,37 @@ import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.Method;
 
 /** Utility class that is used to get an overview of all fields and implemented
- * methods of a class. It make the signatures available as Sets. */
+ * methods of a class. It make the signatures available as Sets. As many instances are
+ * kept in caches, all member sets are compact sorted arrays and all names are interned. */
 final class ClassMetadata implements Constants {
   private ClassReader reader;
+  /** source to read the class again (low memory mode), if no reader is kept */
+  private ClassBytesSource source;
   
   public final boolean isRuntimeClass, isNonPortableRuntime, isInterface;
-  public final Set<Method> methods;
-  public final Set<String> fields, signaturePolymorphicMethods;
+  public final MethodSet methods;
+  public final NameSet fields, signaturePolymorphicMethods;
   public final String className, superName;
   public final String[] interfaces;
   
+  /** fingerprint of the metadata, calculated on first use (0 = not yet calculated) */
+  private volatile long fingerprint = 0L;
+  
   /** Builds the information from an ASM ClassReader */
   public ClassMetadata(final ClassReader classReader, boolean isRuntimeClass, boolean withReader) {
     this.reader = withReader ? classReader : null;
     this.isRuntimeClass = isRuntimeClass;
-    this.className = classReader.getClassName();
-    this.superName = classReader.getSuperName();
-    this.interfaces = classReader.getInterfaces();
+    this.className = intern(classReader.getClassName());
+    this.superName = intern(classReader.getSuperName());
+    this.interfaces = intern(classReader.getInterfaces());
     this.isInterface = (classReader.getAccess() & Opcodes.ACC_INTERFACE) != 0;
-    final Set<Method> methods = new HashSet<>();
-    final Set<String> fields = new HashSet<>();
-    final Set<String> signaturePolymorphicMethods = new HashSet<>();
+    final List<Method> methods = new ArrayList<>();
+    final List<String> fields = new ArrayList<>();
+    final List<String> signaturePolymorphicMethods = new ArrayList<>();
     classReader.accept(new ClassVisitor(Opcodes.ASM9) {
       @Override
       public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
-        final Method m = new Method(name, desc);
-        methods.add(m);
+        methods.add(new Method(name, desc));
         if (className.startsWith(SIGNATURE_POLYMORPHIC_PKG_INTERNALNAME) &&
             (access & Opcodes.ACC_VARARGS) != 0 &&
             (access & Opcodes.ACC_NATIVE) != 0 &&
@@ -74,28 +82,35 @@ final class ClassMetadata implements Constants {
         return null;
       }
     }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
-    this.methods = createSet(methods);
-    this.fields = createSet(fields);
-    this.signaturePolymorphicMethods = createSet(signaturePolymorphicMethods);
+    this.methods = MethodSet.of(methods);
+    this.fields = NameSet.of(fields);
+    this.signaturePolymorphicMethods = NameSet.of(signaturePolymorphicMethods);
     this.isNonPortableRuntime = this.determineNonPortableRuntime();
   }
 
+  /** Builds the information of a class to check from an ASM ClassReader, but does not keep the reader.
+   * Instead, the class is read again from the given source, when it is scanned. */
+  public ClassMetadata(final ClassReader classReader, ClassBytesSource source) {
+    this(classReader, false, false);
+    this.source = source;
+  }
+
   /** Alternative ctor that can be used to build the information via reflection from an already loaded class. Useful for Java 9 Jigsaw. */
   public ClassMetadata(final Class<?> clazz, boolean isRuntimeClass) {
     this.reader = null; // no reader available!
     this.isRuntimeClass = isRuntimeClass;
-    this.className = Type.getType(clazz).getInternalName();
+    this.className = intern(Type.getType(clazz).getInternalName());
     final Class<?> superclazz = clazz.getSuperclass();
-    this.superName = superclazz == null ? null : Type.getType(superclazz).getInternalName();
+    this.superName = superclazz == null ? null : intern(Type.getType(superclazz).getInternalName());
     final Class<?>[] interfClasses = clazz.getInterfaces();
     this.interfaces = new String[interfClasses.length];
     for (int i = 0; i < interfClasses.length; i++) {
-      this.interfaces[i] = Type.getType(interfClasses[i]).getInternalName();
+      this.interfaces[i] = intern(Type.getType(interfClasses[i]).getInternalName());
     }
     this.isInterface = clazz.isInterface();
-    final Set<Method> methods = new HashSet<>();
-    final Set<String> fields = new HashSet<>();
-    final Set<String> signaturePolymorphicMethods = new HashSet<>();
+    final List<Method> methods = new ArrayList<>();
+    final List<String> fields = new ArrayList<>();
+    final List<String> signaturePolymorphicMethods = new ArrayList<>();
     for (final java.lang.reflect.Method m : clazz.getDeclaredMethods()) {
       methods.add(Method.getMethod(m));
       if (className.startsWith(SIGNATURE_POLYMORPHIC_PKG_INTERNALNAME) &&
@@ -112,23 +127,53 @@ final class ClassMetadata implements Constants {
     for (final java.lang.reflect.Field f : clazz.getDeclaredFields()) {
       fields.add(f.getName());
     }
-    this.methods = createSet(methods);
-    this.fields = createSet(fields);
-    this.signaturePolymorphicMethods = createSet(signaturePolymorphicMethods);
+    this.methods = MethodSet.of(methods);
+    this.fields = NameSet.of(fields);
+    this.signaturePolymorphicMethods = NameSet.of(signaturePolymorphicMethods);
     this.isNonPortableRuntime = this.determineNonPortableRuntime();
   }
   
-  private static <T> Set<T> createSet(Set<? extends T> s) {
-    return s.isEmpty() ? Collections.<T>emptySet() : Collections.<T>unmodifiableSet(s);
+  /** Alternative ctor that is used to restore the information from a persistent cache. */
+  ClassMetadata(String className, String superName, String[] interfaces, boolean isInterface, boolean isRuntimeClass,
+      Collection<Method> methods, Collection<String> fields, Collection<String> signaturePolymorphicMethods) {
+    this.reader = null; // no reader available!
+    this.isRuntimeClass = isRuntimeClass;
+    this.className = intern(className);
+    this.superName = intern(superName);
+    this.interfaces = intern(interfaces);
+    this.isInterface = isInterface;
+    this.methods = MethodSet.of(methods);
+    this.fields = NameSet.of(fields);
+    this.signaturePolymorphicMethods = NameSet.of(signaturePolymorphicMethods);
+    this.isNonPortableRuntime = this.determineNonPortableRuntime();
+  }
+
+  /** Class names are shared by many instances (super classes, interfaces), so they are interned like the member names. */
+  private static String intern(String s) {
+    return (s == null) ? null : s.intern();
+  }
+
+  private static String[] intern(String[] a) {
+    for (int i = 0; i < a.length; i++) {
+      a[i] = a[i].intern();
+    }
+    return a;
   }
   
   private boolean determineNonPortableRuntime() {
     return isRuntimeClass && !AsmUtils.isPortableRuntimeClass(getBinaryClassName());
   }
 
-  public ClassReader getReader() {
-    if (reader == null)
-      throw new IllegalStateException("'" + getBinaryClassName() + "' has no ClassReader, because it was already checked or is only loaded as related class.");
+  public ClassReader getReader() throws IOException {
+    if (reader == null) {
+      if (source == null)
+        throw new IllegalStateException("'" + getBinaryClassName() + "' has no ClassReader, because it was already checked or is only loaded as related class.");
+      try {
+        return AsmUtils.readAndPatchClass(source.readBytes());
+      } finally {
+        source = null;
+      }
+    }
     try {
       return reader;
     } finally {
@@ -136,6 +181,37 @@ final class ClassMetadata implements Constants {
     }
   }
   
+  /** Returns a fingerprint of all metadata (hierarchy, members, flags). It is never {@code 0}, so this can be used for missing classes. */
+  public long getFingerprint() {
+    long fp = fingerprint;
+    if (fp == 0L) {
+      final List<String> items = new ArrayList<>();
+      items.add(className);
+      items.add(String.valueOf(superName));
+      items.add(String.valueOf(isInterface) + isRuntimeClass + isNonPortableRuntime);
+      // order of interfaces is important for the ancestor walk, so don't sort them:
+      items.addAll(Arrays.asList(interfaces));
+      final List<String> members = new ArrayList<>();
+      for (final Method m : methods) {
+        members.add("m ".concat(m.getName()).concat(m.getDescriptor()));
+      }
+      for (final String s : fields) {
+        members.add("f ".concat(s));
+      }
+      for (final String s : signaturePolymorphicMethods) {
+        members.add("p ".concat(s));
+      }
+      Collections.sort(members);
+      items.addAll(members);
+      fp = IncrementalCache.fingerprint(items);
+      if (fp == 0L) {
+        fp = 1L;
+      }
+      fingerprint = fp;
+    }
+    return fp;
+  }
+  
   public String getBinaryClassName() {
     return Type.getObjectType(className).getClassName();
   }
@@ -27,7 +27,6 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
-import java.util.regex.Pattern;
 
 import org.objectweb.asm.AnnotationVisitor;
 import org.objectweb.asm.ClassVisitor;
@@ -52,8 +51,8 @@ public final class ClassScanner extends ClassVisitor implements Constants {
   
   final Signatures forbiddenSignatures;
   
-  // pattern that matches binary (dotted) class name of all annotations that suppress:
-  final Pattern suppressAnnotations;
+  // matches binary (dotted) class name of all annotations that suppress:
+  final GlobMatcher suppressAnnotations;
   
   private String source = null;
   private boolean isDeprecated = false;
@@ -68,7 +67,22 @@ public final class ClassScanner extends ClassVisitor implements Constants {
   boolean classSuppressed = false;
   private final boolean failOnViolation;
   
-  public ClassScanner(ClassMetadata metadata, RelatedClassLookup lookup, Signatures forbiddenSignatures, final Pattern suppressAnnotations, boolean failOnViolation) {
+  // shared results of member resolution, may be null:
+  private final ResolutionCache resolutionCache;
+  // reused for all lookups in the resolution cache, so cached results can be found without allocation:
+  private final ResolutionCache.Key resolutionKey = new ResolutionCache.Key();
+  
+  // counters for statistics, collected by the checker after scanning:
+  long ancestorWalkSteps = 0L, signatureLookups = 0L;
+  // number of visited instructions, for flight recorder events:
+  int instructions = 0;
+  
+  public ClassScanner(ClassMetadata metadata, RelatedClassLookup lookup, Signatures forbiddenSignatures, final GlobMatcher suppressAnnotations, boolean failOnViolation) {
+    this(metadata, lookup, forbiddenSignatures, suppressAnnotations, failOnViolation, null);
+  }
+  
+  ClassScanner(ClassMetadata metadata, RelatedClassLookup lookup, Signatures forbiddenSignatures, final GlobMatcher suppressAnnotations, boolean failOnViolation,
+      ResolutionCache resolutionCache) {
     super(Opcodes.ASM9);
     this.metadata = metadata;
     this.lookup = lookup;
@@ -76,6 +90,7 @@ public final class ClassScanner extends ClassVisitor implements Constants {
     this.suppressAnnotations = suppressAnnotations;
     this.forbidNonPortableRuntime = forbiddenSignatures.isNonPortableRuntimeForbidden();
     this.failOnViolation = failOnViolation;
+    this.resolutionCache = resolutionCache;
   }
   
   private void checkDone() {
@@ -99,6 +114,7 @@ public final class ClassScanner extends ClassVisitor implements Constants {
     if (type.getSort() != Type.OBJECT) {
       return null; // we don't know this type, just pass!
     }
+    signatureLookups++;
     final ViolationResult violation = forbiddenSignatures.checkType(type, what);
     if (violation != null) {
       return violation;
@@ -183,6 +199,7 @@ public final class ClassScanner extends ClassVisitor implements Constants {
   }
   
   private ViolationResult visitAncestorsRecursive(ClassMetadata cls, String origName, AncestorVisitor visitor, boolean previousInRuntime, boolean visitInterfacesFirst) {
+    ancestorWalkSteps++;
     ViolationResult result;
     if (visitInterfacesFirst) {
       result = visitInterfacesRecursive(cls, origName, visitor, previousInRuntime, visitInterfacesFirst);
@@ -214,18 +231,116 @@ public final class ClassScanner extends ClassVisitor implements Constants {
     }
   };
   
+  /** Finds the called method in the class hierarchy. There is only one instance per scanner, which is reused for all calls
+   * (the walk never resolves another member access). */
+  private final class MethodAncestorVisitor implements AncestorVisitor {
+    Method method;
+    boolean callIsVirtual;
+    
+    @Override
+    public ViolationResult visit(ClassMetadata c, String origName, boolean isInterfaceOfAncestor, boolean previousInRuntime) {
+      final Method lookupMethod;
+      if (c.signaturePolymorphicMethods.contains(method.getName())) {
+        // convert the invoked descriptor to a signature polymorphic one for the lookup
+        lookupMethod = new Method(method.getName(), SIGNATURE_POLYMORPHIC_DESCRIPTOR);
+      } else {
+        lookupMethod = method;
+      }
+      if (!c.methods.contains(lookupMethod)) {
+        return null;
+      }
+      // is we have a virtual call, look into superclasses, otherwise stop:
+      final ViolationResult notFoundRet = callIsVirtual ? null : AncestorVisitor.STOP;
+      if (previousInRuntime && c.isNonPortableRuntime) {
+        return notFoundRet; // something inside the JVM is extending internal class/interface
+      }
+      signatureLookups++;
+      ViolationResult violation = forbiddenSignatures.checkMethod(c.className, lookupMethod);
+      if (violation != null) {
+        return violation;
+      }
+      // for interfaces we don't check the class use (it is too strict, if just the interface is implemented, but nothing more!):
+      if (!isInterfaceOfAncestor) {
+        violation = checkClassUse(c.className, "class", origName);
+        if (violation != null) {
+          return violation;
+        }
+      }
+      return notFoundRet;
+    }
+  }
+  
+  /** Finds the accessed field in the class hierarchy, reused like {@link MethodAncestorVisitor}. */
+  private final class FieldAncestorVisitor implements AncestorVisitor {
+    String field;
+    
+    @Override
+    public ViolationResult visit(ClassMetadata c, String origName, boolean isInterfaceOfAncestor, boolean previousInRuntime) {
+      if (!c.fields.contains(field)) {
+        return null;
+      }
+      // we found the field: from now on we use STOP to exit, because fields are not virtual!
+      if (previousInRuntime && c.isNonPortableRuntime) {
+        return STOP; // something inside the JVM is extending internal class/interface
+      }
+      signatureLookups++;
+      ViolationResult violation = forbiddenSignatures.checkField(c.className, field);
+      if (violation != null) {
+        return violation;
+      }
+      // for interfaces we don't check the class use (it is too strict, if just the interface is implemented, but nothing more!):
+      if (!isInterfaceOfAncestor) {
+        violation = checkClassUse(c.className, "class", origName);
+        if (violation != null) {
+          return violation;
+        }
+      }
+      // we found the field and as those are not virtual, there is no need to go up in class hierarchy:
+      return STOP;
+    }
+  }
+  
+  private final MethodAncestorVisitor methodAncestorVisitor = new MethodAncestorVisitor();
+  private final FieldAncestorVisitor fieldAncestorVisitor = new FieldAncestorVisitor();
+  
+  /** Returns {@code true}, if no class in the hierarchy can cause a violation, so the walk can be skipped. The check looks up
+   * all ancestors, so it is only used together with the resolution cache (and not while recording the related classes
+   * of a class for incremental checks). */
+  private boolean canSkipAncestors(ClassMetadata c) {
+    return resolutionCache != null && !forbiddenSignatures.isHierarchyRelevant(c, lookup);
+  }
+  
+  private ViolationResult resolveObjectType(Type type, String internalName) {
+    final ViolationResult violation = checkClassUse(type, "class/interface", false, internalName);
+    if (violation != null) {
+      return violation;
+    }
+    final ClassMetadata c = lookup.lookupRelatedClass(internalName, internalName);
+    if (c == null || canSkipAncestors(c)) {
+      return null;
+    }
+    return visitAncestors(c, classRelationAncestorVisitor, false, false);
+  }
+  
+  /** Checks the type with the given internal name, the {@link Type} is only created if the result is not cached (may be {@code null}). */
+  ViolationResult checkObjectType(String internalName, Type type) {
+    if (resolutionCache == null) {
+      return resolveObjectType((type == null) ? Type.getObjectType(internalName) : type, internalName);
+    }
+    final ViolationResult cached = resolutionCache.get(resolutionKey.set(internalName, "", "", ResolutionCache.TYPE));
+    if (cached != ResolutionCache.NOT_CACHED) {
+      return cached;
+    }
+    final ResolutionCache.Key key = resolutionKey.copy();
+    return resolutionCache.put(key, resolveObjectType((type == null) ? Type.getObjectType(internalName) : type, internalName));
+  }
+  
   ViolationResult checkType(Type type) {
     while (type != null) {
       ViolationResult violation;
       switch (type.getSort()) {
         case Type.OBJECT:
-          final String internalName = type.getInternalName();
-          violation = checkClassUse(type, "class/interface", false, internalName);
-          if (violation != null) {
-            return violation;
-          }
-          final ClassMetadata c = lookup.lookupRelatedClass(internalName, internalName);
-          return (c == null) ? null : visitAncestors(c, classRelationAncestorVisitor, false, false);
+          return checkObjectType(type.getInternalName(), type);
         case Type.ARRAY:
           type = type.getElementType();
           break;
@@ -268,7 +383,15 @@ public final class ClassScanner extends ClassVisitor implements Constants {
   }
   
   ViolationResult checkDescriptor(String desc) {
-    return checkType(Type.getType(desc));
+    if (resolutionCache == null) {
+      return checkType(Type.getType(desc));
+    }
+    final ViolationResult cached = resolutionCache.get(resolutionKey.set(desc, "", "", ResolutionCache.DESCRIPTOR));
+    if (cached != ResolutionCache.NOT_CACHED) {
+      return cached;
+    }
+    final ResolutionCache.Key key = resolutionKey.copy();
+    return resolutionCache.put(key, checkType(Type.getType(desc)));
   }
   
   ViolationResult checkAnnotationDescriptor(Type type, boolean visible) {
@@ -277,7 +400,7 @@ public final class ClassScanner extends ClassVisitor implements Constants {
   }
   
   void maybeSuppressCurrentGroup(Type annotation) {
-    if (suppressAnnotations.matcher(annotation.getClassName()).matches()) {
+    if (suppressAnnotations.matches(annotation.getClassName())) {
       suppressedGroups.set(currentGroupId);
     }
   }
@@ -296,7 +419,7 @@ public final class ClassScanner extends ClassVisitor implements Constants {
     this.isDeprecated = (access & Opcodes.ACC_DEPRECATED) != 0;
     reportClassViolation(visitAncestors(metadata, classRelationAncestorVisitor, false, false), "class declaration");
     if (this.isDeprecated) {
-      classSuppressed |= suppressAnnotations.matcher(DEPRECATED_TYPE.getClassName()).matches();
+      classSuppressed |= suppressAnnotations.matches(DEPRECATED_TYPE.getClassName());
       reportClassViolation(checkType(DEPRECATED_TYPE), "deprecation on class declaration");
     }
   }
@@ -313,7 +436,7 @@ public final class ClassScanner extends ClassVisitor implements Constants {
       return null;
     }
     final Type type = Type.getType(desc);
-    classSuppressed |= suppressAnnotations.matcher(type.getClassName()).matches();
+    classSuppressed |= suppressAnnotations.matches(type.getClassName());
     reportClassViolation(checkAnnotationDescriptor(type, visible), "annotation on class declaration");
     return null;
   }
@@ -363,7 +486,7 @@ public final class ClassScanner extends ClassVisitor implements Constants {
       
       private void reportFieldViolation(ViolationResult violationResult, String where) {
         if (violationResult != null) {
-          violations.add(new ForbiddenViolation(currentGroupId, violationResult.message, String.format(Locale.ENGLISH, "%s of '%s'", where, name), -1, violationResult.severity));
+          violations.add(new ForbiddenViolation(currentGroupId, null, violationResult.message, where, name, -1, violationResult.severity));
         }
       }
     };
@@ -391,7 +514,20 @@ public final class ClassScanner extends ClassVisitor implements Constants {
         }
       }
             
-      private ViolationResult checkMethodAccess(String owner, final Method method, final boolean callIsVirtual) {
+      private ViolationResult checkMethodAccess(String owner, String name, String desc, boolean callIsVirtual) {
+        if (resolutionCache == null) {
+          return resolveMethodAccess(owner, new Method(name, desc), callIsVirtual);
+        }
+        final ViolationResult cached = resolutionCache.get(resolutionKey.set(owner, name, desc,
+            callIsVirtual ? ResolutionCache.METHOD_VIRTUAL : ResolutionCache.METHOD_NONVIRTUAL));
+        if (cached != ResolutionCache.NOT_CACHED) {
+          return cached;
+        }
+        final ResolutionCache.Key key = resolutionKey.copy();
+        return resolutionCache.put(key, resolveMethodAccess(owner, new Method(name, desc), callIsVirtual));
+      }
+      
+      private ViolationResult resolveMethodAccess(String owner, Method method, boolean callIsVirtual) {
         if  (CLASS_CONSTRUCTOR_METHOD_NAME.equals(method.getName())) {
           // we don't check for violations on class constructors
           return null;
@@ -401,6 +537,7 @@ public final class ClassScanner extends ClassVisitor implements Constants {
           return violation;
         }
         // do a quick check that works without a ClassSignature (a more thorough check is done later):
+        signatureLookups++;
         violation = forbiddenSignatures.checkMethod(owner, method);
         if (violation != null) {
           return violation;
@@ -409,82 +546,43 @@ public final class ClassScanner extends ClassVisitor implements Constants {
           return null; // don't look into superclasses or interfaces to find constructors!
         }
         final ClassMetadata c = lookup.lookupRelatedClass(owner, owner);
-        if (c == null) {
+        if (c == null || canSkipAncestors(c)) {
           return null;
         }
-        return visitAncestors(c, new AncestorVisitor() {
-          @Override
-          public ViolationResult visit(ClassMetadata c, String origName, boolean isInterfaceOfAncestor, boolean previousInRuntime) {
-            final Method lookupMethod;
-            if (c.signaturePolymorphicMethods.contains(method.getName())) {
-              // convert the invoked descriptor to a signature polymorphic one for the lookup
-              lookupMethod = new Method(method.getName(), SIGNATURE_POLYMORPHIC_DESCRIPTOR);
-            } else {
-              lookupMethod = method;
-            }
-            if (!c.methods.contains(lookupMethod)) {
-              return null;
-            }
-            // is we have a virtual call, look into superclasses, otherwise stop:
-            final ViolationResult notFoundRet = callIsVirtual ? null : AncestorVisitor.STOP;
-            if (previousInRuntime && c.isNonPortableRuntime) {
-              return notFoundRet; // something inside the JVM is extending internal class/interface
-            }
-            ViolationResult violation = forbiddenSignatures.checkMethod(c.className, lookupMethod);
-            if (violation != null) {
-              return violation;
-            }
-            // for interfaces we don't check the class use (it is too strict, if just the interface is implemented, but nothing more!):
-            if (!isInterfaceOfAncestor) {
-              violation = checkClassUse(c.className, "class", origName);
-              if (violation != null) {
-                return violation;
-              }
-            }
-            return notFoundRet;
-          }
-        }, true, false /* JVM spec says: interfaces after superclasses */);
+        methodAncestorVisitor.method = method;
+        methodAncestorVisitor.callIsVirtual = callIsVirtual;
+        return visitAncestors(c, methodAncestorVisitor, true, false /* JVM spec says: interfaces after superclasses */);
       }
 
-      private ViolationResult checkFieldAccess(String owner, final String field) {
+      private ViolationResult checkFieldAccess(String owner, String field) {
+        if (resolutionCache == null) {
+          return resolveFieldAccess(owner, field);
+        }
+        final ViolationResult cached = resolutionCache.get(resolutionKey.set(owner, field, "", ResolutionCache.FIELD));
+        if (cached != ResolutionCache.NOT_CACHED) {
+          return cached;
+        }
+        final ResolutionCache.Key key = resolutionKey.copy();
+        return resolutionCache.put(key, resolveFieldAccess(owner, field));
+      }
+      
+      private ViolationResult resolveFieldAccess(String owner, String field) {
         ViolationResult violation = checkClassUse(owner, "class/interface", owner);
         if (violation != null) {
           return violation;
         }
         // do a quick check that works without a ClassSignature (a more thorough check is done later):
+        signatureLookups++;
         violation = forbiddenSignatures.checkField(owner, field);
         if (violation != null) {
           return violation;
         }
         final ClassMetadata c = lookup.lookupRelatedClass(owner, owner);
-        if (c == null) {
+        if (c == null || canSkipAncestors(c)) {
           return null;
         }
-        return visitAncestors(c, new AncestorVisitor() {
-          @Override
-          public ViolationResult visit(ClassMetadata c, String origName, boolean isInterfaceOfAncestor, boolean previousInRuntime) {
-            if (!c.fields.contains(field)) {
-              return null;
-            }
-            // we found the field: from now on we use STOP to exit, because fields are not virtual!
-            if (previousInRuntime && c.isNonPortableRuntime) {
-              return STOP; // something inside the JVM is extending internal class/interface
-            }
-            ViolationResult violation = forbiddenSignatures.checkField(c.className, field);
-            if (violation != null) {
-              return violation;
-            }
-            // for interfaces we don't check the class use (it is too strict, if just the interface is implemented, but nothing more!):
-            if (!isInterfaceOfAncestor) {
-              violation = checkClassUse(c.className, "class", origName);
-              if (violation != null) {
-                return violation;
-              }
-            }
-            // we found the field and as those are not virtual, there is no need to go up in class hierarchy:
-            return STOP;
-          }
-        }, true, true /* JVM spec says: superclasses after interfaces */);
+        fieldAncestorVisitor.field = field;
+        return visitAncestors(c, fieldAncestorVisitor, true, true /* JVM spec says: superclasses after interfaces */);
       }
       
       private ViolationResult checkHandle(Handle handle, boolean checkLambdaHandle) {
@@ -499,15 +597,14 @@ public final class ClassScanner extends ClassVisitor implements Constants {
           case Opcodes.H_INVOKESPECIAL:
           case Opcodes.H_NEWINVOKESPECIAL:
           case Opcodes.H_INVOKEINTERFACE:
-            final Method m = new Method(handle.getName(), handle.getDesc());
             if (checkLambdaHandle && handle.getOwner().equals(metadata.className) && handle.getName().startsWith(LAMBDA_METHOD_NAME_PREFIX)) {
               // as described in <http://cr.openjdk.java.net/~briangoetz/lambda/lambda-translation.html>,
               // we will record this metafactory call as "lambda" invokedynamic,
               // so we can assign the called lambda with the same groupId like *this* method:
-              lambdas.put(m, currentGroupId);
+              lambdas.put(new Method(handle.getName(), handle.getDesc()), currentGroupId);
             }
             final boolean callIsVirtual = (handle.getTag() == Opcodes.H_INVOKEVIRTUAL) || (handle.getTag() == Opcodes.H_INVOKEINTERFACE);
-            return checkMethodAccess(handle.getOwner(), m, callIsVirtual);
+            return checkMethodAccess(handle.getOwner(), handle.getName(), handle.getDesc(), callIsVirtual);
         }
         return null;
       }
@@ -565,34 +662,41 @@ public final class ClassScanner extends ClassVisitor implements Constants {
       
       @Override
       public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
+        instructions++;
         final boolean callIsVirtual = (opcode == Opcodes.INVOKEVIRTUAL) || (opcode == Opcodes.INVOKEINTERFACE);
-        reportMethodViolation(checkMethodAccess(owner, new Method(name, desc), callIsVirtual), "method body");
+        reportMethodViolation(checkMethodAccess(owner, name, desc, callIsVirtual), "method body");
       }
       
       @Override
       public void visitFieldInsn(int opcode, String owner, String name, String desc) {
+        instructions++;
         reportMethodViolation(checkFieldAccess(owner, name), "method body");
       }
       
       @Override
       public void visitTypeInsn(int opcode, String type) {
+        instructions++;
         if (opcode == Opcodes.ANEWARRAY) {
-          reportMethodViolation(checkType(Type.getObjectType(type)), "method body");
+          // the component type is an array descriptor for multi-dimensional arrays:
+          reportMethodViolation((type.charAt(0) == '[') ? checkDescriptor(type) : checkObjectType(type, null), "method body");
         }
       }
       
       @Override
       public void visitMultiANewArrayInsn(String desc, int dims) {
+        instructions++;
         reportMethodViolation(checkDescriptor(desc), "method body");
       }
       
       @Override
       public void visitLdcInsn(Object cst) {
+        instructions++;
         reportMethodViolation(checkConstant(cst, false), "method body");
       }
       
       @Override
       public void visitInvokeDynamicInsn(String name, String desc, Handle bsm, Object... bsmArgs) {
+        instructions++;
         final boolean isLambdaMetaFactory = LAMBDA_META_FACTORY_INTERNALNAME.equals(bsm.getOwner());
         reportMethodViolation(checkHandle(bsm, false), "method body");
         for (final Object cst : bsmArgs) {
@@ -600,22 +704,44 @@ public final class ClassScanner extends ClassVisitor implements Constants {
         }
       }
       
-      private String getHumanReadableMethodSignature() {
-        final Type[] args = Type.getType(myself.getDescriptor()).getArgumentTypes();
-        final StringBuilder sb = new StringBuilder(myself.getName()).append('(');
-        boolean comma = false;
-        for (final Type t : args) {
-          if (comma) sb.append(',');
-          sb.append(t.getClassName());
-          comma = true;
-        }
-        sb.append(')');
-        return sb.toString();
+      @Override
+      public void visitInsn(int opcode) {
+        instructions++;
       }
-
+      
+      @Override
+      public void visitIntInsn(int opcode, int operand) {
+        instructions++;
+      }
+      
+      @Override
+      public void visitVarInsn(int opcode, int var) {
+        instructions++;
+      }
+      
+      @Override
+      public void visitJumpInsn(int opcode, Label label) {
+        instructions++;
+      }
+      
+      @Override
+      public void visitIincInsn(int var, int increment) {
+        instructions++;
+      }
+      
+      @Override
+      public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+        instructions++;
+      }
+      
+      @Override
+      public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+        instructions++;
+      }
+      
       private void reportMethodViolation(ViolationResult violation, String where) {
         if (violation != null) {
-          violations.add(new ForbiddenViolation(currentGroupId, myself, violation.message, String.format(Locale.ENGLISH, "%s of '%s'", where, getHumanReadableMethodSignature()), lineNo, violation.severity));
+          violations.add(new ForbiddenViolation(currentGroupId, myself, violation.message, where, null, lineNo, violation.severity));
         }
       }
       
@@ -653,7 +779,7 @@ public final class ClassScanner extends ClassVisitor implements Constants {
       
       private void reportRecordComponentViolation(ViolationResult violationResult, String where) {
         if (violationResult != null) {
-          violations.add(new ForbiddenViolation(currentGroupId, violationResult.message, String.format(Locale.ENGLISH, "%s of '%s'", where, name), -1, violationResult.severity));
+          violations.add(new ForbiddenViolation(currentGroupId, null, violationResult.message, where, name, -1, violationResult.severity));
         }
       }
     };
@@ -0,0 +1,316 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringTokenizer;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+import org.objectweb.asm.Type;
+
+/** Index of all classes on a classpath (directories and JAR files), which is used instead of
+ * {@link ClassLoader#getResource(String)} to look up related classes. The class loader searches
+ * all classpath elements one after each other for every lookup, while the index maps all class names
+ * to the first classpath element containing it (like the class loader would do). JAR files are
+ * opened only once and stay open until the index is closed.
+ * <p>The index does not know about classes of the parent class loader, so those must be looked up
+ * before. Files that cannot be opened as JAR files are ignored like the class loader does.
+ * Classes in multi-release JAR files are not read from the index, because the class loader
+ * may return versioned class files; the caller should use the class loader for those. */
+final class ClasspathIndex implements Closeable {
+
+  /** Prefix of versioned class files in multi-release JAR files. */
+  private static final String MULTI_RELEASE_PREFIX = "META-INF/versions/";
+  private static final Attributes.Name MULTI_RELEASE = new Attributes.Name("Multi-Release");
+
+  /** Environment of the index, implemented by the {@link Checker} */
+  interface Environment {
+    /** Returns {@code true}, if the file is part of the Java runtime. */
+    boolean isRuntimePath(File file) throws IOException;
+    /** Returns the persistent index of a JAR file, or {@code null}. */
+    JarMetadataIndex getJarIndex(File jarFile);
+  }
+
+  /** A directory or JAR file on the classpath. */
+  static final class Element {
+    final File file;
+    final boolean isJar, isRuntime;
+    private boolean isMultiRelease = false;
+    private JarMetadataIndex jarIndex = null;
+    private JarFile jar = null;
+
+    Element(File file, boolean isJar, boolean isRuntime) {
+      this.file = file;
+      this.isJar = isJar;
+      this.isRuntime = isRuntime;
+    }
+
+    /** Returns {@code true}, if this is a multi-release JAR file, which must be read by the class loader. */
+    public boolean isMultiRelease() {
+      return isMultiRelease;
+    }
+
+    /** Returns the metadata of the class from the persistent index of the JAR file, or {@code null}. */
+    public ClassMetadata getCached(String clazz) {
+      return (jarIndex == null) ? null : jarIndex.get(clazz);
+    }
+
+    /** Adds the metadata of a class to the persistent index of the JAR file (if any). */
+    public void putCached(ClassMetadata c) {
+      if (jarIndex != null) {
+        jarIndex.put(c);
+      }
+    }
+
+    /** Reads the class file (binary class name) into an exactly sized array. */
+    public byte[] readBytes(String clazz) throws IOException {
+      final String name = AsmUtils.getClassResourceName(clazz);
+      if (!isJar) {
+        return AsmUtils.readFile(new File(file, name));
+      }
+      final JarFile jar = getJar();
+      final JarEntry entry = jar.getJarEntry(name);
+      if (entry == null) {
+        throw new IOException("Class file '" + name + "' disappeared from JAR file: " + file);
+      }
+      try (final InputStream in = jar.getInputStream(entry)) {
+        return AsmUtils.readStream(in, entry.getSize());
+      }
+    }
+
+    /** Returns a description of the location of the class for error messages. */
+    public String getLocation(String clazz) {
+      final String name = AsmUtils.getClassResourceName(clazz);
+      return isJar ? (file + "!/" + name) : new File(file, name).toString();
+    }
+
+    synchronized JarFile getJar() throws IOException {
+      if (jar == null) {
+        jar = new JarFile(file, false);
+      }
+      return jar;
+    }
+
+    synchronized void close() throws IOException {
+      if (jar != null) {
+        try {
+          jar.close();
+        } finally {
+          jar = null;
+        }
+      }
+    }
+  }
+
+  private final List<File> files;
+  private final Environment env;
+  private final Logger logger;
+  private final List<Element> elements = new ArrayList<>();
+  /** binary class name to first element containing it, {@code null} until built; never modified after publishing */
+  private volatile Map<String,Element> classes = null;
+
+  ClasspathIndex(List<File> files, Environment env, Logger logger) {
+    this.files = files;
+    this.env = env;
+    this.logger = logger;
+  }
+
+  /** Returns the files of the classpath of the given loader, or {@code null}, if it is not a {@link URLClassLoader}
+   * with {@code file:} URLs only. */
+  static List<File> getClasspathFiles(ClassLoader loader) {
+    if (!(loader instanceof URLClassLoader)) {
+      return null;
+    }
+    final List<File> files = new ArrayList<>();
+    for (final URL url : ((URLClassLoader) loader).getURLs()) {
+      if (!"file".equalsIgnoreCase(url.getProtocol())) {
+        return null;
+      }
+      try {
+        files.add(new File(url.toURI()));
+      } catch (URISyntaxException | IllegalArgumentException e) {
+        return null;
+      }
+    }
+    return files;
+  }
+
+  /** Returns the classpath element that contains the given class (binary name), or {@code null}, if
+   * the class is not on the classpath. The index is built on first call. */
+  public Element find(String clazz) throws IOException {
+    return getClasses().get(clazz);
+  }
+
+  /** Returns the number of classes in the index. */
+  public int size() throws IOException {
+    return getClasses().size();
+  }
+
+  private Map<String,Element> getClasses() throws IOException {
+    Map<String,Element> classes = this.classes;
+    if (classes == null) {
+      synchronized (this) {
+        classes = this.classes;
+        if (classes == null) {
+          classes = new HashMap<>();
+          final Set<File> seen = new HashSet<>();
+          for (final File f : files) {
+            addElement(classes, seen, f);
+          }
+          this.classes = classes;
+        }
+      }
+    }
+    return classes;
+  }
+
+  private void addElement(Map<String,Element> classes, Set<File> seen, File f) throws IOException {
+    f = f.getCanonicalFile();
+    if (!seen.add(f)) {
+      return;
+    }
+    if (f.isDirectory()) {
+      final Element element = new Element(f, false, env.isRuntimePath(f));
+      elements.add(element);
+      addDirectory(classes, element, f, "");
+    } else if (f.isFile()) {
+      final Element element = new Element(f, true, env.isRuntimePath(f));
+      final JarFile jar;
+      final Manifest manifest;
+      try {
+        jar = element.getJar();
+        manifest = jar.getManifest();
+      } catch (IOException ioe) {
+        // the class loader also skips files that are no valid JAR files (e.g., POM files):
+        logger.debug("Ignoring classpath element that is not a valid JAR file: " + f + " (" + ioe + ")");
+        element.close();
+        return;
+      }
+      elements.add(element);
+      element.isMultiRelease = manifest != null && "true".equalsIgnoreCase(manifest.getMainAttributes().getValue(MULTI_RELEASE));
+      if (!element.isRuntime) {
+        element.jarIndex = env.getJarIndex(f);
+      }
+      if (element.jarIndex != null && !element.isMultiRelease) {
+        // the persistent index already knows the names of all classes, so we don't need to list the JAR file:
+        for (final String clazz : element.jarIndex.getClassNames()) {
+          addClassName(classes, element, clazz);
+        }
+      } else {
+        addJarEntries(classes, element, jar);
+      }
+      // the class loader also searches the JAR files in the manifest's class path (directly after this file):
+      final String classPath = (manifest == null) ? null : manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
+      if (classPath != null) {
+        final Set<File> referenced = new LinkedHashSet<>();
+        for (final StringTokenizer st = new StringTokenizer(classPath); st.hasMoreTokens();) {
+          try {
+            final URL url = new URL(f.toURI().toURL(), st.nextToken());
+            if ("file".equalsIgnoreCase(url.getProtocol())) {
+              referenced.add(new File(url.toURI()));
+            }
+          } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            // ignore invalid entries like the class loader does
+          }
+        }
+        for (final File r : referenced) {
+          addElement(classes, seen, r);
+        }
+      }
+    }
+  }
+
+  private static void addJarEntries(Map<String,Element> classes, Element element, JarFile jar) {
+    for (final Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements();) {
+      final JarEntry entry = e.nextElement();
+      String name = entry.getName();
+      if (entry.isDirectory() || !name.endsWith(".class")) {
+        continue;
+      }
+      if (name.startsWith(MULTI_RELEASE_PREFIX)) {
+        if (!element.isMultiRelease) {
+          continue;
+        }
+        final int p = name.indexOf('/', MULTI_RELEASE_PREFIX.length());
+        if (p < 0) {
+          continue;
+        }
+        name = name.substring(p + 1);
+      }
+      addClass(classes, element, name);
+    }
+  }
+
+  private void addDirectory(Map<String,Element> classes, Element element, File dir, String prefix) {
+    final File[] children = dir.listFiles();
+    if (children == null) {
+      return;
+    }
+    for (final File child : children) {
+      final String name = prefix + child.getName();
+      if (child.isDirectory()) {
+        addDirectory(classes, element, child, name + "/");
+      } else if (name.endsWith(".class")) {
+        addClass(classes, element, name);
+      }
+    }
+  }
+
+  private static void addClass(Map<String,Element> classes, Element element, String resourceName) {
+    addClassName(classes, element, Type.getObjectType(resourceName.substring(0, resourceName.length() - 6)).getClassName());
+  }
+
+  private static void addClassName(Map<String,Element> classes, Element element, String clazz) {
+    if (!classes.containsKey(clazz)) {
+      classes.put(clazz, element);
+    }
+  }
+
+  /** Closes all JAR files. They are opened again, if the index is used afterwards. */
+  @Override
+  public synchronized void close() throws IOException {
+    IOException ex = null;
+    for (final Element element : elements) {
+      try {
+        element.close();
+      } catch (IOException ioe) {
+        if (ex == null) ex = ioe;
+      }
+    }
+    if (ex != null) {
+      throw ex;
+    }
+  }
+
+}
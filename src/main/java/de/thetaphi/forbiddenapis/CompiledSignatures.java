@@ -0,0 +1,199 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.thetaphi.forbiddenapis.Signatures.ParsedSignature;
+import de.thetaphi.forbiddenapis.Signatures.ParsedSignatures;
+import de.thetaphi.forbiddenapis.Signatures.UnresolvableReporting;
+
+/** Binary form of a bundled signatures file, which is created at build time from the text files (which stay the
+ * source of truth). All {@code @includeBundled} references are flattened, the signatures are already parsed, and all
+ * strings (class names, messages,...) are deduplicated. The file is loaded with a single read.
+ * <p>Resolving the signatures against the classpath still happens at runtime, as it depends on the JDK. */
+final class CompiledSignatures {
+
+  static final String FILE_EXTENSION = ".bin";
+
+  private static final int MAGIC = 0x46415342; // "FASB"
+  private static final int VERSION = 1;
+
+  /** The lower bits of the flags are the ordinal of the {@link UnresolvableReporting} plus one (zero is the default) */
+  private static final int REPORTING_MASK = 0x07, FLAG_IGNORE_MISSING_CLASSES = 0x08, FLAG_FULL_SIGNATURE = 0x10;
+  private static final UnresolvableReporting[] REPORTINGS = UnresolvableReporting.values();
+
+  private CompiledSignatures() {}
+
+  /** Writes the parsed signatures in binary form. */
+  static void write(ParsedSignatures parsed, OutputStream out) throws IOException {
+    final List<String> strings = new ArrayList<>();
+    final Map<String,Integer> stringIds = new HashMap<>();
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    final DataOutputStream bodyOut = new DataOutputStream(body);
+    writeVInt(bodyOut, parsed.signatures.size());
+    for (final ParsedSignature s : parsed.signatures) {
+      // the signature text is only stored, if it cannot be recreated from its parts (e.g., because of whitespace):
+      final String derived = deriveSignature(s.clazz, s.member, s.methodDescriptor, (s.methodDescriptor == null) ? null : getMethodArgs(s.signature));
+      int flags = (s.reporting == null) ? 0 : (s.reporting.ordinal() + 1);
+      if (s.ignoreMissingClasses) flags |= FLAG_IGNORE_MISSING_CLASSES;
+      if (!s.signature.equals(derived)) flags |= FLAG_FULL_SIGNATURE;
+      bodyOut.writeByte(flags);
+      writeStringId(bodyOut, strings, stringIds, s.message);
+      writeStringId(bodyOut, strings, stringIds, s.clazz);
+      writeStringId(bodyOut, strings, stringIds, s.member);
+      writeStringId(bodyOut, strings, stringIds, s.methodDescriptor);
+      if ((flags & FLAG_FULL_SIGNATURE) != 0) {
+        writeStringId(bodyOut, strings, stringIds, s.signature);
+      } else if (s.methodDescriptor != null) {
+        writeStringId(bodyOut, strings, stringIds, getMethodArgs(s.signature));
+      }
+    }
+    bodyOut.flush();
+
+    final DataOutputStream dataOut = new DataOutputStream(out);
+    dataOut.writeInt(MAGIC);
+    dataOut.writeInt(VERSION);
+    writeVInt(dataOut, parsed.numberOfFiles);
+    dataOut.writeBoolean(parsed.forbidNonPortableRuntime);
+    writeVInt(dataOut, strings.size());
+    for (final String s : strings) {
+      dataOut.writeUTF(s);
+    }
+    body.writeTo(dataOut);
+    dataOut.flush();
+  }
+
+  /** Returns the text of the method arguments (starting with the opening bracket), or {@code null}. */
+  private static String getMethodArgs(String signature) {
+    final int p = signature.indexOf('(');
+    return (p < 0) ? null : signature.substring(p);
+  }
+
+  private static String deriveSignature(String clazz, String member, String methodDescriptor, String methodArgs) {
+    if (member == null) {
+      return clazz;
+    }
+    if (methodDescriptor == null) {
+      return clazz + '#' + member;
+    }
+    return (methodArgs == null) ? null : (clazz + '#' + member + methodArgs);
+  }
+
+  private static void writeVInt(DataOutputStream out, int i) throws IOException {
+    assert i >= 0;
+    while ((i & ~0x7F) != 0) {
+      out.writeByte((i & 0x7F) | 0x80);
+      i >>>= 7;
+    }
+    out.writeByte(i);
+  }
+
+  private static int readVInt(DataInputStream in) throws IOException {
+    int i = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      final int b = in.readUnsignedByte();
+      i |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return i;
+      }
+    }
+    throw new IOException("Invalid compiled signatures file (malformed number).");
+  }
+
+  private static void writeStringId(DataOutputStream out, List<String> strings, Map<String,Integer> stringIds, String s) throws IOException {
+    if (s == null) {
+      writeVInt(out, 0);
+      return;
+    }
+    Integer id = stringIds.get(s);
+    if (id == null) {
+      id = strings.size();
+      strings.add(s);
+      stringIds.put(s, id);
+    }
+    writeVInt(out, id.intValue() + 1);
+  }
+
+  private static String readString(DataInputStream in, String[] strings) throws IOException {
+    final int id = readVInt(in);
+    return (id == 0) ? null : strings[id - 1];
+  }
+
+  /** Reads the signatures in binary form, the stream is read completely before parsing. */
+  static ParsedSignatures read(InputStream in) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(16384);
+    final byte[] buffer = new byte[16384];
+    int len;
+    while ((len = in.read(buffer)) >= 0) {
+      bytes.write(buffer, 0, len);
+    }
+    final DataInputStream dataIn = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    if (dataIn.readInt() != MAGIC || dataIn.readInt() != VERSION) {
+      throw new IOException("Invalid compiled signatures file (wrong magic or version).");
+    }
+    final ParsedSignatures parsed = new ParsedSignatures();
+    parsed.numberOfFiles = readVInt(dataIn);
+    parsed.forbidNonPortableRuntime = dataIn.readBoolean();
+    final String[] strings = new String[readVInt(dataIn)];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = dataIn.readUTF();
+    }
+    for (int i = readVInt(dataIn); i > 0; i--) {
+      final int flags = dataIn.readUnsignedByte();
+      final int reporting = flags & REPORTING_MASK;
+      final String message = readString(dataIn, strings), clazz = readString(dataIn, strings),
+          member = readString(dataIn, strings), methodDescriptor = readString(dataIn, strings);
+      final String signature;
+      if ((flags & FLAG_FULL_SIGNATURE) != 0) {
+        signature = readString(dataIn, strings);
+      } else {
+        signature = deriveSignature(clazz, member, methodDescriptor, (methodDescriptor == null) ? null : readString(dataIn, strings));
+      }
+      parsed.signatures.add(new ParsedSignature(signature, message, clazz, member, methodDescriptor,
+          (reporting == 0) ? null : REPORTINGS[reporting - 1], (flags & FLAG_IGNORE_MISSING_CLASSES) != 0));
+    }
+    return parsed;
+  }
+
+  /** Compiles the given bundled signatures into the output directory. This is called by the build.
+   * Arguments: output directory, followed by the names of all bundled signatures (without extension). */
+  public static void main(String... args) throws IOException,ParseException {
+    final File dir = new File(args[0]);
+    for (int i = 1; i < args.length; i++) {
+      final String name = args[i];
+      final ParsedSignatures parsed = Signatures.parseBundledSignatures(name, StdIoLogger.INSTANCE);
+      try (final OutputStream out = new BufferedOutputStream(new FileOutputStream(new File(dir, name + FILE_EXTENSION)))) {
+        write(parsed, out);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.thetaphi.forbiddenapis;
+
+/** Emits events to the Java Flight Recorder, if it is available in the runtime and a recording is active.
+ * Every event is started by a {@code begin} method, which returns {@code null} if the event is disabled, so
+ * callers can skip collecting its data. The handle is then passed to the corresponding {@code commit} method
+ * (which accepts {@code null}). The JFR specific code is in a separate class, so nothing fails on runtimes
+ * without {@code jdk.jfr}. */
+abstract class FlightRecorderEvents {
+
+  static final FlightRecorderEvents INSTANCE = create();
+
+  private static FlightRecorderEvents create() {
+    try {
+      Class.forName("jdk.jfr.FlightRecorder");
+      return (FlightRecorderEvents) Class.forName("de.thetaphi.forbiddenapis.JfrEvents").getDeclaredConstructor().newInstance();
+    } catch (Exception | LinkageError e) {
+      return new FlightRecorderEvents() {};
+    }
+  }
+
+  /** Starts the event for parsing a signatures source. */
+  Object beginSignaturesParsing() {
+    return null;
+  }
+
+  void commitSignaturesParsing(Object event, String source, int signatures) {
+  }
+
+  /** Starts the event for looking up a related class in the cache or loading it. */
+  Object beginRelatedClassLoading() {
+    return null;
+  }
+
+  void commitRelatedClassLoading(Object event, String className, String source, boolean cacheHit) {
+  }
+
+  /** Starts the event for scanning a class. */
+  Object beginClassScanning() {
+    return null;
+  }
+
+  void commitClassScanning(Object event, String className, int instructions, int violations) {
+  }
+
+}
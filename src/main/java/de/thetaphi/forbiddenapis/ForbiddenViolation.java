@@ -19,6 +19,7 @@ package de.thetaphi.forbiddenapis;
 import java.util.Formatter;
 import java.util.Locale;
 
+import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.Method;
 
 import de.thetaphi.forbiddenapis.Checker.ViolationSeverity;
@@ -36,18 +37,45 @@ public final class ForbiddenViolation implements Comparable<ForbiddenViolation>
   public final ViolationSeverity severity;
   
   ForbiddenViolation(int groupId, String description, String locationInfo, int lineNo, ViolationSeverity severity) {
-    this(groupId, null, description, locationInfo, lineNo, severity);
+    this(groupId, null, description, locationInfo, null, lineNo, severity);
   }
 
-  ForbiddenViolation(int groupId, Method targetMethod, String description, String locationInfo, int lineNo, ViolationSeverity severity) {
+  /** Creates a violation, the location info is {@code where} followed by the member (field, record component), or the human
+   * readable signature of the target method, if no member is given. */
+  ForbiddenViolation(int groupId, Method targetMethod, String description, String where, String member, int lineNo, ViolationSeverity severity) {
     this.groupId = groupId;
     this.targetMethod = targetMethod;
     this.description = description;
-    this.locationInfo = locationInfo;
+    this.locationInfo = formatLocationInfo(where, member, targetMethod);
     this.lineNo = lineNo;
     this.severity = severity;
   }
   
+  private static String formatLocationInfo(String where, String member, Method targetMethod) {
+    if (where == null) {
+      return null;
+    } else if (member != null) {
+      return String.format(Locale.ENGLISH, "%s of '%s'", where, member);
+    } else if (targetMethod != null) {
+      return String.format(Locale.ENGLISH, "%s of '%s'", where, getHumanReadableMethodSignature(targetMethod));
+    } else {
+      return where;
+    }
+  }
+  
+  private static String getHumanReadableMethodSignature(Method method) {
+    final Type[] args = method.getArgumentTypes();
+    final StringBuilder sb = new StringBuilder(method.getName()).append('(');
+    boolean comma = false;
+    for (final Type t : args) {
+      if (comma) sb.append(',');
+      sb.append(t.getClassName());
+      comma = true;
+    }
+    sb.append(')');
+    return sb.toString();
+  }
+  
   public void setGroupId(int groupId) {
     this.groupId = groupId;
   }
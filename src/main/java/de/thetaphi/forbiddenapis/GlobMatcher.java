@@ -0,0 +1,260 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/** Matches class names (binary name, dotted) against a list of globs (e.g., "sun.misc.**") at once, using
+ * the same syntax as {@link AsmUtils#glob2Pattern(String...)}. All globs are compiled into one automaton,
+ * whose deterministic states are created lazily while matching. Matching is a single pass over the class name
+ * without backtracking, and it returns all matching globs, so callers can pick the first matching rule.
+ * This class is thread safe. */
+public final class GlobMatcher {
+
+  /** Tokens of the compiled globs, characters are literals */
+  private static final char STAR = 0xFFFF, DOUBLE_STAR = 0xFFFE, QUESTION_MARK = 0xFFFD;
+
+  /** Maximum number of deterministic states, afterwards transitions are no longer cached */
+  private static final int MAX_STATES = 10000;
+
+  private static final int[] NO_MATCHES = new int[0];
+
+  /** A deterministic state: the set of states of all globs (positions), which is reached after reading a prefix */
+  private static final class State {
+    /** sorted, each entry is the glob number (upper bits) and the position in it (lower bits) */
+    final int[] positions;
+    /** sorted glob numbers that match, if the class name ends here */
+    final int[] matches;
+    /** cached transitions for ASCII characters */
+    final State[] ascii = new State[128];
+
+    State(int[] positions, int[] matches) {
+      this.positions = positions;
+      this.matches = matches;
+    }
+  }
+
+  private static final class StateKey {
+    final int[] positions;
+    final int hash;
+
+    StateKey(int[] positions) {
+      this.positions = positions;
+      this.hash = Arrays.hashCode(positions);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof StateKey && Arrays.equals(positions, ((StateKey) obj).positions);
+    }
+  }
+
+  private static final int POSITION_BITS = 16, POSITION_MASK = (1 << POSITION_BITS) - 1;
+
+  private final List<String> globs;
+  private final char[][] tokens;
+  private final State initial;
+  private final ConcurrentMap<StateKey,State> states = new ConcurrentHashMap<>();
+
+  /** Compiles the given globs, their order is preserved for the numbers returned by {@link #getMatches(String)}. */
+  public GlobMatcher(List<String> globs) {
+    this.globs = Collections.unmodifiableList(new ArrayList<>(globs));
+    this.tokens = new char[globs.size()][];
+    for (int i = 0; i < tokens.length; i++) {
+      tokens[i] = compile(this.globs.get(i));
+    }
+    int size = 0;
+    for (final char[] t : tokens) {
+      size += t.length + 1;
+    }
+    final int[] positions = new int[size];
+    int count = 0;
+    for (int i = 0; i < tokens.length; i++) {
+      count = addClosure(positions, count, i, 0);
+    }
+    this.initial = getState(positions, count);
+  }
+
+  public GlobMatcher(String... globs) {
+    this(Arrays.asList(globs));
+  }
+
+  private static char[] compile(String glob) {
+    final StringBuilder sb = new StringBuilder(glob.length());
+    int i = 0, len = glob.length();
+    while (i < len) {
+      final char c = glob.charAt(i++);
+      switch (c) {
+        case '*':
+          if (i < len && glob.charAt(i) == '*') {
+            // crosses package boundaries
+            sb.append(DOUBLE_STAR);
+            i++;
+          } else {
+            // do not cross package boundaries
+            sb.append(STAR);
+          }
+          break;
+        case '?':
+          // do not cross package boundaries
+          sb.append(QUESTION_MARK);
+          break;
+        default:
+          sb.append(c);
+      }
+    }
+    if (sb.length() > POSITION_MASK) {
+      throw new IllegalArgumentException("Glob is too long: " + glob);
+    }
+    return sb.toString().toCharArray();
+  }
+
+  /** Adds the position and all positions reachable without reading a character (behind wildcards). The array
+   * must have space for {@code tokens[glob].length - pos + 1} more positions. Returns the new count. */
+  private int addClosure(int[] positions, int count, int glob, int pos) {
+    final char[] t = tokens[glob];
+    while (true) {
+      positions[count++] = (glob << POSITION_BITS) | pos;
+      if (pos < t.length && (t[pos] == STAR || t[pos] == DOUBLE_STAR)) {
+        pos++;
+      } else {
+        return count;
+      }
+    }
+  }
+
+  private State getState(int[] positions, int count) {
+    final int[] sorted = Arrays.copyOf(positions, count);
+    Arrays.sort(sorted);
+    // remove duplicates:
+    int n = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      if (n == 0 || sorted[n - 1] != sorted[i]) {
+        sorted[n++] = sorted[i];
+      }
+    }
+    final int[] unique = Arrays.copyOf(sorted, n);
+    final StateKey key = new StateKey(unique);
+    State state = states.get(key);
+    if (state == null) {
+      int[] matches = new int[n];
+      int m = 0;
+      for (final int p : unique) {
+        final int glob = p >>> POSITION_BITS;
+        if ((p & POSITION_MASK) == tokens[glob].length && (m == 0 || matches[m - 1] != glob)) {
+          matches[m++] = glob;
+        }
+      }
+      matches = (m == 0) ? NO_MATCHES : Arrays.copyOf(matches, m);
+      state = new State(unique, matches);
+      if (states.size() < MAX_STATES) {
+        final State old = states.putIfAbsent(key, state);
+        if (old != null) {
+          state = old;
+        }
+      }
+    }
+    return state;
+  }
+
+  private State step(State state, char c) {
+    if (c < 128) {
+      final State next = state.ascii[c];
+      if (next != null) {
+        return next;
+      }
+    }
+    int size = 0;
+    for (final int p : state.positions) {
+      size += tokens[p >>> POSITION_BITS].length - (p & POSITION_MASK) + 1;
+    }
+    final int[] positions = new int[size];
+    int count = 0;
+    for (final int p : state.positions) {
+      final int glob = p >>> POSITION_BITS, pos = p & POSITION_MASK;
+      final char[] t = tokens[glob];
+      if (pos == t.length) {
+        continue;
+      }
+      final int target;
+      switch (t[pos]) {
+        case STAR:
+          target = (c == '.') ? -1 : pos;
+          break;
+        case DOUBLE_STAR:
+          target = pos;
+          break;
+        case QUESTION_MARK:
+          target = (c == '.') ? -1 : (pos + 1);
+          break;
+        default:
+          target = (t[pos] == c) ? (pos + 1) : -1;
+      }
+      if (target >= 0) {
+        count = addClosure(positions, count, glob, target);
+      }
+    }
+    final State next = getState(positions, count);
+    if (c < 128 && states.size() < MAX_STATES) {
+      // the state is immutable (except the cache), so a racy publication is harmless:
+      state.ascii[c] = next;
+    }
+    return next;
+  }
+
+  /** Returns the sorted numbers of all globs that match the given class name (binary name, dotted). The returned array
+   * must not be modified. */
+  public int[] getMatches(String className) {
+    State state = initial;
+    for (int i = 0, len = className.length(); i < len && state.positions.length > 0; i++) {
+      state = step(state, className.charAt(i));
+    }
+    return state.matches;
+  }
+
+  /** Returns the number of the first glob that matches the given class name (binary name, dotted), or {@code -1}. */
+  public int getFirstMatch(String className) {
+    final int[] matches = getMatches(className);
+    return (matches.length == 0) ? -1 : matches[0];
+  }
+
+  /** Returns {@code true}, if any of the globs matches the given class name (binary name, dotted). */
+  public boolean matches(String className) {
+    return getMatches(className).length > 0;
+  }
+
+  /** Returns the globs of this matcher. */
+  public List<String> getGlobs() {
+    return globs;
+  }
+
+  @Override
+  public String toString() {
+    return "GlobMatcher " + globs;
+  }
+
+}
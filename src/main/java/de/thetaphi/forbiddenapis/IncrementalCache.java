@@ -0,0 +1,220 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.thetaphi.forbiddenapis.Checker.ViolationSeverity;
+
+/** Persistent results of a previous run, used for incremental checks. For every checked class, it stores
+ * the fingerprint of its bytecode, the fingerprints of all related classes that were looked up while scanning
+ * it (missing classes have fingerprint {@code 0}), and the violations. All entries are only valid, if the
+ * fingerprint of the configuration (signatures, options,...) is the same as in the previous run. */
+final class IncrementalCache {
+
+  private static final int MAGIC = 0x46414943; // "FAIC"
+  private static final int VERSION = 1;
+
+  private static final ViolationSeverity[] SEVERITIES = ViolationSeverity.values();
+
+  /** Results of a single class */
+  static final class Entry {
+    final String className, sourceFile;
+    final long bytecodeFingerprint;
+    /** internal names of related classes with their fingerprints (0 for missing classes) */
+    final Map<String,Long> relatedClasses;
+    final List<ForbiddenViolation> violations;
+
+    Entry(String className, String sourceFile, long bytecodeFingerprint, Map<String,Long> relatedClasses, List<ForbiddenViolation> violations) {
+      this.className = className;
+      this.sourceFile = sourceFile;
+      this.bytecodeFingerprint = bytecodeFingerprint;
+      this.relatedClasses = relatedClasses;
+      this.violations = violations;
+    }
+  }
+
+  private final File file;
+  private final long configFingerprint;
+  private final Map<String,Entry> previous = new HashMap<>();
+  private final ConcurrentMap<String,Entry> current = new ConcurrentHashMap<>();
+  private final AtomicInteger reused = new AtomicInteger();
+
+  IncrementalCache(File file, long configFingerprint) {
+    this.file = file;
+    this.configFingerprint = configFingerprint;
+  }
+
+  /** Calculates a 64 bit fingerprint (the first bytes of SHA-1) of the given strings. */
+  static long fingerprint(Iterable<String> items) {
+    final MessageDigest digest = newDigest();
+    for (final String s : items) {
+      digest.update(s.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+    }
+    return fingerprint(digest);
+  }
+
+  /** Returns a new digest to calculate fingerprints with {@link #fingerprint(MessageDigest)}. */
+  static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException nsae) {
+      throw new AssertionError("SHA-1 must be supported by every JVM.");
+    }
+  }
+
+  /** Returns a 64 bit fingerprint (the first bytes) of the given digest. */
+  static long fingerprint(MessageDigest digest) {
+    final byte[] hash = digest.digest();
+    long fp = 0L;
+    for (int i = 0; i < 8; i++) {
+      fp = (fp << 8) | (hash[i] & 0xFFL);
+    }
+    return fp;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /** Reads the results of the previous run. Returns {@code false}, if the file does not exist or the configuration changed. */
+  public boolean load() throws IOException {
+    // every counted item needs at least one byte, so no count can be larger than the file:
+    final long maxCount = file.length();
+    try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != configFingerprint) {
+        return false;
+      }
+      final List<String> strings = new ArrayList<>();
+      final Map<String,Entry> loaded = new HashMap<>();
+      for (int i = 0, count = MetadataCacheFile.readCount(in, maxCount); i < count; i++) {
+        final String className = MetadataCacheFile.readNonNullString(in, strings);
+        final String sourceFile = MetadataCacheFile.readString(in, strings);
+        final long bytecodeFingerprint = in.readLong();
+        final Map<String,Long> relatedClasses = new HashMap<>();
+        for (int j = 0, size = MetadataCacheFile.readCount(in, maxCount); j < size; j++) {
+          relatedClasses.put(MetadataCacheFile.readNonNullString(in, strings), in.readLong());
+        }
+        final List<ForbiddenViolation> violations = new ArrayList<>();
+        for (int j = 0, size = MetadataCacheFile.readCount(in, maxCount); j < size; j++) {
+          final String description = MetadataCacheFile.readNonNullString(in, strings);
+          final String locationInfo = MetadataCacheFile.readString(in, strings);
+          final int lineNo = in.readInt();
+          final int severity = MetadataCacheFile.readVInt(in);
+          if (severity < 0 || severity >= SEVERITIES.length) {
+            throw new IOException("Corrupt cache file (invalid severity).");
+          }
+          violations.add(new ForbiddenViolation(j, description, locationInfo, lineNo, SEVERITIES[severity]));
+        }
+        loaded.put(className, new Entry(className, sourceFile, bytecodeFingerprint, relatedClasses, Collections.unmodifiableList(violations)));
+      }
+      previous.putAll(loaded);
+      return true;
+    } catch (FileNotFoundException fnfe) {
+      return false;
+    } catch (EOFException eofe) {
+      // truncated file (e.g., written by a killed process), ignore it:
+      return false;
+    } catch (RuntimeException re) {
+      // callers handle a corrupt file like a missing one, so never let garbage escape as unchecked exception:
+      throw new IOException("Corrupt cache file: " + re, re);
+    }
+  }
+
+  /** Writes all entries that were added by {@link #put(Entry)} in this run. Entries of the previous run are dropped. */
+  public void save() throws IOException {
+    final File tmp = MetadataCacheFile.createTempFile(file);
+    try {
+      try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(configFingerprint);
+        final Map<String,Integer> strings = new HashMap<>();
+        final List<Entry> entries = new ArrayList<>(current.values());
+        MetadataCacheFile.writeVInt(out, entries.size());
+        for (final Entry e : entries) {
+          MetadataCacheFile.writeString(out, strings, e.className);
+          MetadataCacheFile.writeString(out, strings, e.sourceFile);
+          out.writeLong(e.bytecodeFingerprint);
+          MetadataCacheFile.writeVInt(out, e.relatedClasses.size());
+          for (final Map.Entry<String,Long> related : e.relatedClasses.entrySet()) {
+            MetadataCacheFile.writeString(out, strings, related.getKey());
+            out.writeLong(related.getValue().longValue());
+          }
+          MetadataCacheFile.writeVInt(out, e.violations.size());
+          for (final ForbiddenViolation v : e.violations) {
+            MetadataCacheFile.writeString(out, strings, v.description);
+            MetadataCacheFile.writeString(out, strings, v.locationInfo);
+            out.writeInt(v.lineNo);
+            MetadataCacheFile.writeVInt(out, v.severity.ordinal());
+          }
+        }
+      }
+      MetadataCacheFile.replaceFile(tmp, file);
+    } finally {
+      Files.deleteIfExists(tmp.toPath());
+    }
+  }
+
+  /** Returns the entry of the previous run or {@code null}. */
+  public Entry getPrevious(String className) {
+    return previous.get(className);
+  }
+
+  /** Adds an entry of the current run. */
+  public void put(Entry e) {
+    current.put(e.className, e);
+  }
+
+  /** Adds an unchanged entry of the previous run to the current run. */
+  public void reuse(Entry e) {
+    reused.incrementAndGet();
+    put(e);
+  }
+
+  /** Returns the number of entries that were reused by {@link #reuse(Entry)}. */
+  public int getReusedCount() {
+    return reused.get();
+  }
+
+  public int size() {
+    return previous.size();
+  }
+
+}
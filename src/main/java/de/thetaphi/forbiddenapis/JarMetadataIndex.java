@@ -0,0 +1,170 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.objectweb.asm.Type;
+
+/** Persistent index of the {@link ClassMetadata} of all classes in a JAR file on the classpath.
+ * The index is keyed by the canonical path of the JAR file and validated by its size, modification time
+ * and the SHA-1 hash of its contents. The hash is only calculated if size or modification time differ,
+ * so touching a JAR file without changing it keeps the index. The index contains the names of all
+ * classes in the JAR file, which {@link ClasspathIndex} uses instead of listing the JAR file's entries
+ * again, so it also answers lookups of classes that are not in the JAR file. The metadata of the classes
+ * is added on first access, so only classes that were ever used are parsed. */
+final class JarMetadataIndex {
+
+  /** Prefix of versioned class files in multi-release JAR files. */
+  private static final String MULTI_RELEASE_PREFIX = "META-INF/versions/";
+
+  private final File jarFile;
+  private final MetadataCacheFile cache;
+
+  private JarMetadataIndex(File jarFile, MetadataCacheFile cache) {
+    this.jarFile = jarFile;
+    this.cache = cache;
+  }
+
+  /** Opens the index for the given JAR file in the cache directory and validates it (or rebuilds it, if the
+   * JAR file was modified). Returns {@code null}, if the JAR file cannot be indexed (multi-release JAR files,
+   * because the class loader may return versioned class files). */
+  static JarMetadataIndex open(File cacheDirectory, File jarFile, Logger logger) throws IOException {
+    jarFile = jarFile.getCanonicalFile();
+    final String key = "jar=" + jarFile.getPath();
+    final MetadataCacheFile cache = new MetadataCacheFile(new File(cacheDirectory, MetadataCacheFile.getFileName("jar", key)), key);
+    // SHA-1 hash of the JAR file, if it was already calculated while validating:
+    String sha1 = null;
+    try {
+      if (cache.load()) {
+        final String cachedSha1 = getCachedSha1(cache);
+        if (cachedSha1 != null) {
+          if (cache.getStamp().equals(getStamp(jarFile, cachedSha1))) {
+            return new JarMetadataIndex(jarFile, cache);
+          }
+          if (cache.getStamp().startsWith(jarFile.length() + ";")) {
+            sha1 = sha1(jarFile);
+            if (sha1.equals(cachedSha1)) {
+              // the file was touched, but contents are identical:
+              cache.updateStamp(getStamp(jarFile, sha1));
+              return new JarMetadataIndex(jarFile, cache);
+            }
+          }
+        }
+      }
+    } catch (IOException ioe) {
+      logger.warn("Cannot read cache file, ignoring it: " + ioe);
+    }
+    final Set<String> classNames = listClasses(jarFile);
+    if (classNames == null) {
+      return null;
+    }
+    cache.reset(getStamp(jarFile, (sha1 != null) ? sha1 : sha1(jarFile)), classNames);
+    return new JarMetadataIndex(jarFile, cache);
+  }
+
+  private static String getStamp(File jarFile, String sha1) {
+    return String.format(Locale.ENGLISH, "%d;%d;%s", jarFile.length(), jarFile.lastModified(), sha1);
+  }
+
+  /** Returns the SHA-1 hash stored in the stamp of a loaded index, {@code null} if the index is incomplete. */
+  private static String getCachedSha1(MetadataCacheFile cache) {
+    if (cache.getClassNames() == null) {
+      return null;
+    }
+    final String stamp = cache.getStamp();
+    final int p = stamp.lastIndexOf(';');
+    return (p < 0) ? null : stamp.substring(p + 1);
+  }
+
+  private static Set<String> listClasses(File jarFile) throws IOException {
+    final Set<String> classNames = new HashSet<>();
+    try (final ZipFile zip = new ZipFile(jarFile)) {
+      for (final Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements();) {
+        final ZipEntry entry = e.nextElement();
+        final String name = entry.getName();
+        if (name.startsWith(MULTI_RELEASE_PREFIX)) {
+          return null;
+        }
+        if (!entry.isDirectory() && name.endsWith(".class")) {
+          classNames.add(Type.getObjectType(name.substring(0, name.length() - 6)).getClassName());
+        }
+      }
+    }
+    return classNames;
+  }
+
+  private static String sha1(File file) throws IOException {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException nsae) {
+      throw new AssertionError("SHA-1 must be supported by every JVM.");
+    }
+    final byte[] buffer = new byte[8192];
+    try (final InputStream in = new FileInputStream(file)) {
+      int len;
+      while ((len = in.read(buffer)) >= 0) {
+        digest.update(buffer, 0, len);
+      }
+    }
+    return MetadataCacheFile.toHex(digest.digest());
+  }
+
+  public File getJarFile() {
+    return jarFile;
+  }
+
+  /** Returns the names (binary, dotted) of all classes in the JAR file. */
+  public Set<String> getClassNames() {
+    return cache.getClassNames();
+  }
+
+  /** Returns {@code true}, if the JAR file contains the class (binary name, dotted). */
+  public boolean contains(String clazz) {
+    return cache.getClassNames().contains(clazz);
+  }
+
+  /** Returns the metadata of the class, if it was already indexed, otherwise {@code null}. */
+  public ClassMetadata get(String clazz) {
+    return cache.get(clazz);
+  }
+
+  /** Adds the metadata of a class of this JAR file to the index. */
+  public void put(ClassMetadata c) {
+    if (contains(c.getBinaryClassName())) {
+      cache.put(c);
+    }
+  }
+
+  /** Writes the index, if it was modified. */
+  public void save() throws IOException {
+    cache.save();
+  }
+
+}
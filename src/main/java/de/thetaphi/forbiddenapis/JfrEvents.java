@@ -0,0 +1,162 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.thetaphi.forbiddenapis;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Implementation of {@link FlightRecorderEvents} for runtimes with {@code jdk.jfr}, only loaded by reflection
+ * (the classes of {@code jdk.jfr} are not part of the portable runtime, so all classes suppress forbidden APIs).
+ * Events are only created while their type is enabled in a running recording, so nothing is allocated otherwise
+ * (even after a recording was stopped). */
+@SuppressForbidden
+final class JfrEvents extends FlightRecorderEvents {
+
+  private static final String CATEGORY = "Forbidden API Checker";
+
+  @Name("de.thetaphi.forbiddenapis.SignaturesParsing")
+  @Label("Signatures Parsing")
+  @Description("Parsing of a signatures source (without resolving the signatures)")
+  @Category(CATEGORY)
+  @SuppressForbidden
+  static final class SignaturesParsingEvent extends Event {
+    @Label("Source")
+    String source;
+
+    @Label("Signatures")
+    int signatures;
+  }
+
+  @Name("de.thetaphi.forbiddenapis.RelatedClassLoading")
+  @Label("Related Class Loading")
+  @Description("Lookup of a related class in the cache, or loading it on a cache miss")
+  @Category(CATEGORY)
+  @SuppressForbidden
+  static final class RelatedClassLoadingEvent extends Event {
+    @Label("Class Name")
+    String className;
+
+    @Label("Source")
+    @Description("Where the class was found: runtime, classpath, classes to check, or not found")
+    String source;
+
+    @Label("Cache Hit")
+    boolean cacheHit;
+  }
+
+  @Name("de.thetaphi.forbiddenapis.ClassScanning")
+  @Label("Class Scanning")
+  @Description("Scanning of a class for violations")
+  @Category(CATEGORY)
+  @SuppressForbidden
+  static final class ClassScanningEvent extends Event {
+    @Label("Class Name")
+    String className;
+
+    @Label("Instructions")
+    int instructions;
+
+    @Label("Violations")
+    int violations;
+  }
+
+  /** Checks if an event type is enabled without creating an event. The {@link EventType} is only looked up after
+   * the flight recorder was initialized, afterwards the check is a volatile read. */
+  @SuppressForbidden
+  private static final class Gate {
+    private final Class<? extends Event> eventClass;
+    private volatile EventType type = null;
+
+    Gate(Class<? extends Event> eventClass) {
+      this.eventClass = eventClass;
+    }
+
+    boolean isEnabled() {
+      EventType t = type;
+      if (t == null) {
+        if (!FlightRecorder.isInitialized()) {
+          return false;
+        }
+        type = t = EventType.getEventType(eventClass);
+      }
+      return t.isEnabled();
+    }
+  }
+
+  private static final Gate SIGNATURES_PARSING = new Gate(SignaturesParsingEvent.class),
+      RELATED_CLASS_LOADING = new Gate(RelatedClassLoadingEvent.class),
+      CLASS_SCANNING = new Gate(ClassScanningEvent.class);
+
+  private static <T extends Event> T begin(T event) {
+    event.begin();
+    return event;
+  }
+
+  @Override
+  Object beginSignaturesParsing() {
+    return SIGNATURES_PARSING.isEnabled() ? begin(new SignaturesParsingEvent()) : null;
+  }
+
+  @Override
+  void commitSignaturesParsing(Object event, String source, int signatures) {
+    if (event != null) {
+      final SignaturesParsingEvent e = (SignaturesParsingEvent) event;
+      e.source = source;
+      e.signatures = signatures;
+      e.commit();
+    }
+  }
+
+  @Override
+  Object beginRelatedClassLoading() {
+    return RELATED_CLASS_LOADING.isEnabled() ? begin(new RelatedClassLoadingEvent()) : null;
+  }
+
+  @Override
+  void commitRelatedClassLoading(Object event, String className, String source, boolean cacheHit) {
+    if (event != null) {
+      final RelatedClassLoadingEvent e = (RelatedClassLoadingEvent) event;
+      e.className = className;
+      e.source = source;
+      e.cacheHit = cacheHit;
+      e.commit();
+    }
+  }
+
+  @Override
+  Object beginClassScanning() {
+    return CLASS_SCANNING.isEnabled() ? begin(new ClassScanningEvent()) : null;
+  }
+
+  @Override
+  void commitClassScanning(Object event, String className, int instructions, int violations) {
+    if (event != null) {
+      final ClassScanningEvent e = (ClassScanningEvent) event;
+      e.className = className;
+      e.instructions = instructions;
+      e.violations = violations;
+      e.commit();
+    }
+  }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/** Reads the classes of the Java 9+ runtime directly from {@code jrt:/} URLs. On creation, it builds a map
+ * of all packages of the modules in the boot layer to their module names, so looking up a class does not
+ * need to ask the class loader and it is known if the class is part of the runtime without parsing URLs.
+ * Classes of packages that are not part of any module are not handled by this index. */
+final class JrtClassIndex {
+
+  /** package name (dotted) to module name */
+  private final Map<String,String> packageToModule;
+
+  private JrtClassIndex(Map<String,String> packageToModule) {
+    this.packageToModule = packageToModule;
+  }
+
+  /** Builds the index from the modules of the boot layer (Java 9+). Returns {@code null}, if not available. */
+  @SuppressWarnings("unchecked")
+  static JrtClassIndex create() {
+    final Map<String,String> packageToModule = new HashMap<>();
+    try {
+      // we use reflection, as we compile against Java 7:
+      final Class<?> moduleLayerClass = Class.forName("java.lang.ModuleLayer"),
+          moduleClass = Class.forName("java.lang.Module");
+      final Method method_ModuleLayer_boot = moduleLayerClass.getMethod("boot"),
+          method_ModuleLayer_modules = moduleLayerClass.getMethod("modules"),
+          method_Module_getName = moduleClass.getMethod("getName"),
+          method_Module_getPackages = moduleClass.getMethod("getPackages");
+      final Object bootLayer = method_ModuleLayer_boot.invoke(null);
+      for (final Object module : (Set<Object>) method_ModuleLayer_modules.invoke(bootLayer)) {
+        final String moduleName = (String) method_Module_getName.invoke(module);
+        for (final String pkg : (Set<String>) method_Module_getPackages.invoke(module)) {
+          packageToModule.put(pkg, moduleName);
+        }
+      }
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return null;
+    }
+    return packageToModule.isEmpty() ? null : new JrtClassIndex(Collections.unmodifiableMap(packageToModule));
+  }
+
+  /** Returns the name of the module containing the package of the class (binary name), or {@code null}. */
+  public String getModule(String clazz) {
+    final int p = clazz.lastIndexOf('.');
+    return (p < 0) ? null : packageToModule.get(clazz.substring(0, p));
+  }
+
+  /** Returns the {@code jrt:/} URL of the class file (binary name) in the given module. */
+  public static URL getURL(String module, String clazz) throws IOException {
+    return new URL("jrt:/" + module + "/" + AsmUtils.getClassResourceName(clazz));
+  }
+
+  /** Reads the class file (binary name) in the given module into an exactly sized array. Returns {@code null}, if the
+   * module does not contain it (e.g., modules of the boot layer that are not part of the runtime image). */
+  public static byte[] readBytes(String module, String clazz) throws IOException {
+    final URLConnection conn;
+    final InputStream stream;
+    try {
+      conn = getURL(module, clazz).openConnection();
+      stream = conn.getInputStream();
+    } catch (IOException ioe) {
+      // the jrt: protocol throws different types of IOException for missing files
+      return null;
+    }
+    try (final InputStream in = stream) {
+      return AsmUtils.readStream(in, conn.getContentLengthLong());
+    }
+  }
+
+  /** Returns the number of packages in the index. */
+  public int size() {
+    return packageToModule.size();
+  }
+
+}
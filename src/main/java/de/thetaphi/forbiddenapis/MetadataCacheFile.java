@@ -0,0 +1,338 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.objectweb.asm.commons.Method;
+
+/** Persistent cache of {@link ClassMetadata} (key is the binary name, dotted), stored in a compact binary file.
+ * The file header contains a key (e.g., describing the Java runtime); if it does not match, the cache is
+ * empty and the file is replaced on the next {@link #save()}. The header also contains a stamp, which can be
+ * used by the caller to validate the contents (e.g., size and modification time of a JAR file), and
+ * an optional list of all class names available in the source (to answer negative lookups).
+ * Strings are written only once and later referred by index. */
+final class MetadataCacheFile {
+
+  private static final int MAGIC = 0x46415043; // "FAPC"
+  private static final int VERSION = 2;
+
+  private static final int FLAG_INTERFACE = 0x01, FLAG_RUNTIME = 0x02;
+
+  private final File file;
+  private final String key;
+  private final ConcurrentMap<String,ClassMetadata> classes = new ConcurrentHashMap<>();
+  private volatile boolean modified = false;
+  private String stamp = "";
+  private Set<String> classNames = null;
+
+  MetadataCacheFile(File file, String key) {
+    this.file = file;
+    this.key = key;
+  }
+
+  /** Returns a file name for the given key, which is safe to use in a cache directory. */
+  static String getFileName(String prefix, String key) {
+    try {
+      final byte[] hash = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+      return prefix + '-' + toHex(hash) + ".bin";
+    } catch (NoSuchAlgorithmException nsae) {
+      throw new AssertionError("SHA-1 must be supported by every JVM.");
+    }
+  }
+
+  /** Converts a hash to a hex string. */
+  static String toHex(byte[] hash) {
+    final StringBuilder sb = new StringBuilder(hash.length * 2);
+    for (final byte b : hash) {
+      sb.append(Character.forDigit((b >> 4) & 0x0F, 16)).append(Character.forDigit(b & 0x0F, 16));
+    }
+    return sb.toString();
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /** Reads the cache file, if it exists and its key matches. Returns if the cache was loaded. */
+  public boolean load() throws IOException {
+    // every counted item needs at least one byte, so no count can be larger than the file:
+    final long maxCount = file.length();
+    try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION || !key.equals(in.readUTF())) {
+        return false;
+      }
+      final String stamp = in.readUTF();
+      final List<String> strings = new ArrayList<>();
+      final Set<String> classNames;
+      final int classNamesCount = readCount(in, maxCount + 1);
+      if (classNamesCount == 0) {
+        classNames = null;
+      } else {
+        final Set<String> names = new HashSet<>();
+        for (int i = 1; i < classNamesCount; i++) {
+          names.add(readNonNullString(in, strings));
+        }
+        classNames = Collections.unmodifiableSet(names);
+      }
+      final Map<String,ClassMetadata> loaded = new HashMap<>();
+      for (int i = 0, count = readCount(in, maxCount); i < count; i++) {
+        final String className = readNonNullString(in, strings);
+        final String superName = readString(in, strings);
+        final int flags = in.readByte();
+        final String[] interfaces = new String[readCount(in, maxCount)];
+        for (int j = 0; j < interfaces.length; j++) {
+          interfaces[j] = readNonNullString(in, strings);
+        }
+        final List<Method> methods = new ArrayList<>();
+        for (int j = 0, size = readCount(in, maxCount); j < size; j++) {
+          methods.add(new Method(readNonNullString(in, strings), readNonNullString(in, strings)));
+        }
+        final List<String> fields = new ArrayList<>();
+        for (int j = 0, size = readCount(in, maxCount); j < size; j++) {
+          fields.add(readNonNullString(in, strings));
+        }
+        final List<String> signaturePolymorphicMethods = new ArrayList<>();
+        for (int j = 0, size = readCount(in, maxCount); j < size; j++) {
+          signaturePolymorphicMethods.add(readNonNullString(in, strings));
+        }
+        final ClassMetadata c = new ClassMetadata(className, superName, interfaces,
+            (flags & FLAG_INTERFACE) != 0, (flags & FLAG_RUNTIME) != 0, methods, fields, signaturePolymorphicMethods);
+        loaded.put(c.getBinaryClassName(), c);
+      }
+      this.stamp = stamp;
+      this.classNames = classNames;
+      classes.putAll(loaded);
+      return true;
+    } catch (FileNotFoundException fnfe) {
+      return false;
+    } catch (EOFException eofe) {
+      // truncated file (e.g., written by a killed process), ignore it:
+      return false;
+    } catch (RuntimeException re) {
+      // callers handle a corrupt file like a missing one, so never let garbage escape as unchecked exception:
+      throw new IOException("Corrupt cache file: " + re, re);
+    }
+  }
+
+  /** Writes the cache file, if it was modified. To not corrupt the file for concurrent readers, a temporary file is written first. */
+  public void save() throws IOException {
+    if (!modified) {
+      return;
+    }
+    final File tmp = createTempFile(file);
+    try {
+      try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(key);
+        out.writeUTF(stamp);
+        final Map<String,Integer> strings = new HashMap<>();
+        if (classNames == null) {
+          writeVInt(out, 0);
+        } else {
+          writeVInt(out, classNames.size() + 1);
+          for (final String s : classNames) {
+            writeString(out, strings, s);
+          }
+        }
+        final List<ClassMetadata> values = new ArrayList<>(classes.values());
+        writeVInt(out, values.size());
+        for (final ClassMetadata c : values) {
+          writeString(out, strings, c.className);
+          writeString(out, strings, c.superName);
+          out.writeByte((c.isInterface ? FLAG_INTERFACE : 0) | (c.isRuntimeClass ? FLAG_RUNTIME : 0));
+          writeVInt(out, c.interfaces.length);
+          for (final String s : c.interfaces) {
+            writeString(out, strings, s);
+          }
+          writeVInt(out, c.methods.size());
+          for (final Method m : c.methods) {
+            writeString(out, strings, m.getName());
+            writeString(out, strings, m.getDescriptor());
+          }
+          writeVInt(out, c.fields.size());
+          for (final String s : c.fields) {
+            writeString(out, strings, s);
+          }
+          writeVInt(out, c.signaturePolymorphicMethods.size());
+          for (final String s : c.signaturePolymorphicMethods) {
+            writeString(out, strings, s);
+          }
+        }
+      }
+      replaceFile(tmp, file);
+      modified = false;
+    } finally {
+      Files.deleteIfExists(tmp.toPath());
+    }
+  }
+
+  /** Returns the stamp, which was read from the file or set by {@link #reset(String,Set)}. */
+  public String getStamp() {
+    return stamp;
+  }
+
+  /** Returns the names (binary, dotted) of all classes in the source, {@code null} if unknown. */
+  public Set<String> getClassNames() {
+    return classNames;
+  }
+
+  /** Removes all entries and sets a new stamp and the set of class names (may be {@code null}). */
+  public void reset(String stamp, Set<String> classNames) {
+    classes.clear();
+    this.stamp = stamp;
+    this.classNames = (classNames == null) ? null : Collections.unmodifiableSet(classNames);
+    modified = true;
+  }
+
+  /** Sets a new stamp, but keeps all entries (e.g., if the source was touched, but its contents did not change). */
+  public void updateStamp(String stamp) {
+    this.stamp = stamp;
+    modified = true;
+  }
+
+  /** Returns the cached class or {@code null} if not found. */
+  public ClassMetadata get(String clazz) {
+    return classes.get(clazz);
+  }
+
+  /** Adds the class to the cache, the cache file is written on next {@link #save()}. */
+  public void put(ClassMetadata c) {
+    if (classes.putIfAbsent(c.getBinaryClassName(), c) == null) {
+      modified = true;
+    }
+  }
+
+  public int size() {
+    return classes.size();
+  }
+
+  /** Creates a temporary file in the same directory like the given file (the directory is created, if needed). */
+  static File createTempFile(File file) throws IOException {
+    final File dir = file.getAbsoluteFile().getParentFile();
+    if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+      throw new IOException("Cannot create cache directory: " + dir);
+    }
+    return File.createTempFile(file.getName(), ".tmp", dir);
+  }
+
+  /** Replaces the file by the given temporary file (atomically, if supported). */
+  static void replaceFile(File tmp, File file) throws IOException {
+    try {
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException amnse) {
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  static void writeVInt(DataOutputStream out, int i) throws IOException {
+    while ((i & ~0x7F) != 0) {
+      out.writeByte((i & 0x7F) | 0x80);
+      i >>>= 7;
+    }
+    out.writeByte(i);
+  }
+
+  static int readVInt(DataInputStream in) throws IOException {
+    int i = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      final byte b = in.readByte();
+      i |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return i;
+      }
+    }
+    throw new IOException("Corrupt cache file (invalid variable length integer).");
+  }
+
+  /** Writes a string (may be {@code null}): 0 means null, 1 means a new string follows, otherwise index of an already written one plus 2. */
+  static void writeString(DataOutputStream out, Map<String,Integer> strings, String s) throws IOException {
+    if (s == null) {
+      writeVInt(out, 0);
+      return;
+    }
+    final Integer index = strings.get(s);
+    if (index == null) {
+      strings.put(s, strings.size());
+      writeVInt(out, 1);
+      out.writeUTF(s);
+    } else {
+      writeVInt(out, index.intValue() + 2);
+    }
+  }
+
+  /** Reads a variable length integer used as count of following items and checks that it is between 0 and {@code maxCount}. */
+  static int readCount(DataInputStream in, long maxCount) throws IOException {
+    final int count = readVInt(in);
+    if (count < 0 || count > maxCount) {
+      throw new IOException("Corrupt cache file (invalid count).");
+    }
+    return count;
+  }
+
+  /** Like {@link #readString(DataInputStream,List)}, but a {@code null} string is treated as corrupt file. */
+  static String readNonNullString(DataInputStream in, List<String> strings) throws IOException {
+    final String s = readString(in, strings);
+    if (s == null) {
+      throw new IOException("Corrupt cache file (unexpected null string).");
+    }
+    return s;
+  }
+
+  static String readString(DataInputStream in, List<String> strings) throws IOException {
+    final int v = readVInt(in);
+    switch (v) {
+      case 0:
+        return null;
+      case 1:
+        final String s = in.readUTF();
+        strings.add(s);
+        return s;
+      default:
+        if (v < 0 || v - 2 >= strings.size()) {
+          throw new IOException("Corrupt cache file (invalid string reference).");
+        }
+        return strings.get(v - 2);
+    }
+  }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.objectweb.asm.commons.Method;
+
+/** Compact, immutable set of the methods declared by a class, as used in {@link ClassMetadata}.
+ * No {@link Method} instances are retained: the interned names and descriptors are kept in two parallel
+ * arrays, which are sorted by name and descriptor. Exact lookups and lookups of all methods with a given
+ * name are binary searches. */
+final class MethodSet extends AbstractSet<Method> {
+
+  static final MethodSet EMPTY = new MethodSet(new String[0], new String[0]);
+
+  private static final Comparator<Method> ORDER = new Comparator<Method>() {
+    @Override
+    public int compare(Method m1, Method m2) {
+      return MethodSet.compare(m1.getName(), m1.getDescriptor(), m2.getName(), m2.getDescriptor());
+    }
+  };
+
+  private final String[] names, descriptors;
+
+  private MethodSet(String[] names, String[] descriptors) {
+    this.names = names;
+    this.descriptors = descriptors;
+  }
+
+  /** Creates a set of the given methods (duplicates are removed). */
+  static MethodSet of(Collection<Method> methods) {
+    if (methods.isEmpty()) {
+      return EMPTY;
+    }
+    final Method[] sorted = methods.toArray(new Method[methods.size()]);
+    Arrays.sort(sorted, ORDER);
+    String[] names = new String[sorted.length], descriptors = new String[sorted.length];
+    int size = 0;
+    for (final Method m : sorted) {
+      if (size > 0 && names[size - 1].equals(m.getName()) && descriptors[size - 1].equals(m.getDescriptor())) {
+        continue;
+      }
+      names[size] = m.getName().intern();
+      descriptors[size] = m.getDescriptor().intern();
+      size++;
+    }
+    if (size < sorted.length) {
+      names = Arrays.copyOf(names, size);
+      descriptors = Arrays.copyOf(descriptors, size);
+    }
+    return new MethodSet(names, descriptors);
+  }
+
+  static int compare(String name1, String desc1, String name2, String desc2) {
+    final int cmp = name1.compareTo(name2);
+    return (cmp != 0) ? cmp : desc1.compareTo(desc2);
+  }
+
+  /** Returns the index of the first method, which is not ordered before the given name and descriptor. */
+  private int lowerBound(String name, String desc) {
+    int low = 0, high = names.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (compare(names[mid], descriptors[mid], name, desc) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /** Returns {@code true}, if the set contains the method with the given name and descriptor. */
+  public boolean contains(String name, String desc) {
+    final int i = lowerBound(name, desc);
+    return i < names.length && names[i].equals(name) && descriptors[i].equals(desc);
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    if (!(o instanceof Method)) {
+      return false;
+    }
+    final Method m = (Method) o;
+    return contains(m.getName(), m.getDescriptor());
+  }
+
+  /** Returns all methods with the given name (e.g., all overloads and covariant overrides). */
+  public List<Method> getMethodsByName(String name) {
+    // the empty descriptor is ordered before all others:
+    int i = lowerBound(name, "");
+    if (i == names.length || !names[i].equals(name)) {
+      return Collections.emptyList();
+    }
+    final List<Method> result = new ArrayList<>();
+    for (; i < names.length && names[i].equals(name); i++) {
+      result.add(new Method(names[i], descriptors[i]));
+    }
+    return result;
+  }
+
+  @Override
+  public int size() {
+    return names.length;
+  }
+
+  @Override
+  public Iterator<Method> iterator() {
+    return new Iterator<Method>() {
+      private int i = 0;
+
+      @Override
+      public boolean hasNext() {
+        return i < names.length;
+      }
+
+      @Override
+      public Method next() {
+        if (i >= names.length) {
+          throw new NoSuchElementException();
+        }
+        final Method m = new Method(names[i], descriptors[i]);
+        i++;
+        return m;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/** Compact, immutable set of member names (fields, signature polymorphic methods), as used in {@link ClassMetadata}.
+ * The names are interned and kept in a sorted array, lookups are binary searches. */
+final class NameSet extends AbstractSet<String> {
+
+  static final NameSet EMPTY = new NameSet(new String[0]);
+
+  private final String[] names;
+
+  private NameSet(String[] names) {
+    this.names = names;
+  }
+
+  /** Creates a set of the given names (duplicates are removed). */
+  static NameSet of(Collection<String> names) {
+    if (names.isEmpty()) {
+      return EMPTY;
+    }
+    final String[] sorted = names.toArray(new String[names.size()]);
+    Arrays.sort(sorted);
+    int size = 0;
+    for (final String s : sorted) {
+      if (size == 0 || !sorted[size - 1].equals(s)) {
+        sorted[size++] = s.intern();
+      }
+    }
+    return new NameSet(size < sorted.length ? Arrays.copyOf(sorted, size) : sorted);
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return (o instanceof String) && Arrays.binarySearch(names, o) >= 0;
+  }
+
+  @Override
+  public int size() {
+    return names.length;
+  }
+
+  @Override
+  public Iterator<String> iterator() {
+    return new Iterator<String>() {
+      private int i = 0;
+
+      @Override
+      public boolean hasNext() {
+        return i < names.length;
+      }
+
+      @Override
+      public String next() {
+        if (i >= names.length) {
+          throw new NoSuchElementException();
+        }
+        return names[i++];
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+}
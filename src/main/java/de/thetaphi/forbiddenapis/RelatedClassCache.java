@@ -0,0 +1,118 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/** Thread safe cache of {@link ClassMetadata}, key is the binary name (dotted).
+ * Every class is loaded only once: if multiple threads request the same class
+ * at the same time, all of them wait for the thread that loads it.
+ * Classes that were not found and failed loads are recorded as negative entries. */
+final class RelatedClassCache {
+
+  /** Loads the metadata of a class on a cache miss. Returns {@code null} if the class does not exist. */
+  static interface Loader {
+    ClassMetadata load(String clazz) throws IOException;
+  }
+
+  private final ConcurrentMap<String,FutureTask<ClassMetadata>> cache = new ConcurrentHashMap<>();
+  private final ScanStatistics statistics;
+
+  RelatedClassCache(ScanStatistics statistics) {
+    this.statistics = statistics;
+  }
+
+  /** Returns the class from cache or loads it with the given loader. Concurrent requests for the same class
+   * wait for the first one. Throws {@link ClassNotFoundException} if the loader returned {@code null} (now or earlier). */
+  public ClassMetadata get(final String clazz, final Loader loader) throws ClassNotFoundException,IOException {
+    FutureTask<ClassMetadata> task = cache.get(clazz);
+    boolean loaded = false;
+    if (task == null) {
+      final FutureTask<ClassMetadata> newTask = new FutureTask<>(new Callable<ClassMetadata>() {
+        @Override
+        public ClassMetadata call() throws IOException {
+          final long start = System.nanoTime();
+          try {
+            return loader.load(clazz);
+          } finally {
+            statistics.addTimeSince(ScanStatistics.Phase.RELATED_CLASS_LOADING, start);
+          }
+        }
+      });
+      task = cache.putIfAbsent(clazz, newTask);
+      if (task == null) {
+        task = newTask;
+        newTask.run();
+        loaded = true;
+      }
+    }
+    final ClassMetadata c = getResult(task);
+    if (c == null) {
+      statistics.increment(ScanStatistics.Counter.RELATED_CLASSES_NOT_FOUND);
+      throw new ClassNotFoundException(clazz);
+    }
+    statistics.increment(loaded ? ScanStatistics.Counter.RELATED_CLASSES_LOADED : ScanStatistics.Counter.RELATED_CLASS_CACHE_HITS);
+    return c;
+  }
+
+  /** Returns {@code true}, if the class was already requested (it may still be loading, or not exist). */
+  public boolean contains(String clazz) {
+    return cache.containsKey(clazz);
+  }
+
+  /** Returns the number of cached entries (including negative ones). */
+  public int size() {
+    return cache.size();
+  }
+
+  /** Waits for the result of a load-once task (uninterruptibly), unwrapping the exception thrown by it. */
+  static <T> T getResult(FutureTask<T> task) throws IOException {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return task.get();
+        } catch (InterruptedException ie) {
+          // we have to wait for the result, the interrupt is restored later
+          interrupted = true;
+        } catch (ExecutionException ee) {
+          final Throwable cause = ee.getCause();
+          if (cause instanceof IOException) {
+            throw (IOException) cause;
+          }
+          if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          }
+          if (cause instanceof Error) {
+            throw (Error) cause;
+          }
+          throw new AssertionError(cause);
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+}
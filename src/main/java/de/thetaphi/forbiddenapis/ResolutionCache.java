@@ -0,0 +1,101 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import de.thetaphi.forbiddenapis.Signatures.ViolationResult;
+
+/** Memoizes the results of resolving a member access (method call, field access) or the use of a type
+ * (internal name or descriptor) in the class hierarchy. The result only depends on the owner, the member
+ * and the kind of access, so it is shared by all {@link ClassScanner} instances of a {@link Checker}.
+ * Types and descriptors are stored with the internal name or descriptor as owner and empty member.
+ * This class is thread safe. */
+final class ResolutionCache {
+
+  /** Kind of access */
+  static final int METHOD_VIRTUAL = 0, METHOD_NONVIRTUAL = 1, FIELD = 2, TYPE = 3, DESCRIPTOR = 4;
+
+  /** Marker for cached results without violation */
+  private static final ViolationResult CLEAN = new ViolationResult("CLEAN", null);
+  
+  /** Returned by {@link #get(Key)}, if there is no cached result */
+  static final ViolationResult NOT_CACHED = new ViolationResult("NOT_CACHED", null);
+
+  /** Key of the cache. It is mutable, so a scanner can reuse one instance for all lookups without allocating;
+   * the instances stored in the cache are copies, which are never modified. */
+  static final class Key {
+    private String owner, name, desc;
+    private int kind, hash;
+
+    /** Sets the key for a lookup. For fields, the descriptor is empty. */
+    Key set(String owner, String name, String desc, int kind) {
+      this.owner = owner;
+      this.name = name;
+      this.desc = desc;
+      this.kind = kind;
+      this.hash = ((owner.hashCode() * 31 + name.hashCode()) * 31 + desc.hashCode()) * 31 + kind;
+      return this;
+    }
+    
+    Key copy() {
+      final Key k = new Key();
+      k.owner = owner;
+      k.name = name;
+      k.desc = desc;
+      k.kind = kind;
+      k.hash = hash;
+      return k;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) return true;
+      if (!(obj instanceof Key)) return false;
+      final Key other = (Key) obj;
+      return hash == other.hash && kind == other.kind && owner.equals(other.owner) &&
+          name.equals(other.name) && desc.equals(other.desc);
+    }
+  }
+
+  private final ConcurrentMap<Key,ViolationResult> cache = new ConcurrentHashMap<>();
+
+  /** Looks up the result of the given key, this does not allocate. Returns {@link #NOT_CACHED}, if there is no result,
+   * and {@code null}, if there is no violation. */
+  public ViolationResult get(Key key) {
+    final ViolationResult result = cache.get(key);
+    return (result == null) ? NOT_CACHED : ((result == CLEAN) ? null : result);
+  }
+
+  /** Stores the result for a key, which must not be modified afterwards (pass a {@link Key#copy()} of a reused key).
+   * Returns the result. */
+  public ViolationResult put(Key key, ViolationResult result) {
+    cache.put(key, (result == null) ? CLEAN : result);
+    return result;
+  }
+
+  public int size() {
+    return cache.size();
+  }
+
+}
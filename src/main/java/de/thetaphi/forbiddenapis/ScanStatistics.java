@@ -0,0 +1,159 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** Statistics of a {@link Checker}: times of the phases and counters of the work done while checking.
+ * All methods are thread safe. Times of nested activities (like loading related classes) are also included
+ * in the time of the phase they happen in.
+ * @since 3.11
+ */
+public final class ScanStatistics {
+  
+  /** Timed phases and activities. */
+  public static enum Phase {
+    /** Parsing signatures and resolving them against the classpath (unless resolved lazily while scanning). */
+    SIGNATURES("signatures", "parsing signatures"),
+    /** Reading the classes to check. */
+    CLASSES_TO_CHECK("classesToCheck", "loading classes to check"),
+    /** Scanning the classes for violations and reporting them. */
+    SCANNING("scanning", "scanning classes"),
+    /** Loading related classes from classpath or runtime (nested in other phases). */
+    RELATED_CLASS_LOADING("relatedClassLoading", "loading related classes"),
+    /** Detecting, if a class loaded by URL belongs to the Java runtime (nested in other phases). */
+    RUNTIME_CLASSIFICATION("runtimeClassification", "detecting runtime classes");
+    
+    final String key, description;
+    
+    private Phase(String key, String description) {
+      this.key = key;
+      this.description = description;
+    }
+  }
+  
+  /** Counted events. */
+  public static enum Counter {
+    /** Number of scanned classes (including ones reused from a previous incremental run). */
+    CLASSES_SCANNED("classesScanned", "classes scanned"),
+    /** Lookups of related classes that were answered from the cache. */
+    RELATED_CLASS_CACHE_HITS("relatedClassCacheHits", "related class cache hits"),
+    /** Related classes that were loaded on a cache miss. */
+    RELATED_CLASSES_LOADED("relatedClassesLoaded", "related classes loaded"),
+    /** Lookups of related classes that do not exist (negative results, also if cached). */
+    RELATED_CLASSES_NOT_FOUND("relatedClassesNotFound", "related class lookups not found"),
+    /** Classes visited while walking the hierarchies of referenced classes. */
+    ANCESTOR_WALK_STEPS("ancestorWalkSteps", "ancestor walk steps"),
+    /** Lookups of methods, fields and types in the signatures. */
+    SIGNATURE_LOOKUPS("signatureLookups", "signature lookups"),
+    /** Bytes of class files read (classes to check and related classes). */
+    BYTES_READ("bytesRead", "bytes of class files read");
+    
+    final String key, description;
+    
+    private Counter(String key, String description) {
+      this.key = key;
+      this.description = description;
+    }
+  }
+  
+  private static final Phase[] PHASES = Phase.values();
+  private static final Counter[] COUNTERS = Counter.values();
+  
+  private final AtomicLongArray nanos = new AtomicLongArray(PHASES.length);
+  private final AtomicLongArray counts = new AtomicLongArray(COUNTERS.length);
+  
+  /** Adds the given number of nanoseconds to the time of a phase. */
+  void addTime(Phase phase, long nanos) {
+    this.nanos.addAndGet(phase.ordinal(), nanos);
+  }
+  
+  /** Adds the time since the given start (from {@link System#nanoTime()}) to the time of a phase. */
+  void addTimeSince(Phase phase, long startNanos) {
+    addTime(phase, System.nanoTime() - startNanos);
+  }
+  
+  void increment(Counter counter) {
+    counts.incrementAndGet(counter.ordinal());
+  }
+  
+  void add(Counter counter, long delta) {
+    if (delta != 0L) {
+      counts.addAndGet(counter.ordinal(), delta);
+    }
+  }
+  
+  /** Returns the time spent in the given phase, in nanoseconds. */
+  public long getNanos(Phase phase) {
+    return nanos.get(phase.ordinal());
+  }
+  
+  /** Returns the value of the given counter. */
+  public long getCount(Counter counter) {
+    return counts.get(counter.ordinal());
+  }
+  
+  /** Logs the statistics with info level. */
+  public void log(Logger logger) {
+    logger.info("Statistics:");
+    for (final Phase phase : PHASES) {
+      logger.info(String.format(Locale.ENGLISH, "  %s: %.3fs", phase.description, getNanos(phase) / 1e9));
+    }
+    for (final Counter counter : COUNTERS) {
+      logger.info(String.format(Locale.ENGLISH, "  %s: %d", counter.description, getCount(counter)));
+    }
+  }
+  
+  /** Returns the statistics as JSON object. Times are given in milliseconds. */
+  public String toJson() {
+    final StringBuilder sb = new StringBuilder("{\n  \"times\": {");
+    for (final Phase phase : PHASES) {
+      sb.append((phase.ordinal() == 0) ? "\n" : ",\n");
+      sb.append(String.format(Locale.ENGLISH, "    \"%s\": %.3f", phase.key, getNanos(phase) / 1e6));
+    }
+    sb.append("\n  },\n  \"counters\": {");
+    for (final Counter counter : COUNTERS) {
+      sb.append((counter.ordinal() == 0) ? "\n" : ",\n");
+      sb.append(String.format(Locale.ENGLISH, "    \"%s\": %d", counter.key, getCount(counter)));
+    }
+    return sb.append("\n  }\n}\n").toString();
+  }
+  
+  /** Writes the statistics as JSON to the given file (UTF-8 encoded). */
+  public void writeJson(File file) throws IOException {
+    final File parent = file.getParentFile();
+    if (parent != null) {
+      parent.mkdirs();
+    }
+    try (final Writer w = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+      w.write(toJson());
+    }
+  }
+  
+  @Override
+  public String toString() {
+    return toJson();
+  }
+  
+}
@@ -0,0 +1,136 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import de.thetaphi.forbiddenapis.Signatures.ParsedSignatures;
+
+/** In-memory cache of class metadata, which can be shared by several {@link Checker} instances in the same JVM
+ * (see {@link Checker#setSharedCache(SharedCache)}), e.g., by a long-running daemon or a build tool checking
+ * many modules. It contains the metadata of runtime classes (which never change while the JVM is running), of
+ * classes in JAR files on the classpath, and the bundled signatures (unmodifiable) once read. The JAR files are keyed by their canonical path and validated by size and
+ * modification time, when a checker uses them first. The number of JAR files is limited: the least recently used
+ * ones are dropped, so a long-running process does not keep the classes of every JAR file it ever saw. Classes in directories are never shared, as they may change at any time.
+ * This class is thread safe.
+ * @since 3.11 */
+public final class SharedCache {
+
+  /** Default maximum number of JAR files whose classes are kept. */
+  public static final int DEFAULT_MAX_JAR_FILES = 500;
+
+  private final int maxJarFiles;
+  private final ConcurrentMap<String,ClassMetadata> runtimeClasses = new ConcurrentHashMap<>();
+  /** JAR files in access order, so the eldest one is the least recently used and dropped above the limit */
+  @SuppressWarnings("serial")
+  private final Map<File,JarClasses> jars = new LinkedHashMap<File,JarClasses>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<File,JarClasses> eldest) {
+      return size() > maxJarFiles;
+    }
+  };
+  private final ConcurrentMap<String,ParsedSignatures> bundledSignatures = new ConcurrentHashMap<>();
+
+  private static final class JarClasses {
+    final long length, lastModified;
+    final ConcurrentMap<String,ClassMetadata> classes = new ConcurrentHashMap<>();
+
+    JarClasses(long length, long lastModified) {
+      this.length = length;
+      this.lastModified = lastModified;
+    }
+  }
+
+  /** Creates a cache keeping the classes of at most {@link #DEFAULT_MAX_JAR_FILES} JAR files. */
+  public SharedCache() {
+    this(DEFAULT_MAX_JAR_FILES);
+  }
+
+  /** Creates a cache keeping the classes of at most the given number of JAR files. */
+  public SharedCache(int maxJarFiles) {
+    if (maxJarFiles < 0) {
+      throw new IllegalArgumentException("maxJarFiles must not be negative: " + maxJarFiles);
+    }
+    this.maxJarFiles = maxJarFiles;
+  }
+
+  /** Returns the metadata of a runtime class (binary name, dotted) or {@code null} if not cached. */
+  ClassMetadata getRuntimeClass(String clazz) {
+    return runtimeClasses.get(clazz);
+  }
+
+  /** Adds the metadata of a runtime class. */
+  void putRuntimeClass(ClassMetadata c) {
+    assert c.isRuntimeClass;
+    runtimeClasses.putIfAbsent(c.getBinaryClassName(), c);
+  }
+
+  /** Returns the cached classes of the given JAR file (key is the binary name, dotted). If the JAR file was
+   * modified (or deleted) since its classes were cached, they are dropped. When a JAR file is added, the least
+   * recently used one is removed, if the limit is exceeded. */
+  ConcurrentMap<String,ClassMetadata> getJarClasses(File jarFile) throws IOException {
+    jarFile = jarFile.getCanonicalFile();
+    final long length = jarFile.length(), lastModified = jarFile.lastModified();
+    synchronized (jars) {
+      JarClasses jar = jars.get(jarFile);
+      if (jar == null || jar.length != length || jar.lastModified != lastModified) {
+        jar = new JarClasses(length, lastModified);
+        jars.put(jarFile, jar);
+      }
+      return jar.classes;
+    }
+  }
+
+  /** Returns the bundled signatures (resolved name) or {@code null} if not cached. */
+  ParsedSignatures getBundledSignatures(String name) {
+    return bundledSignatures.get(name);
+  }
+
+  /** Adds the bundled signatures (which must be unmodifiable), returns the instance that is in the cache afterwards. */
+  ParsedSignatures putBundledSignatures(String name, ParsedSignatures parsed) {
+    final ParsedSignatures existing = bundledSignatures.putIfAbsent(name, parsed);
+    return (existing == null) ? parsed : existing;
+  }
+
+  /** Removes all entries. */
+  public void clear() {
+    runtimeClasses.clear();
+    bundledSignatures.clear();
+    synchronized (jars) {
+      jars.clear();
+    }
+  }
+
+  @Override
+  public String toString() {
+    int jarClasses = 0, jarCount;
+    synchronized (jars) {
+      jarCount = jars.size();
+      for (final JarClasses jar : jars.values()) {
+        jarClasses += jar.classes.size();
+      }
+    }
+    return "SharedCache[runtimeClasses=" + runtimeClasses.size() + ", jarFiles=" + jarCount + ", jarClasses=" + jarClasses +
+        ", bundledSignatures=" + bundledSignatures.size() + "]";
+  }
+
+}
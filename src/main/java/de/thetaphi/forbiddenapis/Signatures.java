@@ -24,7 +24,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.io.StringReader;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -33,12 +32,24 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.NavigableSet;
+import java.util.Queue;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -76,7 +87,7 @@ public final class Signatures implements Constants {
     }
   }
 
-  private static enum UnresolvableReporting {
+  static enum UnresolvableReporting {
     FAIL(true) {
       @Override
       public void parseFailed(Logger logger, String message, String signature) throws ParseException {
@@ -106,7 +117,7 @@ public final class Signatures implements Constants {
   
   private final RelatedClassLookup lookup;
   private final Logger logger;
-  private final boolean failOnUnresolvableSignatures, ignoreSignaturesOfMissingClasses;
+  private final boolean failOnUnresolvableSignatures, ignoreSignaturesOfMissingClasses, lazyResolution;
 
   /** Key is used to lookup forbidden signature in following formats. Keys are generated by the corresponding
    * {@link #getKey(String)} (classes), {@link #getKey(String, Method)} (methods),
@@ -122,7 +133,42 @@ public final class Signatures implements Constants {
    * {@link #getKey(String, String)} (fields) call.
    */
   final Map<String, ViolationSeverity> severityPerSignature = new HashMap<>();
-  final Map<Pattern, ViolationSeverity> severityPerClassPattern = new HashMap<>();
+  /** Key is the glob of the class pattern, the first matching glob wins. */
+  final Map<String, ViolationSeverity> severityPerClassPattern = new LinkedHashMap<>();
+  
+  /** Index of all signatures used by the checks. It is built on first use and invalidated when signatures
+   * or severities change. {@code null} if not yet built. */
+  private volatile Index index = null;
+  
+  /** With lazy resolution, the signatures that are resolved on first use of their class. Key is the internal class name. */
+  final Map<String,List<ParsedSignature>> pendingSignatures = new LinkedHashMap<>();
+  
+  /** Problems found while resolving signatures lazily, reported after scanning by {@link #reportLazyResolutionProblems()} */
+  private final Queue<String> lazyErrors = new ConcurrentLinkedQueue<>(), lazyWarnings = new ConcurrentLinkedQueue<>();
+  private final Set<String> lazyMissingClasses = new ConcurrentSkipListSet<>();
+  
+  /** Collects the warnings while resolving signatures lazily */
+  private final Logger lazyLogger = new Logger() {
+    @Override
+    public void error(String msg) {
+      logger.error(msg);
+    }
+    
+    @Override
+    public void warn(String msg) {
+      lazyWarnings.add(msg);
+    }
+    
+    @Override
+    public void info(String msg) {
+      logger.info(msg);
+    }
+    
+    @Override
+    public void debug(String msg) {
+      logger.debug(msg);
+    }
+  };
 
   /** if enabled, the bundled signature to enable heuristics for detection of non-portable runtime calls is used */
   private boolean forbidNonPortableRuntime = false;
@@ -132,17 +178,32 @@ public final class Signatures implements Constants {
 
   /** determines default severity for violations if no severity on signature level is overridden. true = ERROR, false = WARNING */
   private boolean failOnViolation;
+  
+  /** cache for bundled signatures shared with other checkers, {@code null} if not shared */
+  private volatile SharedCache sharedCache = null;
 
   public Signatures(Checker checker) {
-    this(checker, checker.logger, checker.options.contains(Option.IGNORE_SIGNATURES_OF_MISSING_CLASSES), checker.options.contains(Option.FAIL_ON_UNRESOLVABLE_SIGNATURES), checker.options.contains(Option.FAIL_ON_VIOLATION));
+    this(checker, checker.logger, checker.options.contains(Option.IGNORE_SIGNATURES_OF_MISSING_CLASSES), checker.options.contains(Option.FAIL_ON_UNRESOLVABLE_SIGNATURES), checker.options.contains(Option.FAIL_ON_VIOLATION),
+        checker.options.contains(Option.LAZY_SIGNATURE_RESOLUTION));
   }
   
   public Signatures(RelatedClassLookup lookup, Logger logger, boolean ignoreSignaturesOfMissingClasses, boolean failOnUnresolvableSignatures, boolean failOnViolation) {
+    this(lookup, logger, ignoreSignaturesOfMissingClasses, failOnUnresolvableSignatures, failOnViolation, false);
+  }
+  
+  Signatures(RelatedClassLookup lookup, Logger logger, boolean ignoreSignaturesOfMissingClasses, boolean failOnUnresolvableSignatures, boolean failOnViolation,
+      boolean lazyResolution) {
     this.lookup = lookup;
     this.logger = logger;
     this.ignoreSignaturesOfMissingClasses = ignoreSignaturesOfMissingClasses;
     this.failOnUnresolvableSignatures = failOnUnresolvableSignatures;
     this.failOnViolation = failOnViolation;
+    this.lazyResolution = lazyResolution;
+  }
+  
+  /** Sets the cache shared with other checkers, which keeps the bundled signatures once read. Passing {@code null} disables it. */
+  void setSharedCache(SharedCache sharedCache) {
+    this.sharedCache = sharedCache;
   }
   
   static String getKey(String internalClassName) {
@@ -157,47 +218,63 @@ public final class Signatures implements Constants {
     return "m\000" + internalClassName + '\000' + method;
   }
   
-  /** Adds the method signature to the list of disallowed methods. The Signature is checked against the given ClassLoader. */
-  private void addSignature(final String line, final String defaultMessage, final UnresolvableReporting report,
-      final boolean localIgnoreMissingClasses, final Set<String> missingClasses) throws ParseException,IOException {
-    String message = null;
-    String signature;
-    int p = line.indexOf('@');
-    if (p >= 0) {
-      signature = line.substring(0, p).trim();
-      message = line.substring(p + 1).trim();
-    } else {
-      signature = line;
-      message = defaultMessage;
+  /** A signature parsed from a line of a signatures file, together with the settings of the file at this line.
+   * It is not yet resolved against the classpath. */
+  static final class ParsedSignature {
+    final String signature, message;
+    /** class name or glob, method or field name (or {@code null}), method descriptor (or {@code null}) */
+    final String clazz, member, methodDescriptor;
+    /** {@code null} to use the default reporting given by the options */
+    final UnresolvableReporting reporting;
+    final boolean ignoreMissingClasses;
+    
+    ParsedSignature(String signature, String message, String clazz, String member, String methodDescriptor,
+        UnresolvableReporting reporting, boolean ignoreMissingClasses) {
+      this.signature = signature;
+      this.message = message;
+      this.clazz = clazz;
+      this.member = member;
+      this.methodDescriptor = methodDescriptor;
+      this.reporting = reporting;
+      this.ignoreMissingClasses = ignoreMissingClasses;
     }
-    if (line.isEmpty()) {
-      throw new ParseException("Empty signature");
+    
+    boolean isMethod() {
+      return methodDescriptor != null;
     }
-    if (message != null && message.isEmpty()) {
-        message = null;
+    
+    boolean isField() {
+      return member != null && methodDescriptor == null;
     }
-    // create printout message:
-    final String printout = (message != null) ? (signature + " [" + message + "]") : signature;
-    Collection<String> keys = getKeys(report, localIgnoreMissingClasses, missingClasses, signature);
-    if (keys != null) {
-        for (String key : keys) {
-            if (key.startsWith("c\000") || key.startsWith("f\000") || key.startsWith("m\000")) {
-                signatures.put(key, printout);
-            }
-            else {
-                classPatterns.add(new ClassPatternRule(key, message));
-            }
-        }
+  }
+  
+  /** All signatures of a signatures file (including all bundled files included by it), parsed but not yet resolved. */
+  static final class ParsedSignatures {
+    final List<ParsedSignature> signatures;
+    int numberOfFiles = 0;
+    boolean forbidNonPortableRuntime = false;
+    
+    ParsedSignatures() {
+      this.signatures = new ArrayList<>();
+    }
+    
+    private ParsedSignatures(ParsedSignatures other) {
+      this.signatures = Collections.unmodifiableList(new ArrayList<>(other.signatures));
+      this.numberOfFiles = other.numberOfFiles;
+      this.forbidNonPortableRuntime = other.forbidNonPortableRuntime;
+    }
+    
+    /** Returns a copy whose list of signatures cannot be modified, so it can be shared by several checkers. */
+    ParsedSignatures toUnmodifiable() {
+      return new ParsedSignatures(this);
     }
   }
-
-  private Collection<String> getKeys(final UnresolvableReporting report, final boolean localIgnoreMissingClasses, final Set<String> missingClasses,
-        final String signature) throws ParseException, IOException {
+  
+  /** Parses a signature (without message) */
+  static ParsedSignature parseSignature(String signature, String message, UnresolvableReporting reporting, boolean ignoreMissingClasses) throws ParseException {
     final String clazz;
-    final String field;
-    final Method method;
-    int p;
-    p = signature.indexOf('#');
+    String member = null, methodDescriptor = null;
+    int p = signature.indexOf('#');
     if (p >= 0) {
       clazz = signature.substring(0, p);
       final String methodOrField = signature.substring(p + 1);
@@ -207,32 +284,100 @@ public final class Signatures implements Constants {
           throw new ParseException("Invalid method signature (method name missing): " + signature);
         }
         if (PATTERN_WILDCARD_ARGS.matcher(methodOrField.substring(p)).matches()) {
-          // we create a method instance with the special descriptor string "**", which gets detected later:
-          method = new Method(methodOrField.substring(0, p).trim(), WILDCARD_ARGS);
+          // we use the special descriptor string "**", which gets detected later:
+          member = methodOrField.substring(0, p).trim();
+          methodDescriptor = WILDCARD_ARGS;
         } else {
           // we ignore the return type, it just allows the parser to succeed (so return type is void):
+          final Method method;
           try {
             method = Method.getMethod("void ".concat(methodOrField), true);
           } catch (IllegalArgumentException iae) {
             throw new ParseException("Invalid method signature: " + signature);
           }
+          member = method.getName();
+          methodDescriptor = method.getDescriptor();
         }
-        field = null;
       } else {
-        field = methodOrField;
-        method = null;
+        member = methodOrField;
       }
     } else {
       clazz = signature;
-      method = null;
-      field = null;
     }
+    if (AsmUtils.isGlob(clazz) && member != null) {
+      throw new ParseException(String.format(Locale.ENGLISH, "Class level glob pattern cannot be combined with methods/fields: %s", signature));
+    }
+    return new ParsedSignature(signature, message, clazz, member, methodDescriptor, reporting, ignoreMissingClasses);
+  }
+  
+  /** Parses a line of a signatures file with a signature and optional message */
+  private static ParsedSignature parseSignatureLine(final String line, final String defaultMessage, final UnresolvableReporting reporting,
+      final boolean localIgnoreMissingClasses) throws ParseException {
+    String message = null;
+    String signature;
+    int p = line.indexOf('@');
+    if (p >= 0) {
+      signature = line.substring(0, p).trim();
+      message = line.substring(p + 1).trim();
+    } else {
+      signature = line;
+      message = defaultMessage;
+    }
+    if (line.isEmpty()) {
+      throw new ParseException("Empty signature");
+    }
+    if (message != null && message.isEmpty()) {
+        message = null;
+    }
+    return parseSignature(signature, message, reporting, localIgnoreMissingClasses);
+  }
+  
+  /** Adds the method signature to the list of disallowed methods. The Signature is checked against the given ClassLoader. */
+  private void addSignature(final ParsedSignature parsed, final Set<String> missingClasses) throws ParseException,IOException {
+    if (lazyResolution && !AsmUtils.isGlob(parsed.clazz)) {
+      // resolved on first use of the class:
+      final String internalName = AsmUtils.binaryToInternal(parsed.clazz);
+      List<ParsedSignature> pending = pendingSignatures.get(internalName);
+      if (pending == null) {
+        pendingSignatures.put(internalName, pending = new ArrayList<>());
+      }
+      pending.add(parsed);
+      index = null;
+      return;
+    }
+    final String printout = getPrintout(parsed);
+    Collection<String> keys = getKeys(getReporting(parsed), parsed.ignoreMissingClasses, missingClasses, parsed, logger);
+    if (keys != null) {
+        for (String key : keys) {
+            if (key.startsWith("c\000") || key.startsWith("f\000") || key.startsWith("m\000")) {
+                signatures.put(key, printout);
+                index = null;
+            }
+            else {
+                classPatterns.add(new ClassPatternRule(key, parsed.message));
+                index = null;
+            }
+        }
+    }
+  }
+
+  /** Creates the printout message */
+  private static String getPrintout(ParsedSignature parsed) {
+    return (parsed.message != null) ? (parsed.signature + " [" + parsed.message + "]") : parsed.signature;
+  }
+  
+  private UnresolvableReporting getReporting(ParsedSignature parsed) {
+    return (parsed.reporting != null) ? parsed.reporting :
+      (failOnUnresolvableSignatures ? UnresolvableReporting.FAIL : UnresolvableReporting.WARNING);
+  }
+
+  private Collection<String> getKeys(final UnresolvableReporting report, final boolean localIgnoreMissingClasses, final Set<String> missingClasses,
+        final ParsedSignature parsed, final Logger logger) throws ParseException, IOException {
+    final String clazz = parsed.clazz, signature = parsed.signature;
     
     // check class & method/field signature, if it is really existent (in classpath), but we don't really load the class into JVM:
     if (AsmUtils.isGlob(clazz)) {
-      if (method != null || field != null) {
-        throw new ParseException(String.format(Locale.ENGLISH, "Class level glob pattern cannot be combined with methods/fields: %s", signature));
-      }
+      assert parsed.member == null;
       return Collections.singleton(clazz);
     } else {
       final ClassMetadata c;
@@ -250,13 +395,13 @@ public final class Signatures implements Constants {
         }
         return null;
       }
-      if (method != null) {
-        assert field == null;
+      if (parsed.isMethod()) {
+        final boolean wildcard = WILDCARD_ARGS.equals(parsed.methodDescriptor);
+        final Type[] argumentTypes = wildcard ? null : Type.getArgumentTypes(parsed.methodDescriptor);
         // list all methods with this signature:
         boolean found = false;
-        for (final Method m : c.methods) {
-          if (m.getName().equals(method.getName()) && 
-              (WILDCARD_ARGS.equals(method.getDescriptor()) || Arrays.equals(m.getArgumentTypes(), method.getArgumentTypes()))) {
+        for (final Method m : c.methods.getMethodsByName(parsed.member)) {
+          if (wildcard || Arrays.equals(m.getArgumentTypes(), argumentTypes)) {
             found = true;
             keys.add(getKey(c.className, m));
             // don't break when found, as there may be more covariant overrides!
@@ -266,15 +411,13 @@ public final class Signatures implements Constants {
           report.parseFailed(logger, "Method not found", signature);
           return null;
         }
-      } else if (field != null) {
-        assert method == null;
-        if (!c.fields.contains(field)) {
+      } else if (parsed.isField()) {
+        if (!c.fields.contains(parsed.member)) {
           report.parseFailed(logger, "Field not found", signature);
           return null;
         }
-        keys.add(getKey(c.className, field));
+        keys.add(getKey(c.className, parsed.member));
       } else {
-        assert field == null && method == null;
         // only add the signature as class name
         keys.add(getKey(c.className));
       }
@@ -290,58 +433,102 @@ public final class Signatures implements Constants {
     logger.warn(AsmUtils.formatClassesAbbreviated(missingClasses));
   }
 
-  private void addBundledSignatures(String name, String jdkTargetVersion, boolean readExternal, Set<String> missingClasses) throws IOException,ParseException {
+  /** Reads a list of bundled API signatures from classpath, the name is expanded by the target version and downgraded to
+   * the next lower available version. */
+  static ParsedSignatures readBundledSignatures(String name, String jdkTargetVersion, Logger logger, SharedCache sharedCache) throws IOException,ParseException {
     if (!name.matches("[A-Za-z0-9\\-\\.]+")) {
       throw new ParseException("Invalid bundled signature reference: " + name);
     }
     if (BS_JDK_NONPORTABLE.equals(name)) {
-      if (readExternal) logger.info("Reading bundled API signatures: " + name);
-      numberOfFiles++;
-      forbidNonPortableRuntime = true;
-      return;
+      logger.info("Reading bundled API signatures: " + name);
+      final ParsedSignatures parsed = new ParsedSignatures();
+      parsed.numberOfFiles++;
+      parsed.forbidNonPortableRuntime = true;
+      return parsed;
     }
-    if (readExternal) {
+    name = fixTargetVersion(name);
+    // automatically expand the compiler version in here (for jdk-* signatures without version):
+    if (!BUNDLED_SIGNATURES_NAMES.contains(name) && jdkTargetVersion != null && name.startsWith("jdk-") && !ENDS_WITH_VERSION_PATTERN.matcher(name).matches()) {
+      name = name + "-" + jdkTargetVersion;
       name = fixTargetVersion(name);
-      // automatically expand the compiler version in here (for jdk-* signatures without version):
-      if (!BUNDLED_SIGNATURES_NAMES.contains(name) && jdkTargetVersion != null && name.startsWith("jdk-") && !ENDS_WITH_VERSION_PATTERN.matcher(name).matches()) {
-        name = name + "-" + jdkTargetVersion;
-        name = fixTargetVersion(name);
-      }
-      // downgrade the version number to next lower signatures file:
-      final Matcher m = ENDS_WITH_VERSION_PATTERN.matcher(name);
-      if (m.matches()) {
-        final String closest = BUNDLED_SIGNATURES_NAMES.floor(name);
-        if (closest != null && closest.startsWith(m.group(1)) && ENDS_WITH_VERSION_PATTERN.matcher(closest).matches()) {
-          if (VersionCompare.compareBundledSignatures(closest, name) != 0) {
-            logger.warn("Bundled signatures '" + name + "' not found, choosing next lower available signature: " + closest);
-          }
-          // Assign the found name (normalized, e.g. the "0" version components removed):
-          name = closest;
+    }
+    // downgrade the version number to next lower signatures file:
+    final Matcher m = ENDS_WITH_VERSION_PATTERN.matcher(name);
+    if (m.matches()) {
+      final String closest = BUNDLED_SIGNATURES_NAMES.floor(name);
+      if (closest != null && closest.startsWith(m.group(1)) && ENDS_WITH_VERSION_PATTERN.matcher(closest).matches()) {
+        if (VersionCompare.compareBundledSignatures(closest, name) != 0) {
+          logger.warn("Bundled signatures '" + name + "' not found, choosing next lower available signature: " + closest);
         }
+        // Assign the found name (normalized, e.g. the "0" version components removed):
+        name = closest;
       }
-      // check name again:
-      if (!BUNDLED_SIGNATURES_NAMES.contains(name)) {
-        throw new FileNotFoundException("Bundled signatures resource not found: " + name);
+    }
+    // check name again:
+    if (!BUNDLED_SIGNATURES_NAMES.contains(name)) {
+      throw new FileNotFoundException("Bundled signatures resource not found: " + name);
+    }
+    logger.info("Reading bundled API signatures: " + name);
+    return readBundledSignatures(name, logger, sharedCache);
+  }
+  
+  /** Reads a bundled signatures file (resolved name) like {@link #readBundledSignaturesUncached(String, Logger)}. If a shared cache
+   * is given (may be {@code null}), the signatures are only read once and an unmodifiable copy is kept in the cache. */
+  static ParsedSignatures readBundledSignatures(String name, Logger logger, SharedCache sharedCache) throws IOException,ParseException {
+    if (sharedCache == null) {
+      return readBundledSignaturesUncached(name, logger);
+    }
+    final ParsedSignatures parsed = sharedCache.getBundledSignatures(name);
+    if (parsed != null) {
+      return parsed;
+    }
+    return sharedCache.putBundledSignatures(name, readBundledSignaturesUncached(name, logger).toUnmodifiable());
+  }
+  
+  /** Reads the precompiled form of a bundled signatures file (created by {@link CompiledSignatures} at build time),
+   * or parses the text file, if it was not precompiled. */
+  static ParsedSignatures readBundledSignaturesUncached(String name, Logger logger) throws IOException,ParseException {
+    // use Checker.class hardcoded (not getClass) so we have a fixed package name:
+    final URL compiled = Checker.class.getResource("signatures/" + name + CompiledSignatures.FILE_EXTENSION);
+    if (compiled != null) {
+      try (final InputStream in = compiled.openStream()) {
+        return CompiledSignatures.read(in);
       }
-      logger.info("Reading bundled API signatures: " + name);
+    }
+    return parseBundledSignatures(name, logger);
+  }
+  
+  /** Parses the text file of a bundled signatures file, including all bundled files referenced by it. */
+  static ParsedSignatures parseBundledSignatures(String name, Logger logger) throws IOException,ParseException {
+    final ParsedSignatures parsed = new ParsedSignatures();
+    parseBundledSignatures(name, parsed, logger);
+    return parsed;
+  }
+  
+  private static void parseBundledSignatures(String name, ParsedSignatures parsed, Logger logger) throws IOException,ParseException {
+    if (!name.matches("[A-Za-z0-9\\-\\.]+")) {
+      throw new ParseException("Invalid bundled signature reference: " + name);
+    }
+    if (BS_JDK_NONPORTABLE.equals(name)) {
+      parsed.numberOfFiles++;
+      parsed.forbidNonPortableRuntime = true;
+      return;
     }
     // use Checker.class hardcoded (not getClass) so we have a fixed package name:
     final URL url = Checker.class.getResource("signatures/" + name + ".txt");
     if (url == null) {
       throw new FileNotFoundException("Bundled signatures resource not found: " + name);
     }
-    parseSignaturesStream(url.openStream(), true, missingClasses);
+    parseSignaturesFile(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8), true, parsed, logger);
   }
   
-  private void parseSignaturesStream(InputStream in, boolean isBundled, Set<String> missingClasses) throws IOException,ParseException {
-    parseSignaturesFile(new InputStreamReader(in, StandardCharsets.UTF_8), isBundled, missingClasses);
-  }
-
-  private void parseSignaturesFile(Reader reader, boolean isBundled, Set<String> missingClasses) throws IOException,ParseException {
-    numberOfFiles++;
+  /** Parses a signatures file (bundled ones may include other bundled files) and adds all signatures to the given list.
+   * Closes the Reader when done (on Exception, too)! */
+  static void parseSignaturesFile(Reader reader, boolean isBundled, ParsedSignatures parsed, Logger logger) throws IOException,ParseException {
+    parsed.numberOfFiles++;
     try (final BufferedReader r = new BufferedReader(reader)) {
       String line, defaultMessage = null;
-      UnresolvableReporting reporter = failOnUnresolvableSignatures ? UnresolvableReporting.FAIL : UnresolvableReporting.WARNING;
+      UnresolvableReporting reporter = null;
       boolean localIgnoreMissingClasses = false;
       while ((line = r.readLine()) != null) {
         line = line.trim();
@@ -350,7 +537,7 @@ public final class Signatures implements Constants {
         if (line.startsWith("@")) {
           if (isBundled && line.startsWith(BUNDLED_PREFIX)) {
             final String name = line.substring(BUNDLED_PREFIX.length()).trim();
-            addBundledSignatures(name, null, false, missingClasses);
+            parseBundledSignatures(name, parsed, logger);
           } else if (line.startsWith(DEFAULT_MESSAGE_PREFIX)) {
             defaultMessage = line.substring(DEFAULT_MESSAGE_PREFIX.length()).trim();
             if (defaultMessage.length() == 0) defaultMessage = null;
@@ -368,38 +555,192 @@ public final class Signatures implements Constants {
             throw new ParseException("Invalid line in signature file: " + line);
           }
         } else {
-          addSignature(line, defaultMessage, reporter, localIgnoreMissingClasses, missingClasses);
+          parsed.signatures.add(parseSignatureLine(line, defaultMessage, reporter, localIgnoreMissingClasses));
         }
       }
     }
   }
   
-  /** Reads a list of bundled API signatures from classpath. */
-  public void addBundledSignatures(String name, String jdkTargetVersion) throws IOException,ParseException {
+  private void addSignatures(ParsedSignatures parsed, Set<String> missingClasses) throws IOException,ParseException {
+    numberOfFiles += parsed.numberOfFiles;
+    if (parsed.forbidNonPortableRuntime) {
+      forbidNonPortableRuntime = true;
+    }
+    for (final ParsedSignature s : parsed.signatures) {
+      addSignature(s, missingClasses);
+    }
+  }
+  
+  private void addSignatures(SignaturesSource source) throws IOException,ParseException {
+    final ParsedSignatures parsed = source.read(logger, sharedCache);
     final Set<String> missingClasses = new TreeSet<>();
-    addBundledSignatures(name, jdkTargetVersion, true, missingClasses);
+    addSignatures(parsed, missingClasses);
     reportMissingSignatureClasses(missingClasses);
   }
   
+  /** Reads a list of bundled API signatures from classpath. */
+  public void addBundledSignatures(String name, String jdkTargetVersion) throws IOException,ParseException {
+    addSignatures(SignaturesSource.bundled(name, jdkTargetVersion));
+  }
+  
   /** Reads a list of API signatures. Closes the Reader when done (on Exception, too)! */
   public void parseSignaturesStream(InputStream in, String name) throws IOException,ParseException {
-    logger.info("Reading API signatures: " + name);
-    final Set<String> missingClasses = new TreeSet<>();
-    parseSignaturesStream(in, false, missingClasses);
-    reportMissingSignatureClasses(missingClasses);
+    addSignatures(SignaturesSource.stream(in, name));
   }
   
   /** Reads a list of API signatures from a String. */
   public void parseSignaturesString(String signatures) throws IOException,ParseException {
-    logger.info("Reading inline API signatures...");
-    final Set<String> missingClasses = new TreeSet<>();
-    parseSignaturesFile(new StringReader(signatures), false, missingClasses);
-    reportMissingSignatureClasses(missingClasses);
+    addSignatures(SignaturesSource.string(signatures));
+  }
+  
+  /** Buffers the messages of a worker thread, so they can be logged later in the order of the sources */
+  private static final class BufferedLogger implements Logger {
+    private final List<String> levels = new ArrayList<>(), messages = new ArrayList<>();
+    
+    private void add(String level, String msg) {
+      levels.add(level);
+      messages.add(msg);
+    }
+    
+    @Override
+    public void error(String msg) {
+      add("error", msg);
+    }
+    
+    @Override
+    public void warn(String msg) {
+      add("warn", msg);
+    }
+    
+    @Override
+    public void info(String msg) {
+      add("info", msg);
+    }
+    
+    @Override
+    public void debug(String msg) {
+      add("debug", msg);
+    }
+    
+    void replay(Logger logger) {
+      for (int i = 0, size = messages.size(); i < size; i++) {
+        final String level = levels.get(i), msg = messages.get(i);
+        switch (level) {
+          case "error": logger.error(msg); break;
+          case "warn": logger.warn(msg); break;
+          case "info": logger.info(msg); break;
+          default: logger.debug(msg); break;
+        }
+      }
+    }
+  }
+  
+  /** Parses one source in a thread of the {@link ForkJoinPool}, the exception is saved for later reporting */
+  @SuppressWarnings("serial")
+  private static final class ParseTask extends RecursiveTask<ParsedSignatures> {
+    private final SignaturesSource source;
+    private final SharedCache sharedCache;
+    final BufferedLogger logger = new BufferedLogger();
+    Exception exception = null;
+    
+    ParseTask(SignaturesSource source, SharedCache sharedCache) {
+      this.source = source;
+      this.sharedCache = sharedCache;
+    }
+    
+    @Override
+    protected ParsedSignatures compute() {
+      try {
+        return source.read(logger, sharedCache);
+      } catch (IOException | ParseException e) {
+        exception = e;
+        return null;
+      }
+    }
+  }
+  
+  /** Loads the class of a signature in a thread of the {@link ForkJoinPool}, so it is cached when the signature is resolved */
+  @SuppressWarnings("serial")
+  private final class PreloadTask extends RecursiveAction {
+    private final String clazz;
+    
+    PreloadTask(String clazz) {
+      this.clazz = clazz;
+    }
+    
+    @Override
+    protected void compute() {
+      try {
+        lookup.getClassFromClassLoader(clazz);
+      } catch (ClassNotFoundException | IOException | RuntimeException e) {
+        // ignore, it is reported when the signature is resolved
+      }
+    }
+  }
+  
+  /** Reads all given sources of API signatures. With more than one thread, the sources are parsed concurrently and the classes
+   * referenced by them are loaded in parallel. Afterwards, the signatures are resolved and added in the order of the sources, so
+   * the result and all log messages are the same as when adding the sources one after another. */
+  public void addSignatures(List<SignaturesSource> sources, int threads) throws IOException,ParseException {
+    if (threads <= 1 || sources.size() <= 1) {
+      for (final SignaturesSource source : sources) {
+        addSignatures(source);
+      }
+      return;
+    }
+    final ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      final List<ParseTask> tasks = new ArrayList<>(sources.size());
+      for (final SignaturesSource source : sources) {
+        final ParseTask task = new ParseTask(source, sharedCache);
+        pool.execute(task);
+        tasks.add(task);
+      }
+      final List<ParsedSignatures> parsed = new ArrayList<>(tasks.size());
+      for (final ParseTask task : tasks) {
+        parsed.add(task.join());
+      }
+      if (!lazyResolution) {
+        final Set<String> classes = new LinkedHashSet<>();
+        for (final ParsedSignatures p : parsed) {
+          if (p != null) for (final ParsedSignature sig : p.signatures) {
+            if (!AsmUtils.isGlob(sig.clazz)) {
+              classes.add(sig.clazz);
+            }
+          }
+        }
+        final List<PreloadTask> preloads = new ArrayList<>(classes.size());
+        for (final String clazz : classes) {
+          final PreloadTask task = new PreloadTask(clazz);
+          pool.execute(task);
+          preloads.add(task);
+        }
+        for (final PreloadTask task : preloads) {
+          task.join();
+        }
+      }
+      // merge in the order of the sources, so the result is deterministic:
+      for (int i = 0, size = tasks.size(); i < size; i++) {
+        final ParseTask task = tasks.get(i);
+        task.logger.replay(logger);
+        if (task.exception instanceof IOException) {
+          throw (IOException) task.exception;
+        } else if (task.exception instanceof ParseException) {
+          throw (ParseException) task.exception;
+        }
+        final Set<String> missingClasses = new TreeSet<>();
+        addSignatures(parsed.get(i), missingClasses);
+        reportMissingSignatureClasses(missingClasses);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
   }
   
   /** Returns if there are any signatures. */
   public boolean hasNoSignatures() {
     return 0 == signatures.size() + 
+        pendingSignatures.size() +
         classPatterns.size() +
         (forbidNonPortableRuntime ? 1 : 0);
   }
@@ -417,18 +758,48 @@ public final class Signatures implements Constants {
   }
   
   public void setSignatureSeverity(String signature, ViolationSeverity severity) throws ParseException, IOException {
-    Collection<String> keys = getKeys(UnresolvableReporting.SILENT, false, new HashSet<String>(), signature);
+    Collection<String> keys = getKeys(UnresolvableReporting.SILENT, false, new HashSet<String>(),
+        parseSignature(signature, null, UnresolvableReporting.SILENT, false), logger);
     if (keys != null) {
       for (String key : keys) {
         if (key.startsWith("c\000") || key.startsWith("f\000") || key.startsWith("m\000")) {
           severityPerSignature.put(key, severity);
+          index = null;
         } else {
-          severityPerClassPattern.put(AsmUtils.glob2Pattern(key), severity);
+          severityPerClassPattern.put(key, severity);
+          index = null;
         }
       }
     }
   }
   
+  /** Adds all signatures and severities to the given list, which is used to calculate the fingerprint for incremental checks.
+   * The signatures are sorted, only the order of class patterns is kept, as the first matching one wins. */
+  void addFingerprintItems(List<String> items) {
+    final List<String> sorted = new ArrayList<>();
+    for (final Map.Entry<String,String> e : signatures.entrySet()) {
+      sorted.add("signature " + e.getKey() + " " + e.getValue());
+    }
+    for (final Map.Entry<String,ViolationSeverity> e : severityPerSignature.entrySet()) {
+      sorted.add("severity " + e.getKey() + " " + e.getValue());
+    }
+    for (final List<ParsedSignature> pending : pendingSignatures.values()) {
+      for (final ParsedSignature p : pending) {
+        sorted.add("pending " + p.signature + " " + p.message + " " + p.reporting + " " + p.ignoreMissingClasses);
+      }
+    }
+    Collections.sort(sorted);
+    items.addAll(sorted);
+    for (final Map.Entry<String,ViolationSeverity> e : severityPerClassPattern.entrySet()) {
+      items.add("severityPattern " + e.getKey() + " " + e.getValue());
+    }
+    for (final ClassPatternRule r : classPatterns) {
+      items.add(r.toString());
+    }
+    items.add("forbidNonPortableRuntime=" + forbidNonPortableRuntime);
+    items.add("failOnViolation=" + failOnViolation);
+  }
+  
   /** Returns if bundled signature to enable heuristics for detection of non-portable runtime calls is used */
   public boolean isNonPortableRuntimeForbidden() {
     return this.forbidNonPortableRuntime;
@@ -452,34 +823,335 @@ public final class Signatures implements Constants {
       }
   }
 
+  /** All signatures of one class (its own signature, methods and fields), with the results of the method and field checks
+   * precomputed. Signatures with severity {@link ViolationSeverity#SUPPRESS} are part of it, so the lookup stops there
+   * (no class pattern or ancestor is consulted); their results are just not reported. */
+  private static final class OwnerSignatures {
+    String classPrintout = null;
+    ViolationSeverity classSeverity = null;
+    Map<Method,ViolationResult> methods = null;
+    Map<String,ViolationResult> fields = null;
+  }
+  
+  /** All signatures prepared for the checks */
+  private static final class Index {
+    /** results of {@link Signatures#isHierarchyRelevant(ClassMetadata, RelatedClassLookup)}; the metadata may be
+     * shared with other checkers (see {@link SharedCache}), so the results are kept here and not in the metadata */
+    final ConcurrentMap<ClassMetadata,Boolean> hierarchyRelevance = new ConcurrentHashMap<>();
+    /** key is the internal class name; with lazy resolution, resolved classes are added while scanning (it is a
+     * {@link ConcurrentMap} then) */
+    final Map<String,OwnerSignatures> owners;
+    /** with lazy resolution the signatures to resolve on first use of their class, key is the internal class name */
+    final Map<String,List<ParsedSignature>> pending;
+    /** with lazy resolution the load-once tasks resolving the pending signatures, key is the internal class name */
+    final ConcurrentMap<String,FutureTask<OwnerSignatures>> resolving = new ConcurrentHashMap<>();
+    /** matches the globs of all class pattern rules followed by the globs of all class pattern severities */
+    final GlobMatcher classPatternMatcher;
+    final ClassPatternRule[] classPatternRules;
+    final ViolationSeverity[] classPatternSeverities;
+    
+    Index(Map<String,OwnerSignatures> owners, Map<String,List<ParsedSignature>> pending, List<ClassPatternRule> rules, Map<String,ViolationSeverity> severities) {
+      this.owners = owners;
+      this.pending = pending;
+      this.classPatternRules = rules.toArray(new ClassPatternRule[rules.size()]);
+      this.classPatternSeverities = severities.values().toArray(new ViolationSeverity[severities.size()]);
+      final List<String> globs = new ArrayList<>();
+      for (final ClassPatternRule r : rules) {
+        globs.add(r.getGlob());
+      }
+      globs.addAll(severities.keySet());
+      this.classPatternMatcher = new GlobMatcher(globs);
+    }
+  }
+  
+  private Index getIndex() {
+    Index index = this.index;
+    if (index == null) {
+      synchronized (this) {
+        index = this.index;
+        if (index == null) {
+          this.index = index = buildIndex();
+        }
+      }
+    }
+    return index;
+  }
+  
+  private Index buildIndex() {
+    final Map<String,OwnerSignatures> index = pendingSignatures.isEmpty() ?
+        new HashMap<String,OwnerSignatures>() : new ConcurrentHashMap<String,OwnerSignatures>();
+    for (final Map.Entry<String,String> e : signatures.entrySet()) {
+      addToIndex(index, e.getKey(), e.getValue());
+    }
+    return new Index(index, new HashMap<>(pendingSignatures), new ArrayList<>(classPatterns), severityPerClassPattern);
+  }
+  
+  private void addToIndex(Map<String,OwnerSignatures> index, String key, String printout) {
+    final ViolationSeverity severity = getSeverityForKey(key);
+    // parse the key, see getKey() methods:
+    final int p = key.indexOf('\000', 2);
+    final String owner = key.substring(2, (p < 0) ? key.length() : p);
+    OwnerSignatures sigs = index.get(owner);
+    if (sigs == null) {
+      index.put(owner, sigs = new OwnerSignatures());
+    }
+    switch (key.charAt(0)) {
+      case 'c':
+        sigs.classPrintout = printout;
+        sigs.classSeverity = severity;
+        break;
+      case 'f':
+        if (sigs.fields == null) sigs.fields = new HashMap<>();
+        sigs.fields.put(key.substring(p + 1), new ViolationResult("Forbidden field access: ".concat(printout), severity));
+        break;
+      case 'm':
+        final String method = key.substring(p + 1);
+        final int d = method.indexOf('(');
+        if (sigs.methods == null) sigs.methods = new HashMap<>();
+        sigs.methods.put(new Method(method.substring(0, d), method.substring(d)),
+            new ViolationResult("Forbidden method invocation: ".concat(printout), severity));
+        break;
+      default:
+        throw new AssertionError("Invalid signature key: " + key);
+    }
+  }
+  
+  /** Returns the signatures of the given class (internal name), or {@code null}. With lazy resolution, the signatures of
+   * the class are resolved on first call. */
+  private OwnerSignatures getOwnerSignatures(Index index, String internalClassName) {
+    final OwnerSignatures sigs = index.owners.get(internalClassName);
+    if (sigs == null && !index.pending.isEmpty() && index.pending.containsKey(internalClassName)) {
+      return resolvePending(index, internalClassName);
+    }
+    return sigs;
+  }
+  
+  /** Resolves the pending signatures of the given class. The signatures of every class are resolved only once: if multiple
+   * threads need the same class at the same time, all of them wait for the first one, while other classes are resolved
+   * in parallel (resolving loads classes, so no global lock is held). */
+  private OwnerSignatures resolvePending(final Index index, final String internalClassName) {
+    FutureTask<OwnerSignatures> task = index.resolving.get(internalClassName);
+    if (task == null) {
+      final FutureTask<OwnerSignatures> newTask = new FutureTask<>(new Callable<OwnerSignatures>() {
+        @Override
+        public OwnerSignatures call() {
+          return resolveOwner(index, internalClassName);
+        }
+      });
+      task = index.resolving.putIfAbsent(internalClassName, newTask);
+      if (task == null) {
+        task = newTask;
+        newTask.run();
+      }
+    }
+    try {
+      return RelatedClassCache.getResult(task);
+    } catch (IOException ioe) {
+      throw new AssertionError("Resolving signatures never throws IOException.", ioe);
+    }
+  }
+  
+  private OwnerSignatures resolveOwner(Index index, String internalClassName) {
+    final Map<String,OwnerSignatures> resolved = new HashMap<>();
+    for (final ParsedSignature parsed : index.pending.get(internalClassName)) {
+      final Collection<String> keys;
+      try {
+        keys = getKeys(getReporting(parsed), parsed.ignoreMissingClasses, lazyMissingClasses, parsed, lazyLogger);
+      } catch (ParseException | IOException e) {
+        lazyErrors.add(e.getMessage());
+        continue;
+      }
+      if (keys != null) {
+        final String printout = getPrintout(parsed);
+        for (final String key : keys) {
+          addToIndex(resolved, key, printout);
+        }
+      }
+    }
+    OwnerSignatures sigs = resolved.remove(internalClassName);
+    if (sigs == null) {
+      sigs = new OwnerSignatures(); // nothing found, but don't resolve again
+    }
+    final ConcurrentMap<String,OwnerSignatures> owners = (ConcurrentMap<String,OwnerSignatures>) index.owners;
+    // the class name of the loaded class should not differ, but if it does, use the signatures for both:
+    for (final Map.Entry<String,OwnerSignatures> e : resolved.entrySet()) {
+      owners.putIfAbsent(e.getKey(), e.getValue());
+    }
+    final OwnerSignatures existing = owners.putIfAbsent(internalClassName, sigs);
+    return (existing == null) ? sigs : existing;
+  }
+  
+  /** With lazy resolution, reports all problems found while resolving the signatures of the used classes. The classes
+   * of signatures that were never used are only checked for existence (without resolving the signatures), so missing
+   * classes are reported like without lazy resolution. Throws {@link ParseException} if signatures failed to resolve
+   * and this should fail the build. */
+  public void reportLazyResolutionProblems() throws ParseException {
+    if (pendingSignatures.isEmpty()) {
+      return;
+    }
+    final Index index = getIndex();
+    synchronized (index) {
+      int resolved = 0;
+      for (final Map.Entry<String,List<ParsedSignature>> e : index.pending.entrySet()) {
+        if (index.owners.containsKey(e.getKey())) {
+          resolved++;
+        } else {
+          checkUnresolvedClass(e.getValue());
+        }
+      }
+      logger.debug(String.format(Locale.ENGLISH, "Resolved the signatures of %d of %d classes lazily.", resolved, index.pending.size()));
+      for (final String msg : lazyWarnings) {
+        logger.warn(msg);
+      }
+      lazyWarnings.clear();
+      reportMissingSignatureClasses(lazyMissingClasses);
+      lazyMissingClasses.clear();
+      if (!lazyErrors.isEmpty()) {
+        for (final String msg : lazyErrors) {
+          logger.error(msg);
+        }
+        final String first = lazyErrors.peek();
+        final int count = lazyErrors.size();
+        lazyErrors.clear();
+        throw new ParseException((count == 1) ? first : String.format(Locale.ENGLISH, "%s (and %d more, see log)", first, count - 1));
+      }
+    }
+  }
+  
+  /** Checks that the class of signatures that were never resolved exists, and records the problems like {@link #resolveOwner}. */
+  private void checkUnresolvedClass(List<ParsedSignature> pending) {
+    final String clazz = pending.get(0).clazz;
+    try {
+      if (classExists(clazz)) {
+        return;
+      }
+    } catch (IOException ioe) {
+      lazyErrors.add(ioe.getMessage());
+      return;
+    }
+    for (final ParsedSignature parsed : pending) {
+      if (this.ignoreSignaturesOfMissingClasses || parsed.ignoreMissingClasses) {
+        continue;
+      }
+      final UnresolvableReporting report = getReporting(parsed);
+      if (report.reportClassNotFound) {
+        try {
+          report.parseFailed(lazyLogger, String.format(Locale.ENGLISH, "Class '%s' not found on classpath", clazz), parsed.signature);
+        } catch (ParseException pe) {
+          lazyErrors.add(pe.getMessage());
+        }
+      } else {
+        lazyMissingClasses.add(clazz);
+      }
+    }
+  }
+  
+  private boolean classExists(String clazz) throws IOException {
+    if (lookup instanceof Checker) {
+      return ((Checker) lookup).classExists(clazz);
+    }
+    try {
+      lookup.getClassFromClassLoader(clazz);
+      return true;
+    } catch (ClassNotFoundException cnfe) {
+      return false;
+    }
+  }
+  
+  /** Returns {@code true}, if the given class or any of its ancestors has forbidden signatures, matches a class pattern or
+   * is a forbidden non-portable runtime class. If not, walking the class hierarchy can never find a violation.
+   * The result is cached in the signatures index until the signatures change. If an ancestor cannot be loaded,
+   * the hierarchy is treated as relevant, so the walk reports the problem. */
+  boolean isHierarchyRelevant(ClassMetadata c, RelatedClassLookup lookup) {
+    return isHierarchyRelevant(getIndex(), c, lookup);
+  }
+  
+  private boolean isHierarchyRelevant(Index index, ClassMetadata c, RelatedClassLookup lookup) {
+    final Boolean cached = index.hierarchyRelevance.get(c);
+    if (cached != null) {
+      return cached.booleanValue();
+    }
+    boolean relevant = isRelevantClass(index, c) || isAncestorRelevant(index, c.superName, lookup);
+    if (!relevant && c.interfaces != null) {
+      for (final String intf : c.interfaces) {
+        if (isAncestorRelevant(index, intf, lookup)) {
+          relevant = true;
+          break;
+        }
+      }
+    }
+    index.hierarchyRelevance.put(c, Boolean.valueOf(relevant));
+    return relevant;
+  }
+  
+  private boolean isAncestorRelevant(Index index, String internalName, RelatedClassLookup lookup) {
+    if (internalName == null) {
+      return false;
+    }
+    final ClassMetadata c;
+    try {
+      c = lookup.getClassFromClassLoader(Type.getObjectType(internalName).getClassName());
+    } catch (ClassNotFoundException | IOException | RuntimeException e) {
+      return true;
+    }
+    return isHierarchyRelevant(index, c, lookup);
+  }
+  
+  private boolean isRelevantClass(Index index, ClassMetadata c) {
+    if (forbidNonPortableRuntime && c.isNonPortableRuntime) {
+      return true;
+    }
+    final OwnerSignatures sigs = index.owners.get(c.className);
+    if (sigs != null) {
+      if (sigs.classPrintout != null || sigs.methods != null || sigs.fields != null) {
+        return true;
+      }
+    } else if (index.pending.containsKey(c.className)) {
+      return true; // not yet resolved
+    }
+    if (index.classPatternRules.length == 0) {
+      return false;
+    }
+    final int[] matches = index.classPatternMatcher.getMatches(c.getBinaryClassName());
+    return matches.length > 0 && matches[0] < index.classPatternRules.length;
+  }
+  
   public ViolationResult checkType(Type type, String what) {
     if (type.getSort() != Type.OBJECT) {
       return null; // we don't know this type, just pass!
     }
-    final String key = getKey(type.getInternalName());
-    final String printout = signatures.get(getKey(type.getInternalName()));
-    if (printout != null) {
-      return new ViolationResult(formatTypePrintout(printout, what), getSeverityForKey(key));
+    final Index index = getIndex();
+    final OwnerSignatures sigs = getOwnerSignatures(index, type.getInternalName());
+    if (sigs != null && sigs.classPrintout != null) {
+      return new ViolationResult(formatTypePrintout(sigs.classPrintout, what), sigs.classSeverity);
+    }
+    if (index.classPatternRules.length == 0) {
+      return null;
     }
     final String binaryClassName = type.getClassName();
-    for (final ClassPatternRule r : classPatterns) {
-      if (r.matches(binaryClassName)) {
-        return new ViolationResult(formatTypePrintout(r.getPrintout(binaryClassName), what), getSeverityForClassName(binaryClassName));
+    // the matches are sorted: the first one is the rule (if any), the first one after the rules is the severity:
+    final int[] matches = index.classPatternMatcher.getMatches(binaryClassName);
+    if (matches.length == 0 || matches[0] >= index.classPatternRules.length) {
+      return null;
+    }
+    ViolationSeverity severity = failOnViolation ? ViolationSeverity.ERROR : ViolationSeverity.WARNING;
+    for (final int m : matches) {
+      if (m >= index.classPatternRules.length) {
+        severity = index.classPatternSeverities[m - index.classPatternRules.length];
+        break;
       }
     }
-    return null;
+    return new ViolationResult(formatTypePrintout(index.classPatternRules[matches[0]].getPrintout(binaryClassName), what), severity);
   }
   
   public ViolationResult checkMethod(String internalClassName, Method method) {
-    final String key = getKey(internalClassName, method);
-    final String printout = signatures.get(key);
-    return (printout == null) ? null : new ViolationResult("Forbidden method invocation: ".concat(printout), getSeverityForKey(key));
+    final OwnerSignatures sigs = getOwnerSignatures(getIndex(), internalClassName);
+    return (sigs == null || sigs.methods == null) ? null : sigs.methods.get(method);
   }
   
   public ViolationResult checkField(String internalClassName, String field) {
-    final String key = getKey(internalClassName, field);
-    final String printout = signatures.get(key);
-    return (printout == null) ? null : new ViolationResult("Forbidden field access: ".concat(printout), getSeverityForKey(key));
+    final OwnerSignatures sigs = getOwnerSignatures(getIndex(), internalClassName);
+    return (sigs == null || sigs.fields == null) ? null : sigs.fields.get(field);
   }
 
   private ViolationSeverity getSeverityForKey(String key) {
@@ -487,15 +1159,6 @@ public final class Signatures implements Constants {
     return (severity != null) ? severity : (failOnViolation ? ViolationSeverity.ERROR : ViolationSeverity.WARNING);
   }
 
-  private ViolationSeverity getSeverityForClassName(String className) {
-    for (final Map.Entry<Pattern, ViolationSeverity> e : severityPerClassPattern.entrySet()) {
-      if (e.getKey().matcher(className).matches()) {
-        return e.getValue();
-      }
-    }
-    return failOnViolation ? ViolationSeverity.ERROR : ViolationSeverity.WARNING;
-  }
-
   public static String fixTargetVersion(String name) throws ParseException {
     final Matcher m = JDK_SIG_PATTERN.matcher(name);
     if (m.matches()) {
@@ -0,0 +1,137 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import de.thetaphi.forbiddenapis.Signatures.ParsedSignatures;
+
+/** A source of API signatures (bundled signatures, a signatures file or inline signatures), which can be added
+ * together with other sources by {@link Checker#addSignatures(java.util.List)}. The sources are parsed concurrently,
+ * but they are added in the given order, so the result is the same as adding them one after another. */
+public abstract class SignaturesSource {
+
+  SignaturesSource() {}
+
+  /** Parses the signatures without resolving them. This may be called in a worker thread, so all messages
+   * (including the "Reading..." message) must go to the given logger. Bundled signatures are taken from the
+   * shared cache, if one is given (may be {@code null}). */
+  abstract ParsedSignatures parse(Logger logger, SharedCache sharedCache) throws IOException,ParseException;
+
+  /** Parses the signatures like {@link #parse(Logger,SharedCache)}, recording a flight recorder event. */
+  final ParsedSignatures read(Logger logger, SharedCache sharedCache) throws IOException,ParseException {
+    final Object event = FlightRecorderEvents.INSTANCE.beginSignaturesParsing();
+    final ParsedSignatures parsed = parse(logger, sharedCache);
+    FlightRecorderEvents.INSTANCE.commitSignaturesParsing(event, toString(), parsed.signatures.size());
+    return parsed;
+  }
+
+  /** Bundled API signatures from classpath. The JDK signatures are expanded by the given target version, if not {@code null}. */
+  public static SignaturesSource bundled(final String name, final String jdkTargetVersion) {
+    return new SignaturesSource() {
+      @Override
+      ParsedSignatures parse(Logger logger, SharedCache sharedCache) throws IOException,ParseException {
+        return Signatures.readBundledSignatures(name, jdkTargetVersion, logger, sharedCache);
+      }
+
+      @Override
+      public String toString() {
+        return "bundled:" + name;
+      }
+    };
+  }
+
+  /** Opens the stream of a signatures source, see {@link SignaturesSource#stream(Opener,String)}. */
+  public interface Opener {
+    InputStream open() throws IOException;
+  }
+
+  /** API signatures from the given stream, which is closed after reading. Only use this if the caller owns the
+   * stream; to not leak it, if adding an earlier source fails, prefer {@link #stream(Opener,String)}. */
+  public static SignaturesSource stream(final InputStream in, final String name) {
+    return stream(new Opener() {
+      @Override
+      public InputStream open() {
+        return in;
+      }
+    }, name);
+  }
+
+  /** API signatures from a stream, which is opened while parsing and closed after reading. */
+  public static SignaturesSource stream(final Opener opener, final String name) {
+    return new SignaturesSource() {
+      @Override
+      ParsedSignatures parse(Logger logger, SharedCache sharedCache) throws IOException,ParseException {
+        logger.info("Reading API signatures: " + name);
+        final ParsedSignatures parsed = new ParsedSignatures();
+        Signatures.parseSignaturesFile(new InputStreamReader(opener.open(), StandardCharsets.UTF_8), false, parsed, logger);
+        return parsed;
+      }
+
+      @Override
+      public String toString() {
+        return name;
+      }
+    };
+  }
+
+  /** API signatures from the given file, which is opened while parsing. */
+  public static SignaturesSource file(final File f) {
+    return stream(new Opener() {
+      @Override
+      public InputStream open() throws IOException {
+        return new FileInputStream(f);
+      }
+    }, f.toString());
+  }
+
+  /** API signatures from the given URL, which is opened while parsing. */
+  public static SignaturesSource url(final URL url) {
+    return stream(new Opener() {
+      @Override
+      public InputStream open() throws IOException {
+        return url.openStream();
+      }
+    }, url.toString());
+  }
+
+  /** Inline API signatures. */
+  public static SignaturesSource string(final String signatures) {
+    return new SignaturesSource() {
+      @Override
+      ParsedSignatures parse(Logger logger, SharedCache sharedCache) throws IOException,ParseException {
+        logger.info("Reading inline API signatures...");
+        final ParsedSignatures parsed = new ParsedSignatures();
+        Signatures.parseSignaturesFile(new StringReader(signatures), false, parsed, logger);
+        return parsed;
+      }
+
+      @Override
+      public String toString() {
+        return "inline signatures";
+      }
+    };
+  }
+
+}
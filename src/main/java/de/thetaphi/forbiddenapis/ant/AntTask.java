@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 
 import org.apache.tools.ant.AntClassLoader;
@@ -45,10 +46,12 @@ import org.apache.tools.ant.types.resources.StringResource;
 import org.apache.tools.ant.types.resources.Union;
 
 import de.thetaphi.forbiddenapis.Checker;
+import de.thetaphi.forbiddenapis.ClassBytesSource;
 import de.thetaphi.forbiddenapis.Constants;
 import de.thetaphi.forbiddenapis.ForbiddenApiException;
 import de.thetaphi.forbiddenapis.Logger;
 import de.thetaphi.forbiddenapis.ParseException;
+import de.thetaphi.forbiddenapis.SignaturesSource;
 
 /**
  * Task to check if a set of class files contains calls to forbidden APIs
@@ -75,6 +78,13 @@ public class AntTask extends Task implements Constants {
   private boolean ignoreEmptyFileset = false;
   private String targetVersion = null;
   private boolean disableClassloadingCache = false;
+  private int threads = 1;
+  private boolean lowMemory = false;
+  private boolean lazySignatureResolution = false;
+  private File cacheDirectory = null;
+  private File incrementalCacheFile = null;
+  private boolean statistics = false;
+  private File statisticsFile = null;
     
   @Override
   public void execute() throws BuildException {
@@ -102,6 +112,7 @@ public class AntTask extends Task implements Constants {
     };
     
     AntClassLoader antLoader = null;
+    Checker checker = null;
     try {
       final ClassLoader loader;
       if (classpath != null) {
@@ -125,7 +136,25 @@ public class AntTask extends Task implements Constants {
       }
       if (ignoreSignaturesOfMissingClasses) options.add(IGNORE_SIGNATURES_OF_MISSING_CLASSES);
       if (disableClassloadingCache) options.add(DISABLE_CLASSLOADING_CACHE);
-      final Checker checker = new Checker(log, loader, options);
+      if (lazySignatureResolution) options.add(LAZY_SIGNATURE_RESOLUTION);
+      checker = new Checker(log, loader, options);
+      try {
+        checker.setThreads(threads);
+      } catch (IllegalArgumentException iae) {
+        throw new BuildException(iae.getMessage());
+      }
+      checker.setCacheDirectory(cacheDirectory);
+      checker.setLowMemory(lowMemory);
+      if (classpath != null) {
+        final List<File> classpathFiles = new ArrayList<>();
+        for (final String f : classpath.list()) {
+          classpathFiles.add(new File(f));
+        }
+        checker.setClasspathFiles(classpathFiles);
+      }
+      checker.setIncrementalCacheFile(incrementalCacheFile);
+      checker.setLogStatistics(statistics);
+      checker.setStatisticsFile(statisticsFile);
       
       if (!checker.isSupportedJDK) {
         final String msg = String.format(Locale.ENGLISH, 
@@ -144,6 +173,7 @@ public class AntTask extends Task implements Constants {
       }
       
       try {
+        final List<SignaturesSource> sources = new ArrayList<>();
         for (BundledSignaturesType bs : bundledSignatures) {
           final String name = bs.getName();
           if (name == null) {
@@ -161,7 +191,7 @@ public class AntTask extends Task implements Constants {
               "Trying to read bundled JDK signatures without compiler target. " +
               "You have to explicitly specify the version in the resource name.");
           }
-          checker.addBundledSignatures(name, targetVersion);
+          sources.add(SignaturesSource.bundled(name, targetVersion));
         }
         
         @SuppressWarnings("unchecked")
@@ -171,12 +201,18 @@ public class AntTask extends Task implements Constants {
           if (r instanceof StringResource) {
             final String s = ((StringResource) r).getValue();
             if (s != null && s.trim().length() > 0) {
-              checker.parseSignaturesString(s);
+              sources.add(SignaturesSource.string(s));
             }
           } else {
-            checker.parseSignaturesFile(r.getInputStream(), r.toString());
+            sources.add(SignaturesSource.stream(new SignaturesSource.Opener() {
+              @Override
+              public InputStream open() throws IOException {
+                return r.getInputStream();
+              }
+            }, r.toString()));
           }
         }
+        checker.addSignatures(sources);
         
         for (SeverityOverrideType override : severityOverrides) {
           if (override.severity == null) {
@@ -210,9 +246,22 @@ public class AntTask extends Task implements Constants {
           if (restrictClassFilename && name != null && !name.endsWith(".class")) {
             continue;
           }
-          try (InputStream in = r.getInputStream()) {
-            checker.streamReadClassToCheck(in, r.getName());
-          }
+          checker.addClassToCheck(new ClassBytesSource() {
+            @Override
+            public String getName() {
+              return r.getName();
+            }
+            
+            @Override
+            public InputStream openStream() throws IOException {
+              return r.getInputStream();
+            }
+            
+            @Override
+            public long getSize() {
+              return r.getSize();
+            }
+          });
           foundClass = true;
         }
         if (!foundClass) {
@@ -233,6 +282,7 @@ public class AntTask extends Task implements Constants {
         throw new BuildException(fae.getMessage(), fae.getCause());
       }
     } finally {
+      if (checker != null) checker.close();
       if (antLoader != null) antLoader.cleanup();
     }
   }
@@ -444,4 +494,78 @@ public class AntTask extends Task implements Constants {
   public void setDisableClassloadingCache(boolean disableClassloadingCache) {
     this.disableClassloadingCache = disableClassloadingCache;
   }
+  
+  /**
+   * Number of threads used to scan the class files. With more than one thread,
+   * the classes are scanned in parallel, but violations are still reported in
+   * the same order.
+   * The default is {@code 1}.
+   * @since 3.11
+   */
+  public void setThreads(int threads) {
+    this.threads = threads;
+  }
+  
+  /**
+   * Enables the low memory mode: The bytecode of the class files is not kept in memory
+   * after loading their metadata, it is read a second time from the resources while scanning.
+   * This reduces the memory usage for large projects, but needs more I/O.
+   * The default is {@code false}.
+   * @since 3.11
+   */
+  public void setLowMemory(boolean lowMemory) {
+    this.lowMemory = lowMemory;
+  }
+  
+  /**
+   * Resolves the signatures against the classpath on first use of their class while scanning,
+   * instead of loading all classes of all signatures before. Problems with unresolvable signatures
+   * are reported after scanning; for classes that are never used by the checked code, it is only
+   * checked that they exist (their methods and fields are not validated).
+   * The default is {@code false}.
+   * @since 3.11
+   */
+  public void setLazySignatureResolution(boolean lazySignatureResolution) {
+    this.lazySignatureResolution = lazySignatureResolution;
+  }
+  
+  /**
+   * Directory of a persistent cache for the metadata of runtime classes. If given, the
+   * runtime classes don't need to be parsed again on later runs with the same Java runtime.
+   * The default is no cache.
+   * @since 3.11
+   */
+  public void setCacheDirectory(File cacheDirectory) {
+    this.cacheDirectory = cacheDirectory;
+  }
+  
+  /**
+   * File to store the results of this check for incremental checks. If given, class files that
+   * did not change (and whose referenced classes did not change) are not scanned again on later
+   * runs with the same configuration; their violations are reported from the file.
+   * The default is to scan all classes.
+   * @since 3.11
+   */
+  public void setIncrementalCacheFile(File incrementalCacheFile) {
+    this.incrementalCacheFile = incrementalCacheFile;
+  }
+  
+  /**
+   * Logs statistics after scanning: the time spent in the phases of the check and counters
+   * like the number of related classes loaded, lookups and bytes read.
+   * The default is {@code false}.
+   * @since 3.11
+   */
+  public void setStatistics(boolean statistics) {
+    this.statistics = statistics;
+  }
+  
+  /**
+   * File to write the statistics (see {@link #setStatistics(boolean)}) to as JSON after scanning.
+   * The default is to not write statistics.
+   * @since 3.11
+   */
+  public void setStatisticsFile(File statisticsFile) {
+    this.statisticsFile = statisticsFile;
+  }
 }
@@ -0,0 +1,423 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis.cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+
+import de.thetaphi.forbiddenapis.Logger;
+import de.thetaphi.forbiddenapis.SharedCache;
+import de.thetaphi.forbiddenapis.StdIoLogger;
+
+/**
+ * Long-running daemon for the CLI: It keeps the parsed bundled signatures and the metadata of runtime classes
+ * and classes in JAR files (see {@link SharedCache}) in memory, so repeated checks (e.g., one per module of a
+ * build) don't need to start a JVM and read them again. The daemon listens on a port of the loopback interface
+ * and writes the port and a random secret to a port file, which is only readable by the current user (if supported
+ * by the file system). {@link CliMain} forwards its arguments to the daemon, if the port file is given with {@code --daemon}.
+ */
+public final class CliDaemon {
+
+  static final int MAGIC = 0x46414444; // "FADD"
+  static final byte CMD_RUN = 'R', CMD_STOP = 'S';
+  static final byte MSG_ERROR = 'E', MSG_WARN = 'W', MSG_INFO = 'I', MSG_DEBUG = 'D', MSG_EXIT = 'X';
+
+  /** upper limit for strings and argument counts, so garbage sent to the port cannot exhaust the memory */
+  private static final int MAX_LENGTH = 16 * 1024 * 1024;
+  /** clients send the whole request at once, so connections that stay silent are closed after this time */
+  private static final int HANDSHAKE_TIMEOUT_MILLIS = 10000;
+
+  private final Logger logger;
+  private final File portFile;
+  private final ServerSocket server;
+  private final String secret;
+  private final SharedCache sharedCache = new SharedCache();
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  CliDaemon(Logger logger, File portFile, int port) throws IOException {
+    this.logger = logger;
+    this.portFile = portFile;
+    this.secret = new BigInteger(128, new SecureRandom()).toString(16);
+    this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    try {
+      writePortFile();
+    } catch (IOException ioe) {
+      server.close();
+      throw ioe;
+    }
+  }
+
+  private void writePortFile() throws IOException {
+    final Path path = portFile.toPath();
+    Files.deleteIfExists(path);
+    final Path dir = path.toAbsolutePath().getParent();
+    if (dir != null) {
+      Files.createDirectories(dir);
+    }
+    if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+      Files.createFile(path, PosixFilePermissions.asFileAttribute(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE)));
+    } else {
+      Files.createFile(path);
+    }
+    Files.write(path, (server.getLocalPort() + "\n" + secret + "\n").getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Returns the port the daemon is listening on. */
+  int getPort() {
+    return server.getLocalPort();
+  }
+
+  /** Accepts connections until the daemon is stopped. Each connection is handled in its own thread. */
+  void serve() throws IOException {
+    logger.info(String.format(Locale.ENGLISH, "Daemon listening on port %d (port file: %s).", getPort(), portFile));
+    try {
+      while (true) {
+        final Socket socket;
+        try {
+          socket = server.accept();
+        } catch (SocketException se) {
+          if (server.isClosed()) {
+            break; // stopped
+          }
+          throw se;
+        }
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            handle(socket);
+          }
+        });
+      }
+    } finally {
+      stop();
+      executor.shutdown();
+    }
+    logger.info("Daemon stopped.");
+  }
+
+  /** Stops accepting connections and deletes the port file. Running checks are completed. */
+  void stop() {
+    try {
+      server.close();
+    } catch (IOException ioe) {
+      // ignore
+    }
+    try {
+      Files.deleteIfExists(portFile.toPath());
+    } catch (IOException ioe) {
+      logger.warn("Cannot delete port file: " + ioe);
+    }
+  }
+
+  /** Reads the secret sent by the client and compares it. Secrets longer than ours are not read at all, so
+   * unauthenticated clients cannot make the daemon allocate large arrays. */
+  private boolean readSecret(DataInputStream in) throws IOException {
+    final byte[] expected = secret.getBytes(StandardCharsets.UTF_8);
+    final int len = in.readInt();
+    if (len < 0 || len > expected.length + 4) {
+      return false;
+    }
+    final byte[] bytes = new byte[len];
+    in.readFully(bytes);
+    return MessageDigest.isEqual(expected, bytes);
+  }
+
+  void handle(Socket socket) {
+    try (final Socket s = socket) {
+      s.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+      final DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+      final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+      if (in.readInt() != MAGIC || !readSecret(in)) {
+        logger.warn("Rejected connection with invalid secret from: " + s.getRemoteSocketAddress());
+        return;
+      }
+      final RemoteLogger remote = new RemoteLogger(out);
+      final byte command = in.readByte();
+      if (command == CMD_STOP) {
+        remote.exit(CliMain.EXIT_SUCCESS);
+        stop();
+        return;
+      }
+      if (command != CMD_RUN) {
+        logger.warn("Rejected connection with unknown command: " + command);
+        return;
+      }
+      final File workingDirectory = new File(readString(in));
+      final String[] args = new String[readLength(in)];
+      for (int i = 0; i < args.length; i++) {
+        args[i] = readString(in);
+      }
+      int exitCode;
+      try {
+        new CliMain(remote, workingDirectory, sharedCache, args).run();
+        exitCode = CliMain.EXIT_SUCCESS;
+      } catch (ExitException e) {
+        if (e.getMessage() != null) {
+          remote.error(e.getMessage());
+        }
+        exitCode = e.exitCode;
+      } catch (RuntimeException re) {
+        remote.error("Unexpected error in daemon: " + re);
+        exitCode = CliMain.EXIT_ERR_OTHER;
+      }
+      remote.exit(exitCode);
+      logger.debug("Finished check in " + workingDirectory + " (exit code " + exitCode + "), cache: " + sharedCache);
+    } catch (IOException ioe) {
+      logger.warn("Communication with client failed: " + ioe);
+    }
+  }
+
+  /** Sends all messages of a check to the client. If the client went away, the messages are dropped. */
+  private static final class RemoteLogger implements Logger {
+    private final DataOutputStream out;
+    private boolean failed = false;
+
+    RemoteLogger(DataOutputStream out) {
+      this.out = out;
+    }
+
+    private synchronized void send(byte type, String msg) {
+      if (failed) {
+        return;
+      }
+      try {
+        out.writeByte(type);
+        writeString(out, msg);
+        out.flush();
+      } catch (IOException ioe) {
+        failed = true;
+      }
+    }
+
+    synchronized void exit(int exitCode) throws IOException {
+      out.writeByte(MSG_EXIT);
+      out.writeInt(exitCode);
+      out.flush();
+    }
+
+    @Override
+    public void error(String msg) {
+      send(MSG_ERROR, msg);
+    }
+
+    @Override
+    public void warn(String msg) {
+      send(MSG_WARN, msg);
+    }
+
+    @Override
+    public void info(String msg) {
+      send(MSG_INFO, msg);
+    }
+
+    @Override
+    public void debug(String msg) {
+      send(MSG_DEBUG, msg);
+    }
+  }
+
+  /** Sends a command to the daemon of the given port file and prints its messages to the given logger.
+   * Returns the exit code of the check. If no daemon is running, {@link FileNotFoundException} (no port file)
+   * or {@link java.net.ConnectException} is thrown. */
+  static int forward(File portFile, byte command, File workingDirectory, String[] args, Logger logger) throws IOException {
+    if (!portFile.isFile()) {
+      throw new FileNotFoundException("Port file of daemon not found: " + portFile);
+    }
+    final List<String> lines = Files.readAllLines(portFile.toPath(), StandardCharsets.UTF_8);
+    final int port;
+    try {
+      port = (lines.size() < 2) ? -1 : Integer.parseInt(lines.get(0).trim());
+    } catch (NumberFormatException nfe) {
+      throw new IOException("Invalid port file of daemon: " + portFile);
+    }
+    if (port < 0) {
+      throw new IOException("Invalid port file of daemon: " + portFile);
+    }
+    try (final Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+      final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      out.writeInt(MAGIC);
+      writeString(out, lines.get(1).trim());
+      out.writeByte(command);
+      if (command == CMD_RUN) {
+        writeString(out, workingDirectory.getPath());
+        out.writeInt(args.length);
+        for (final String arg : args) {
+          writeString(out, arg);
+        }
+      }
+      out.flush();
+      while (true) {
+        final byte type = in.readByte();
+        if (type == MSG_EXIT) {
+          return in.readInt();
+        }
+        final String msg = readString(in);
+        switch (type) {
+          case MSG_ERROR:
+            logger.error(msg);
+            break;
+          case MSG_WARN:
+            logger.warn(msg);
+            break;
+          case MSG_INFO:
+            logger.info(msg);
+            break;
+          case MSG_DEBUG:
+            logger.debug(msg);
+            break;
+          default:
+            throw new IOException("Invalid message type received from daemon: " + type);
+        }
+      }
+    }
+  }
+
+  static void writeString(DataOutputStream out, String s) throws IOException {
+    final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  static String readString(DataInputStream in) throws IOException {
+    final byte[] bytes = new byte[readLength(in)];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static int readLength(DataInputStream in) throws IOException {
+    final int len = in.readInt();
+    if (len < 0 || len > MAX_LENGTH) {
+      throw new IOException("Invalid length received: " + len);
+    }
+    return len;
+  }
+
+  private static void printHelp(Options options) {
+    new HelpFormatter().printHelp("java -cp forbiddenapis.jar " + CliDaemon.class.getName() + " [options]",
+      "Runs a daemon that executes checks forwarded by the CLI (option '--daemon'), keeping its caches warm between them.",
+      options,
+      null
+    );
+  }
+
+  public static void main(String... args) {
+    final Options options = new Options();
+    final Option portfileOpt, portOpt, stopOpt, debugOpt;
+    options.addOption(portfileOpt = Option.builder()
+        .desc("file to write the port and secret of the daemon to; clients must pass it with '--daemon' (required)")
+        .longOpt("portfile")
+        .hasArg()
+        .argName("file")
+        .required()
+        .build());
+    options.addOption(portOpt = Option.builder()
+        .desc("port to listen on (loopback interface only), defaults to a free port")
+        .longOpt("port")
+        .hasArg()
+        .argName("port")
+        .build());
+    options.addOption(stopOpt = Option.builder()
+        .desc("stop the daemon of the given port file")
+        .longOpt("stop")
+        .build());
+    options.addOption(debugOpt = Option.builder()
+        .desc("enable debug logging (stderr)")
+        .longOpt("debug")
+        .build());
+    try {
+      final CommandLine cmd;
+      try {
+        cmd = new DefaultParser().parse(options, args);
+      } catch (org.apache.commons.cli.ParseException pe) {
+        StdIoLogger.INSTANCE.error(pe.getMessage());
+        printHelp(options);
+        throw new ExitException(CliMain.EXIT_ERR_CMDLINE);
+      }
+      final Logger logger = cmd.hasOption(debugOpt.getLongOpt()) ? StdIoLogger.INSTANCE_DEBUG : StdIoLogger.INSTANCE;
+      final File portFile = new File(cmd.getOptionValue(portfileOpt.getLongOpt())).getAbsoluteFile();
+      if (cmd.hasOption(stopOpt.getLongOpt())) {
+        try {
+          forward(portFile, CMD_STOP, null, null, logger);
+        } catch (IOException ioe) {
+          throw new ExitException(CliMain.EXIT_ERR_OTHER, "Cannot stop daemon: " + ioe);
+        }
+        return;
+      }
+      final int port;
+      try {
+        port = Integer.parseInt(cmd.getOptionValue(portOpt.getLongOpt(), "0"));
+      } catch (NumberFormatException nfe) {
+        throw new ExitException(CliMain.EXIT_ERR_CMDLINE, "Invalid port: " + cmd.getOptionValue(portOpt.getLongOpt()));
+      }
+      final CliDaemon daemon;
+      try {
+        daemon = new CliDaemon(logger, portFile, port);
+      } catch (IOException ioe) {
+        throw new ExitException(CliMain.EXIT_ERR_OTHER, "Cannot start daemon: " + ioe);
+      }
+      Runtime.getRuntime().addShutdownHook(new Thread() {
+        @Override
+        public void run() {
+          daemon.stop();
+        }
+      });
+      try {
+        daemon.serve();
+      } catch (IOException ioe) {
+        throw new ExitException(CliMain.EXIT_ERR_OTHER, "Daemon failed: " + ioe);
+      }
+    } catch (ExitException e) {
+      if (e.getMessage() != null) {
+        StdIoLogger.INSTANCE.error(e.getMessage());
+      }
+      if (e.exitCode != 0) {
+        System.exit(e.exitCode);
+      }
+    }
+  }
+
+}
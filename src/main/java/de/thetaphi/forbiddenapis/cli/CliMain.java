@@ -19,21 +19,25 @@ package de.thetaphi.forbiddenapis.cli;
 import static de.thetaphi.forbiddenapis.Checker.Option.*;
 
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.net.ConnectException;
 import java.net.JarURLConnection;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.net.URLConnection;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Enumeration;
 import java.util.EnumSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipFile;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.DefaultParser;
@@ -46,10 +50,13 @@ import org.codehaus.plexus.util.SelectorUtils;
 
 import de.thetaphi.forbiddenapis.AsmUtils;
 import de.thetaphi.forbiddenapis.Checker;
+import de.thetaphi.forbiddenapis.ClassBytesSource;
 import de.thetaphi.forbiddenapis.Constants;
 import de.thetaphi.forbiddenapis.ForbiddenApiException;
 import de.thetaphi.forbiddenapis.Logger;
 import de.thetaphi.forbiddenapis.ParseException;
+import de.thetaphi.forbiddenapis.SharedCache;
+import de.thetaphi.forbiddenapis.SignaturesSource;
 import de.thetaphi.forbiddenapis.StdIoLogger;
 
 /**
@@ -60,8 +67,13 @@ public final class CliMain implements Constants {
   private final Logger logger;
   private final Option classpathOpt, dirOpt, includesOpt, excludesOpt, signaturesfileOpt, bundledsignaturesOpt, signatureswithseveritysuppressOpt, 
     signatureswithseveritywarnOpt, suppressannotationsOpt, allowmissingclassesOpt, ignoresignaturesofmissingclassesOpt, allowunresolvablesignaturesOpt,
-    versionOpt, helpOpt, debugOpt;
+    threadsOpt, lowmemoryOpt, lazysignaturesOpt, cachedirOpt, incrementalOpt, statsOpt, statsjsonOpt, daemonOpt, versionOpt, helpOpt, debugOpt;
   private final CommandLine cmd;
+  private final String[] args;
+  /** directory to resolve relative paths against, {@code null} to use the current one */
+  private final File workingDirectory;
+  /** the cache of the daemon, if running inside {@link CliDaemon}, otherwise {@code null} */
+  private final SharedCache sharedCache;
   
   public static final int EXIT_SUCCESS = 0;
   public static final int EXIT_VIOLATION = 1;
@@ -70,6 +82,15 @@ public final class CliMain implements Constants {
   public static final int EXIT_ERR_OTHER = 4;
 
   public CliMain(String... args) throws ExitException {
+    this(null, null, null, args);
+  }
+  
+  /** Used by {@link CliDaemon} to run a check on behalf of a client: messages go to the given logger, relative paths
+   * are resolved against the client's working directory, and all class metadata is shared with other runs. */
+  CliMain(Logger logger, File workingDirectory, SharedCache sharedCache, String... args) throws ExitException {
+    this.args = args;
+    this.workingDirectory = workingDirectory;
+    this.sharedCache = sharedCache;
     final OptionGroup required = new OptionGroup();
     required.setRequired(true);
     required.addOption(dirOpt = Option.builder("d")
@@ -160,11 +181,59 @@ public final class CliMain implements Constants {
         .desc("DEPRECATED: don't fail if a signature is not resolving")
         .longOpt("allowunresolvablesignatures")
         .build());
+    options.addOption(threadsOpt = Option.builder()
+        .desc("number of threads to use for scanning the class files (defaults to 1)")
+        .longOpt("threads")
+        .hasArg()
+        .argName("count")
+        .build());
+    options.addOption(lowmemoryOpt = Option.builder()
+        .desc("don't keep the bytecode of all class files in memory, read them a second time while scanning")
+        .longOpt("lowmemory")
+        .build());
+    options.addOption(lazysignaturesOpt = Option.builder()
+        .desc("resolve signatures on first use of their class while scanning (unresolvable signatures are reported after scanning)")
+        .longOpt("lazysignatures")
+        .build());
+    options.addOption(cachedirOpt = Option.builder()
+        .desc("enable the persistent cache for metadata of runtime classes in the given directory (defaults to the user's cache directory, if no directory is given)")
+        .longOpt("cachedir")
+        .hasArg()
+        .optionalArg(true)
+        .argName("directory")
+        .build());
+    options.addOption(incrementalOpt = Option.builder()
+        .desc("enable incremental checks: store results in the given file and only scan changed class files on later runs")
+        .longOpt("incremental")
+        .hasArg()
+        .argName("file")
+        .build());
+    options.addOption(statsOpt = Option.builder()
+        .desc("print statistics (phase times, classes loaded, lookups, bytes read) after scanning")
+        .longOpt("stats")
+        .build());
+    options.addOption(statsjsonOpt = Option.builder()
+        .desc("write statistics as JSON to the given file after scanning")
+        .longOpt("stats-json")
+        .hasArg()
+        .argName("file")
+        .build());
+    options.addOption(daemonOpt = Option.builder()
+        .desc("forward the check to a running daemon (see " + CliDaemon.class.getName() + "), which keeps its caches warm between runs; "
+            + "the file is the port file of the daemon (if no daemon is running, the check runs in this process)")
+        .longOpt("daemon")
+        .hasArg()
+        .argName("portfile")
+        .build());
     
     try {
       this.cmd = new DefaultParser().parse(options, args);
       final boolean debugLogging = cmd.hasOption(debugOpt.getLongOpt());
-      this.logger = debugLogging ? StdIoLogger.INSTANCE_DEBUG : StdIoLogger.INSTANCE;
+      if (logger != null) {
+        this.logger = logger;
+      } else {
+        this.logger = debugLogging ? StdIoLogger.INSTANCE_DEBUG : StdIoLogger.INSTANCE;
+      }
       if (cmd.hasOption(helpOpt.getLongOpt())) {
         printHelp(options);
         throw new ExitException(EXIT_SUCCESS);
@@ -218,8 +287,36 @@ public final class CliMain implements Constants {
     );
   }
   
+  /** Returns the absolute file for the given path, relative paths are resolved against the working directory. */
+  private File getFile(String path) {
+    final File f = new File(path);
+    return (workingDirectory == null || f.isAbsolute()) ? f.getAbsoluteFile() : new File(workingDirectory, path);
+  }
+  
   public void run() throws ExitException {
-    final File classesDirectory = new File(cmd.getOptionValue(dirOpt.getLongOpt())).getAbsoluteFile();
+    final String daemonPortFile = cmd.getOptionValue(daemonOpt.getLongOpt());
+    if (daemonPortFile != null && sharedCache == null) {
+      final File portFile = getFile(daemonPortFile);
+      final int exitCode;
+      try {
+        exitCode = CliDaemon.forward(portFile, CliDaemon.CMD_RUN, new File("").getAbsoluteFile(), args, logger);
+      } catch (FileNotFoundException | ConnectException e) {
+        logger.warn("No daemon is running (" + e.getMessage() + "), running the check in this process.");
+        runChecks();
+        return;
+      } catch (IOException ioe) {
+        throw new ExitException(EXIT_ERR_OTHER, "Communication with daemon failed: " + ioe);
+      }
+      if (exitCode != EXIT_SUCCESS) {
+        throw new ExitException(exitCode);
+      }
+      return;
+    }
+    runChecks();
+  }
+  
+  private void runChecks() throws ExitException {
+    final File classesDirectory = getFile(cmd.getOptionValue(dirOpt.getLongOpt()));
 
     // parse classpath given as argument; add -d to classpath, too
     final String[] classpath = cmd.getOptionValues(classpathOpt.getLongOpt());
@@ -231,7 +328,7 @@ public final class CliMain implements Constants {
         urls = new URL[classpath.length + 1];
         int i = 0;
         for (final String cpElement : classpath) {
-          urls[i++] = new File(cpElement).toURI().toURL();
+          urls[i++] = getFile(cpElement).toURI().toURL();
         }
         urls[i++] = classesDirectory.toURI().toURL();
         assert i == urls.length;
@@ -241,6 +338,7 @@ public final class CliMain implements Constants {
     }
     logger.debug("Classpath: " + Arrays.toString(urls));
 
+    Checker checker = null;
     try (final URLClassLoader loader = URLClassLoader.newInstance(urls, ClassLoader.getSystemClassLoader())) {
       final EnumSet<Checker.Option> options = EnumSet.of(FAIL_ON_VIOLATION);
       if (!cmd.hasOption(allowmissingclassesOpt.getLongOpt())) options.add(FAIL_ON_MISSING_CLASSES);
@@ -252,7 +350,34 @@ public final class CliMain implements Constants {
       if (cmd.hasOption(ignoresignaturesofmissingclassesOpt.getLongOpt())) {
         options.add(IGNORE_SIGNATURES_OF_MISSING_CLASSES);
       }
-      final Checker checker = new Checker(logger, loader, options);
+      if (cmd.hasOption(lazysignaturesOpt.getLongOpt())) {
+        options.add(LAZY_SIGNATURE_RESOLUTION);
+      }
+      checker = new Checker(logger, loader, options);
+      checker.setSharedCache(sharedCache);
+      
+      final String threads = cmd.getOptionValue(threadsOpt.getLongOpt());
+      if (threads != null) {
+        try {
+          checker.setThreads(Integer.parseInt(threads));
+        } catch (IllegalArgumentException iae) {
+          throw new ExitException(EXIT_ERR_CMDLINE, "Invalid number of threads: " + threads);
+        }
+      }
+      checker.setLowMemory(cmd.hasOption(lowmemoryOpt.getLongOpt()));
+      if (cmd.hasOption(cachedirOpt.getLongOpt())) {
+        final String cacheDir = cmd.getOptionValue(cachedirOpt.getLongOpt());
+        checker.setCacheDirectory((cacheDir == null) ? Checker.getDefaultCacheDirectory() : getFile(cacheDir));
+      }
+      final String incrementalFile = cmd.getOptionValue(incrementalOpt.getLongOpt());
+      if (incrementalFile != null) {
+        checker.setIncrementalCacheFile(getFile(incrementalFile));
+      }
+      checker.setLogStatistics(cmd.hasOption(statsOpt.getLongOpt()));
+      final String statsFile = cmd.getOptionValue(statsjsonOpt.getLongOpt());
+      if (statsFile != null) {
+        checker.setStatisticsFile(getFile(statsFile));
+      }
       
       if (!checker.isSupportedJDK) {
         throw new ExitException(EXIT_UNSUPPORTED_JDK, String.format(Locale.ENGLISH, 
@@ -266,16 +391,18 @@ public final class CliMain implements Constants {
       }
       
       try {
+        final List<SignaturesSource> sources = new ArrayList<>();
         final String[] bundledSignatures = cmd.getOptionValues(bundledsignaturesOpt.getLongOpt());
         if (bundledSignatures != null) for (String bs : new LinkedHashSet<>(Arrays.asList(bundledSignatures))) {
-          checker.addBundledSignatures(bs, null);
+          sources.add(SignaturesSource.bundled(bs, null));
         }
         
         final String[] signaturesFiles = cmd.getOptionValues(signaturesfileOpt.getLongOpt());
         if (signaturesFiles != null) for (String sf : new LinkedHashSet<>(Arrays.asList(signaturesFiles))) {
-          final File f = new File(sf).getAbsoluteFile();
-          checker.parseSignaturesFile(f);
+          final File f = getFile(sf);
+          sources.add(SignaturesSource.file(f));
         }
+        checker.addSignatures(sources);
         final String[] signaturesWithSeverityWarn = cmd.getOptionValues(signatureswithseveritywarnOpt.getLongOpt());
         if (signaturesWithSeverityWarn != null) {
           checker.setSignaturesSeverity(Arrays.asList(signaturesWithSeverityWarn), Checker.ViolationSeverity.WARNING);
@@ -313,30 +440,33 @@ public final class CliMain implements Constants {
       }
       final String[] excludes = cmd.getOptionValues(excludesOpt.getLongOpt());
       
-      if (classesDirectory.isDirectory()) {
-        final DirectoryScanner ds = new DirectoryScanner();
-        ds.setBasedir(classesDirectory);
-        ds.setCaseSensitive(true);
-        ds.setIncludes(includes);
-        ds.setExcludes(excludes);
-        ds.addDefaultExcludes();
-        ds.scan();
-        final String[] files = ds.getIncludedFiles();
-        if (files.length == 0) {
-          throw new ExitException(EXIT_ERR_OTHER, String.format(Locale.ENGLISH,
-            "No classes found in directory %s (includes=%s, excludes=%s).",
-            classesDirectory, Arrays.toString(includes), Arrays.toString(excludes)));
-        }
-        try {
-          checker.addClassesToCheck(classesDirectory, files);
-        } catch (IOException ioe) {
-          throw new ExitException(EXIT_ERR_OTHER, "Failed to load one of the given class files: " + ioe);
-        }
-      } else if (classesDirectory.getName().matches("(?i).*\\.(zip|jar)")) {
-        int filesFound = 0;
-        try (final ZipInputStream zipin = new ZipInputStream(new FileInputStream(classesDirectory))) {
-          ZipEntry entry;
-          while ((entry = zipin.getNextEntry()) != null) {
+      // in low memory mode, the ZIP file must stay open while checking:
+      ZipFile zip = null;
+      try {
+        if (classesDirectory.isDirectory()) {
+          final DirectoryScanner ds = new DirectoryScanner();
+          ds.setBasedir(classesDirectory);
+          ds.setCaseSensitive(true);
+          ds.setIncludes(includes);
+          ds.setExcludes(excludes);
+          ds.addDefaultExcludes();
+          ds.scan();
+          final String[] files = ds.getIncludedFiles();
+          if (files.length == 0) {
+            throw new ExitException(EXIT_ERR_OTHER, String.format(Locale.ENGLISH,
+              "No classes found in directory %s (includes=%s, excludes=%s).",
+              classesDirectory, Arrays.toString(includes), Arrays.toString(excludes)));
+          }
+          try {
+            checker.addClassesToCheck(classesDirectory, files);
+          } catch (IOException ioe) {
+            throw new ExitException(EXIT_ERR_OTHER, "Failed to load one of the given class files: " + ioe);
+          }
+        } else if (classesDirectory.getName().matches("(?i).*\\.(zip|jar)")) {
+          int filesFound = 0;
+          zip = new ZipFile(classesDirectory);
+          for (final Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements();) {
+            final ZipEntry entry = entries.nextElement();
             if (entry.isDirectory()) continue;
             // ZIP files sometimes contain leading extra slash, remove it after normalization:
             final String normalizedName = normalizePath(entry.getName())
@@ -352,7 +482,7 @@ public final class CliMain implements Constants {
                   }
                 }
                 try {
-                  checker.streamReadClassToCheck(zipin, entry.getName());
+                  checker.addClassToCheck(ClassBytesSource.of(zip, entry));
                   filesFound++;
                 } catch (IOException ioe) {
                   throw new ExitException(EXIT_ERR_OTHER, String.format(Locale.ENGLISH,
@@ -362,23 +492,29 @@ public final class CliMain implements Constants {
               }
             }
           }
+          if (filesFound == 0) {
+            throw new ExitException(EXIT_ERR_OTHER, String.format(Locale.ENGLISH,
+              "No classes found in jar/zip file %s (includes=%s, excludes=%s).",
+              classesDirectory, Arrays.toString(includes), Arrays.toString(excludes)));
+          }
+        } else {
+          throw new ExitException(EXIT_ERR_OTHER, "Classes directory parameter is neither a directory or a jar/zip file.");
         }
-        if (filesFound == 0) {
-          throw new ExitException(EXIT_ERR_OTHER, String.format(Locale.ENGLISH,
-            "No classes found in jar/zip file %s (includes=%s, excludes=%s).",
-            classesDirectory, Arrays.toString(includes), Arrays.toString(excludes)));
-        }
-      } else {
-        throw new ExitException(EXIT_ERR_OTHER, "Classes directory parameter is neither a directory or a jar/zip file.");
-      }
 
-      try {
-        checker.run();
-      } catch (ForbiddenApiException fae) {
-        throw new ExitException(EXIT_VIOLATION, fae.getMessage());
+        try {
+          checker.run();
+        } catch (ForbiddenApiException fae) {
+          throw new ExitException(EXIT_VIOLATION, fae.getMessage());
+        }
+      } finally {
+        if (zip != null) {
+          zip.close();
+        }
       }
     } catch (IOException ioe) {
       throw new ExitException(EXIT_ERR_OTHER, "General IO problem: " + ioe);
+    } finally {
+      if (checker != null) checker.close();
     }
   }
   
@@ -25,6 +25,7 @@ import java.lang.annotation.RetentionPolicy;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -60,6 +61,7 @@ import de.thetaphi.forbiddenapis.Constants;
 import de.thetaphi.forbiddenapis.ForbiddenApiException;
 import de.thetaphi.forbiddenapis.Logger;
 import de.thetaphi.forbiddenapis.ParseException;
+import de.thetaphi.forbiddenapis.SignaturesSource;
 
 /**
  * <h3>ForbiddenApis Gradle Task (requires at least Gradle v3.2)</h3>
@@ -121,6 +123,9 @@ public class CheckForbiddenApis extends DefaultTask implements PatternFilterable
   private FileCollection classesDirs;
   private FileCollection classpath;
   private String targetCompatibility;
+  private File incrementalCacheFile;
+  private boolean statistics = false;
+  private File statisticsFile;
   
   /** Gives access to internal data of plugin to plugin-init.groovy */
   CheckForbiddenApisExtension internalTaskData() {
@@ -383,6 +388,146 @@ public class CheckForbiddenApis extends DefaultTask implements PatternFilterable
     data.disableClassloadingCache = disableClassloadingCache;
   }
 
+  /**
+   * Number of threads used to scan the class files. With more than one thread,
+   * the classes are scanned in parallel, but violations are still reported in
+   * the same order. This setting does not change the result of the task.
+   * Defaults to {@code 1}.
+   * @since 3.11
+   */
+  @Internal
+  public int getThreads() {
+    return data.threads;
+  }
+
+  /** @see #getThreads */
+  public void setThreads(int threads) {
+    data.threads = threads;
+  }
+
+  /**
+   * Enables the low memory mode: The bytecode of the class files is not kept in memory
+   * after loading their metadata, it is read a second time while scanning. This reduces
+   * the memory usage for large projects, but needs more I/O.
+   * This setting does not change the result of the task.
+   * Defaults to {@code false}.
+   * @since 3.11
+   */
+  @Internal
+  public boolean getLowMemory() {
+    return data.lowMemory;
+  }
+
+  /** @see #getLowMemory */
+  public void setLowMemory(boolean lowMemory) {
+    data.lowMemory = lowMemory;
+  }
+
+  /**
+   * Resolves the signatures against the classpath on first use of their class while scanning,
+   * instead of loading all classes of all signatures before. Problems with unresolvable signatures
+   * are reported after scanning; for classes that are never used by the checked code, it is only
+   * checked that they exist (their methods and fields are not validated).
+   * Defaults to {@code false}.
+   * @since 3.11
+   */
+  @Input
+  public boolean getLazySignatureResolution() {
+    return data.lazySignatureResolution;
+  }
+
+  /** @see #getLazySignatureResolution */
+  public void setLazySignatureResolution(boolean lazySignatureResolution) {
+    data.lazySignatureResolution = lazySignatureResolution;
+  }
+
+  /**
+   * Directory of a persistent cache for the metadata of runtime classes. If given, the
+   * runtime classes don't need to be parsed again on later runs with the same Java runtime.
+   * This setting does not change the result of the task.
+   * Defaults to no cache.
+   * @since 3.11
+   */
+  @Internal
+  public File getCacheDirectory() {
+    return data.cacheDirectory;
+  }
+
+  /** @see #getCacheDirectory */
+  public void setCacheDirectory(File cacheDirectory) {
+    data.cacheDirectory = cacheDirectory;
+  }
+
+  /**
+   * File to store the results of this task for incremental checks. If given, class files that
+   * did not change (and whose referenced classes did not change) are not scanned again on later
+   * runs with the same configuration; their violations are reported from the file.
+   * This setting does not change the result of the task, so every task needs its own file.
+   * Defaults to scanning all classes.
+   * @since 3.11
+   */
+  @Internal
+  public File getIncrementalCacheFile() {
+    return incrementalCacheFile;
+  }
+
+  /** @see #getIncrementalCacheFile */
+  public void setIncrementalCacheFile(File incrementalCacheFile) {
+    this.incrementalCacheFile = incrementalCacheFile;
+  }
+
+  /**
+   * Logs statistics after scanning: the time spent in the phases of the check and counters
+   * like the number of related classes loaded, lookups and bytes read.
+   * This setting does not change the result of the task.
+   * Defaults to {@code false}.
+   * @since 3.11
+   */
+  @Internal
+  public boolean getStatistics() {
+    return statistics;
+  }
+
+  /** @see #getStatistics */
+  public void setStatistics(boolean statistics) {
+    this.statistics = statistics;
+  }
+
+  /**
+   * File to write the statistics (see {@link #getStatistics()}) to as JSON after scanning.
+   * This setting does not change the result of the task, so every task needs its own file.
+   * Defaults to not writing statistics.
+   * @since 3.11
+   */
+  @Internal
+  public File getStatisticsFile() {
+    return statisticsFile;
+  }
+
+  /** @see #getStatisticsFile */
+  public void setStatisticsFile(File statisticsFile) {
+    this.statisticsFile = statisticsFile;
+  }
+
+  /**
+   * Shares the metadata of runtime classes and classes in JAR files on the classpath, and the bundled signatures,
+   * with all other tasks running in the same JVM that enable this setting, so it is only loaded once per
+   * <em>Gradle Daemon</em> session. JAR files are validated by size and modification time; the least recently used
+   * ones are dropped, so memory usage of the daemon stays bounded.
+   * This setting does not change the result of the task.
+   * Defaults to {@code true}.
+   * @since 3.11
+   */
+  @Internal
+  public boolean getSharedCache() {
+    return data.sharedCache;
+  }
+
+  /** @see #getSharedCache */
+  public void setSharedCache(boolean sharedCache) {
+    data.sharedCache = sharedCache;
+  }
+
   /**
    * List of a custom Java annotations (full class names) that are used in the checked
    * code to suppress errors. Those annotations must have at least
@@ -568,6 +713,7 @@ public class CheckForbiddenApis extends DefaultTask implements PatternFilterable
     log.debug("Classpath: " + humanClasspath);
 
     URLClassLoader urlLoader = null;
+    Checker checker = null;
     final ClassLoader loader = (urls.length > 0) ?
       (urlLoader = URLClassLoader.newInstance(urls, ClassLoader.getSystemClassLoader())) :
       ClassLoader.getSystemClassLoader();
@@ -583,7 +729,19 @@ public class CheckForbiddenApis extends DefaultTask implements PatternFilterable
       }
       if (getIgnoreSignaturesOfMissingClasses()) options.add(IGNORE_SIGNATURES_OF_MISSING_CLASSES);
       if (getDisableClassloadingCache()) options.add(DISABLE_CLASSLOADING_CACHE);
-      final Checker checker = new Checker(log, loader, options);
+      if (getLazySignatureResolution()) options.add(LAZY_SIGNATURE_RESOLUTION);
+      checker = new Checker(log, loader, options);
+      try {
+        checker.setThreads(getThreads());
+      } catch (IllegalArgumentException iae) {
+        throw new InvalidUserDataException(iae.getMessage(), iae);
+      }
+      checker.setCacheDirectory(getCacheDirectory());
+      checker.setSharedCache(getSharedCache() ? ForbiddenApisPluginBase.SHARED_CACHE : null);
+      checker.setLowMemory(getLowMemory());
+      checker.setIncrementalCacheFile(getIncrementalCacheFile());
+      checker.setLogStatistics(getStatistics());
+      checker.setStatisticsFile(getStatisticsFile());
       
       if (!checker.isSupportedJDK) {
         final String msg = String.format(Locale.ENGLISH, 
@@ -605,6 +763,7 @@ public class CheckForbiddenApis extends DefaultTask implements PatternFilterable
       }
       
       try {
+        final List<SignaturesSource> sources = new ArrayList<>();
         final Set<String> bundledSignatures = getBundledSignatures();
         if (bundledSignatures != null) {
           final String bundledSigsJavaVersion = getTargetCompatibility();
@@ -614,17 +773,17 @@ public class CheckForbiddenApis extends DefaultTask implements PatternFilterable
               "You have to explicitly specify the version in the resource name.");
           }
           for (String bs : bundledSignatures) {
-            checker.addBundledSignatures(bs, bundledSigsJavaVersion);
+            sources.add(SignaturesSource.bundled(bs, bundledSigsJavaVersion));
           }
         }
         
         final FileCollection signaturesFiles = getSignaturesFiles();
         if (signaturesFiles != null) for (final File f : signaturesFiles) {
-          checker.parseSignaturesFile(f);
+          sources.add(SignaturesSource.file(f));
         }
         final Set<URL> signaturesURLs = getSignaturesURLs();
         if (signaturesURLs != null) for (final URL url : signaturesURLs) {
-          checker.parseSignaturesFile(url);
+          sources.add(SignaturesSource.url(url));
         }
         final List<String> signatures = getSignatures();
         if (signatures != null && !signatures.isEmpty()) {
@@ -632,8 +791,9 @@ public class CheckForbiddenApis extends DefaultTask implements PatternFilterable
           for (String line : signatures) {
             sb.append(line).append(NL);
           }
-          checker.parseSignaturesString(sb.toString());
+          sources.add(SignaturesSource.string(sb.toString()));
         }
+        checker.addSignatures(sources);
         Set<String> signaturesWithSeverityWarn = getSignaturesWithSeverityWarn();
         if (signaturesWithSeverityWarn != null && !signaturesWithSeverityWarn.isEmpty()) {
             checker.setSignaturesSeverity(signaturesWithSeverityWarn, Checker.ViolationSeverity.WARNING);
@@ -665,6 +825,7 @@ public class CheckForbiddenApis extends DefaultTask implements PatternFilterable
 
       checker.run();
     } finally {
+      if (checker != null) checker.close();
       // Close the classloader to free resources:
       try {
         if (urlLoader != null) urlLoader.close();
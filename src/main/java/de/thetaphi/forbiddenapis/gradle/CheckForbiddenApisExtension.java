@@ -16,6 +16,7 @@
 
 package de.thetaphi.forbiddenapis.gradle;
 
+import java.io.File;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
@@ -49,6 +50,11 @@ public class CheckForbiddenApisExtension {
     failOnUnresolvableSignatures = true,
     ignoreFailures = false,
     ignoreSignaturesOfMissingClasses = false,
-    disableClassloadingCache = ForbiddenApisPluginBase.DEFAULT_DISABLE_CLASSLOADING_CACHE;
+    disableClassloadingCache = ForbiddenApisPluginBase.DEFAULT_DISABLE_CLASSLOADING_CACHE,
+    lowMemory = false,
+    lazySignatureResolution = false,
+    sharedCache = true;
+  public int threads = 1;
+  public File cacheDirectory = null;
   
 }
@@ -28,6 +28,8 @@ import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.util.GradleVersion;
 
+import de.thetaphi.forbiddenapis.SharedCache;
+
 abstract class ForbiddenApisPluginBase implements Plugin<Project> {
   
   private static final Logger LOG = Logging.getLogger(ForbiddenApisPluginBase.class);
@@ -54,6 +56,15 @@ abstract class ForbiddenApisPluginBase implements Plugin<Project> {
   /** True, if this version of Gradle supports task avoidance API (&gt;=v4.9). */
   public static final boolean TASK_AVOIDANCE_AVAILABLE = GradleVersion.current().compareTo(GradleVersion.version("4.9")) >= 0;
 
+  /**
+   * Metadata of runtime classes and classes in JAR files, and the parsed bundled signatures, shared by all
+   * {@link CheckForbiddenApis} tasks (including parallel ones) that enable it (the default) and run in this JVM while
+   * the plugin is loaded, so for the whole session of the <em>Gradle Daemon</em>. The number of JAR files it keeps
+   * is limited.
+   * @see CheckForbiddenApis#getSharedCache
+   */
+  static final SharedCache SHARED_CACHE = new SharedCache();
+
   /** All properties that our ForbiddenApisExtension provides. Used to create convention mapping. */
   protected static final List<String> FORBIDDEN_APIS_EXTENSION_PROPS = determineExtensionProps();
   
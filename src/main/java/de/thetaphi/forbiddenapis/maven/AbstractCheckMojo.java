@@ -21,6 +21,7 @@ import static de.thetaphi.forbiddenapis.Checker.Option.FAIL_ON_MISSING_CLASSES;
 import static de.thetaphi.forbiddenapis.Checker.Option.FAIL_ON_UNRESOLVABLE_SIGNATURES;
 import static de.thetaphi.forbiddenapis.Checker.Option.FAIL_ON_VIOLATION;
 import static de.thetaphi.forbiddenapis.Checker.Option.IGNORE_SIGNATURES_OF_MISSING_CLASSES;
+import static de.thetaphi.forbiddenapis.Checker.Option.LAZY_SIGNATURE_RESOLUTION;
 
 import java.io.File;
 import java.io.IOException;
@@ -30,6 +31,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.LinkedHashSet;
@@ -55,6 +57,7 @@ import de.thetaphi.forbiddenapis.Constants;
 import de.thetaphi.forbiddenapis.ForbiddenApiException;
 import de.thetaphi.forbiddenapis.Logger;
 import de.thetaphi.forbiddenapis.ParseException;
+import de.thetaphi.forbiddenapis.SignaturesSource;
 
 /**
  * Base class for forbiddenapis Mojos.
@@ -197,6 +200,71 @@ public abstract class AbstractCheckMojo extends AbstractMojo implements Constant
   @Parameter(required = false, defaultValue = "false")
   private boolean disableClassloadingCache;
 
+  /**
+   * Number of threads used to scan the class files. With more than one thread,
+   * the classes are scanned in parallel, but violations are still reported in
+   * the same order.
+   * @since 3.11
+   */
+  @Parameter(required = false, property="forbiddenapis.threads", defaultValue = "1")
+  private int threads;
+
+  /**
+   * Enables the low memory mode: The bytecode of the class files is not kept in memory
+   * after loading their metadata, it is read a second time while scanning. This reduces
+   * the memory usage for large projects, but needs more I/O.
+   * @since 3.11
+   */
+  @Parameter(required = false, property="forbiddenapis.lowMemory", defaultValue = "false")
+  private boolean lowMemory;
+
+  /**
+   * Resolves the signatures against the classpath on first use of their class while scanning,
+   * instead of loading all classes of all signatures before. Problems with unresolvable signatures
+   * are reported after scanning; for classes that are never used by the checked code, it is only
+   * checked that they exist (their methods and fields are not validated).
+   * @since 3.11
+   */
+  @Parameter(required = false, property="forbiddenapis.lazySignatureResolution", defaultValue = "false")
+  private boolean lazySignatureResolution;
+
+  /**
+   * Directory of a persistent cache for the metadata of runtime classes. If given, the
+   * runtime classes don't need to be parsed again on later runs with the same Java runtime.
+   * The default is no cache.
+   * @since 3.11
+   */
+  @Parameter(required = false, property="forbiddenapis.cacheDirectory")
+  private File cacheDirectory;
+
+  /**
+   * File to store the results of this check for incremental checks. If given, class files that
+   * did not change (and whose referenced classes did not change) are not scanned again on later
+   * runs with the same configuration; their violations are reported from the file.
+   * Use different files for the {@code check} and {@code testCheck} goals.
+   * The default is to scan all classes.
+   * @since 3.11
+   */
+  @Parameter(required = false)
+  private File incrementalCacheFile;
+
+  /**
+   * Logs statistics after scanning: the time spent in the phases of the check and counters
+   * like the number of related classes loaded, lookups and bytes read.
+   * @since 3.11
+   */
+  @Parameter(required = false, property="forbiddenapis.statistics", defaultValue = "false")
+  private boolean statistics;
+
+  /**
+   * File to write the statistics (see {@link #statistics}) to as JSON after scanning.
+   * Use different files for the {@code check} and {@code testCheck} goals.
+   * The default is to not write statistics.
+   * @since 3.11
+   */
+  @Parameter(required = false)
+  private File statisticsFile;
+
   /**
    * The default compiler target version used to expand references to bundled JDK signatures.
    * E.g., if you use "jdk-deprecated", it will expand to this version.
@@ -364,6 +432,7 @@ public abstract class AbstractCheckMojo extends AbstractMojo implements Constant
     log.debug("Classpath: " + humanClasspath);
 
     URLClassLoader urlLoader = null;
+    Checker checker = null;
     final ClassLoader loader = (urls.length > 0) ?
       (urlLoader = URLClassLoader.newInstance(urls, ClassLoader.getSystemClassLoader())) :
       ClassLoader.getSystemClassLoader();
@@ -379,7 +448,18 @@ public abstract class AbstractCheckMojo extends AbstractMojo implements Constant
       }
       if (ignoreSignaturesOfMissingClasses) options.add(IGNORE_SIGNATURES_OF_MISSING_CLASSES);
       if (disableClassloadingCache) options.add(DISABLE_CLASSLOADING_CACHE);
-      final Checker checker = new Checker(log, loader, options);
+      if (lazySignatureResolution) options.add(LAZY_SIGNATURE_RESOLUTION);
+      checker = new Checker(log, loader, options);
+      try {
+        checker.setThreads(threads);
+      } catch (IllegalArgumentException iae) {
+        throw new MojoExecutionException(iae.getMessage());
+      }
+      checker.setCacheDirectory(cacheDirectory);
+      checker.setLowMemory(lowMemory);
+      checker.setIncrementalCacheFile(incrementalCacheFile);
+      checker.setLogStatistics(statistics);
+      checker.setStatisticsFile(statisticsFile);
       
       if (!checker.isSupportedJDK) {
         final String msg = String.format(Locale.ENGLISH, 
@@ -421,6 +501,7 @@ public abstract class AbstractCheckMojo extends AbstractMojo implements Constant
       }
       
       try {
+        final List<SignaturesSource> sources = new ArrayList<>();
         if (bundledSignatures != null) {
           String targetVersion = getTargetVersion();
           if ("".equals(targetVersion)) targetVersion = null;
@@ -431,7 +512,7 @@ public abstract class AbstractCheckMojo extends AbstractMojo implements Constant
               "You have to explicitly specify the version in the resource name.");
           }
           for (String bs : new LinkedHashSet<>(Arrays.asList(bundledSignatures))) {
-            checker.addBundledSignatures(bs, targetVersion);
+            sources.add(SignaturesSource.bundled(bs, targetVersion));
           }
         }
         
@@ -458,15 +539,16 @@ public abstract class AbstractCheckMojo extends AbstractMojo implements Constant
           }
         }
         for (final File f : sigFiles) {
-          checker.parseSignaturesFile(f);
+          sources.add(SignaturesSource.file(f));
         }
         for (final URL u : sigUrls) {
-          checker.parseSignaturesFile(u);
+          sources.add(SignaturesSource.url(u));
         }
         final String sig = (signatures != null) ? signatures.trim() : null;
         if (sig != null && sig.length() != 0) {
-          checker.parseSignaturesString(sig);
+          sources.add(SignaturesSource.string(sig));
         }
+        checker.addSignatures(sources);
         if (signaturesWithSeverityWarn != null) {
           checker.setSignaturesSeverity(Arrays.asList(signaturesWithSeverityWarn), Checker.ViolationSeverity.WARNING);
         }
@@ -502,6 +584,7 @@ public abstract class AbstractCheckMojo extends AbstractMojo implements Constant
         throw new MojoExecutionException(fae.getMessage(), fae.getCause());
       }
     } finally {
+      if (checker != null) checker.close();
       // Close the classloader to free resources:
       try {
         if (urlLoader != null) urlLoader.close();
@@ -20,10 +20,14 @@ import static de.thetaphi.forbiddenapis.AsmUtils.glob2Pattern;
 import static de.thetaphi.forbiddenapis.AsmUtils.isGlob;
 import static de.thetaphi.forbiddenapis.AsmUtils.isPortableRuntimeClass;
 import static de.thetaphi.forbiddenapis.AsmUtils.isRuntimeModule;
+import static de.thetaphi.forbiddenapis.AsmUtils.readStream;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.regex.Pattern;
 
@@ -97,4 +101,20 @@ public final class AsmUtilsTest {
     assertFalse(isRuntimeModule("foo.bar"));
   }
   
+  @Test
+  public void testReadStream() throws IOException {
+    final byte[] data = new byte[10000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+    assertArrayEquals(data, readStream(new ByteArrayInputStream(data)));
+    assertArrayEquals(data, readStream(new ByteArrayInputStream(data), -1L));
+    assertArrayEquals(data, readStream(new ByteArrayInputStream(data), data.length));
+    // size does not match the actual contents:
+    assertArrayEquals(data, readStream(new ByteArrayInputStream(data), data.length - 1));
+    assertArrayEquals(data, readStream(new ByteArrayInputStream(data), 1));
+    assertArrayEquals(data, readStream(new ByteArrayInputStream(data), data.length + 1000));
+    assertArrayEquals(new byte[0], readStream(new ByteArrayInputStream(new byte[0]), 0));
+  }
+  
 }
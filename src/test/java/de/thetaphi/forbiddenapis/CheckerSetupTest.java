@@ -21,11 +21,17 @@ import static org.junit.Assert.*;
 import static org.junit.Assume.assumeTrue;
 import static org.junit.Assume.assumeNoException;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.Method;
 
 public final class CheckerSetupTest {
@@ -144,6 +150,246 @@ public final class CheckerSetupTest {
     }
   }
   
+  @Test
+  public void testSignatureChecks() throws Exception {
+    checker.parseSignaturesString("java.lang.Object#toString() @ Foobar\njava.lang.String#CASE_INSENSITIVE_ORDER @ Foobar\njava.lang.Object#hashCode()");
+    final Method toString = new Method("toString", "()Ljava/lang/String;");
+    Signatures.ViolationResult result = forbiddenSignatures.checkMethod("java/lang/Object", toString);
+    assertEquals("Forbidden method invocation: java.lang.Object#toString() [Foobar]", result.message);
+    assertEquals(Checker.ViolationSeverity.ERROR, result.severity);
+    result = forbiddenSignatures.checkField("java/lang/String", "CASE_INSENSITIVE_ORDER");
+    assertEquals("Forbidden field access: java.lang.String#CASE_INSENSITIVE_ORDER [Foobar]", result.message);
+    assertNull(forbiddenSignatures.checkMethod("java/lang/String", toString));
+    assertNull(forbiddenSignatures.checkField("java/lang/Object", "CASE_INSENSITIVE_ORDER"));
+    assertNotNull(forbiddenSignatures.checkMethod("java/lang/Object", new Method("hashCode", "()I")));
+    
+    // suppressed signatures still match (which stops the lookup), but are not reported:
+    checker.setSignaturesSeverity(Collections.singleton("java.lang.Object#hashCode()"), Checker.ViolationSeverity.SUPPRESS);
+    assertEquals(Checker.ViolationSeverity.SUPPRESS, forbiddenSignatures.checkMethod("java/lang/Object", new Method("hashCode", "()I")).severity);
+    assertEquals(Checker.ViolationSeverity.ERROR, forbiddenSignatures.checkMethod("java/lang/Object", toString).severity);
+  }
+  
+  @Test
+  public void testSuppressedClassSignatureHidesClassPattern() throws Exception {
+    checker.parseSignaturesString("java.lang.String @ Foobar\njava.lang.** @ Pattern");
+    checker.setSignaturesSeverity(Collections.singleton("java.lang.String"), Checker.ViolationSeverity.SUPPRESS);
+    assertEquals(Checker.ViolationSeverity.SUPPRESS, forbiddenSignatures.checkType(Type.getObjectType("java/lang/String"), "class").severity);
+    assertEquals(Checker.ViolationSeverity.ERROR, forbiddenSignatures.checkType(Type.getObjectType("java/lang/Integer"), "class").severity);
+  }
+  
+  @Test
+  public void testLazySignatureResolution() throws Exception {
+    checker = new Checker(StdIoLogger.INSTANCE, ClassLoader.getSystemClassLoader(), FAIL_ON_UNRESOLVABLE_SIGNATURES, LAZY_SIGNATURE_RESOLUTION);
+    forbiddenSignatures = checker.forbiddenSignatures;
+    checker.parseSignaturesString("java.lang.Object#toString() @ Foobar\njava.lang.String#doesNotExist() @ Foobar");
+    // nothing is resolved while parsing:
+    assertEquals(Collections.emptyMap(), forbiddenSignatures.signatures);
+    assertEquals(2, forbiddenSignatures.pendingSignatures.size());
+    assertFalse(checker.hasNoSignatures());
+    
+    final Method toString = new Method("toString", "()Ljava/lang/String;");
+    final Signatures.ViolationResult result = forbiddenSignatures.checkMethod("java/lang/Object", toString);
+    assertEquals("Forbidden method invocation: java.lang.Object#toString() [Foobar]", result.message);
+    assertNull(forbiddenSignatures.checkMethod("java/lang/String", toString));
+    try {
+      forbiddenSignatures.reportLazyResolutionProblems();
+      fail("Unresolvable signature should fail after resolution");
+    } catch (ParseException pe) {
+      assertTrue(pe.getMessage().contains("java.lang.String#doesNotExist()"));
+    }
+  }
+  
+  @Test
+  public void testLazySignatureResolutionOfUnusedClasses() throws Exception {
+    checker = new Checker(StdIoLogger.INSTANCE, ClassLoader.getSystemClassLoader(), FAIL_ON_UNRESOLVABLE_SIGNATURES, LAZY_SIGNATURE_RESOLUTION);
+    forbiddenSignatures = checker.forbiddenSignatures;
+    // the classes are never used, but missing ones are still reported (members of existing ones are not validated):
+    checker.parseSignaturesString("java.lang.Strnig#trim() @ Foobar\njava.lang.Integer#doesNotExist() @ Foobar");
+    try {
+      forbiddenSignatures.reportLazyResolutionProblems();
+      fail("Signature of missing class should fail");
+    } catch (ParseException pe) {
+      assertTrue(pe.getMessage(), pe.getMessage().contains("Class 'java.lang.Strnig' not found on classpath"));
+      assertFalse(pe.getMessage(), pe.getMessage().contains("more"));
+    }
+    
+    checker = new Checker(StdIoLogger.INSTANCE, ClassLoader.getSystemClassLoader(), FAIL_ON_UNRESOLVABLE_SIGNATURES, LAZY_SIGNATURE_RESOLUTION);
+    checker.parseSignaturesString("@ignoreMissingClasses\njava.lang.Strnig#trim() @ Foobar");
+    checker.forbiddenSignatures.reportLazyResolutionProblems();
+  }
+  
+  @Test
+  public void testConcurrentLazySignatureResolution() throws Exception {
+    checker = new Checker(StdIoLogger.INSTANCE, ClassLoader.getSystemClassLoader(), FAIL_ON_UNRESOLVABLE_SIGNATURES, LAZY_SIGNATURE_RESOLUTION);
+    forbiddenSignatures = checker.forbiddenSignatures;
+    checker.parseSignaturesString("java.lang.String#toString() @ Foobar\njava.lang.String#doesNotExist() @ Foobar");
+    final Method toString = new Method("toString", "()Ljava/lang/String;");
+    final Signatures.ViolationResult[] results = new Signatures.ViolationResult[8];
+    final Thread[] threads = new Thread[results.length];
+    for (int i = 0; i < threads.length; i++) {
+      final int n = i;
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          results[n] = forbiddenSignatures.checkMethod("java/lang/String", toString);
+        }
+      };
+      threads[i].start();
+    }
+    for (final Thread t : threads) {
+      t.join();
+    }
+    for (final Signatures.ViolationResult result : results) {
+      assertSame(results[0], result);
+    }
+    assertEquals("Forbidden method invocation: java.lang.String#toString() [Foobar]", results[0].message);
+    // the class is resolved only once, so the problem is reported only once:
+    try {
+      forbiddenSignatures.reportLazyResolutionProblems();
+      fail("Unresolvable signature should fail after resolution");
+    } catch (ParseException pe) {
+      assertFalse(pe.getMessage(), pe.getMessage().contains("more"));
+    }
+  }
+  
+  @Test
+  public void testParallelSignatureSources() throws Exception {
+    final List<SignaturesSource> sources = Arrays.asList(
+        SignaturesSource.bundled("jdk-unsafe", "1.8"),
+        SignaturesSource.string("@defaultMessage first\njava.lang.Object#toString()\njava.lang.** @ Pattern\n"),
+        SignaturesSource.string("java.lang.Object#toString() @ second\njava.lang.String#CASE_INSENSITIVE_ORDER\n")
+    );
+    checker.addSignatures(sources);
+    
+    final Checker parallel = new Checker(StdIoLogger.INSTANCE, ClassLoader.getSystemClassLoader(), FAIL_ON_MISSING_CLASSES, FAIL_ON_VIOLATION, FAIL_ON_UNRESOLVABLE_SIGNATURES);
+    parallel.setThreads(4);
+    parallel.addSignatures(sources);
+    
+    assertEquals(forbiddenSignatures.signatures, parallel.forbiddenSignatures.signatures);
+    assertEquals(new ArrayList<>(forbiddenSignatures.classPatterns), new ArrayList<>(parallel.forbiddenSignatures.classPatterns));
+    // the later source wins, the default message is scoped to its file:
+    assertEquals("java.lang.Object#toString() [second]",
+        parallel.forbiddenSignatures.signatures.get(Signatures.getKey("java/lang/Object", new Method("toString", "()Ljava/lang/String;"))));
+    assertEquals("java.lang.String#CASE_INSENSITIVE_ORDER",
+        parallel.forbiddenSignatures.signatures.get(Signatures.getKey("java/lang/String", "CASE_INSENSITIVE_ORDER")));
+  }
+  
+  /** Scans some test classes with the given number of threads and returns the logged errors and warnings. */
+  private static List<String> scanTestClasses(int threads) throws Exception {
+    final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
+    final Logger logger = new Logger() {
+      @Override
+      public void error(String msg) {
+        messages.add("ERROR: " + msg);
+      }
+      
+      @Override
+      public void warn(String msg) {
+        messages.add("WARN: " + msg);
+      }
+      
+      @Override
+      public void info(String msg) {
+        // contains timings
+      }
+      
+      @Override
+      public void debug(String msg) {
+      }
+    };
+    final Checker checker = new Checker(logger, ClassLoader.getSystemClassLoader(), FAIL_ON_MISSING_CLASSES, FAIL_ON_UNRESOLVABLE_SIGNATURES);
+    checker.setThreads(threads);
+    checker.parseSignaturesString("org.junit.Assert#assertEquals(java.lang.Object,java.lang.Object) @ Foobar\n" +
+        "org.junit.Assert#assertTrue(boolean) @ Foobar\n");
+    checker.setSignaturesSeverity(Collections.singleton("org.junit.Assert#assertTrue(boolean)"), Checker.ViolationSeverity.WARNING);
+    for (final Class<?> clazz : Arrays.asList(CheckerSetupTest.class, AsmUtilsTest.class, ClasspathIndexTest.class,
+        GlobMatcherTest.class, MethodSetTest.class, SignaturesParserTest.class, VersionCompareTest.class)) {
+      final String resource = AsmUtils.getClassResourceName(clazz.getName());
+      checker.streamReadClassToCheck(clazz.getClassLoader().getResourceAsStream(resource), resource);
+    }
+    checker.run();
+    return messages;
+  }
+  
+  @Test
+  public void testParallelScanOrder() throws Exception {
+    final List<String> sequential = scanTestClasses(1);
+    final Set<String> classes = new HashSet<>();
+    for (final String msg : sequential) {
+      if (msg.contains("  in ")) {
+        classes.add(msg.substring(msg.indexOf("  in ")).split(" ")[3]);
+      }
+    }
+    assertTrue(sequential.toString(), classes.size() >= 3);
+    assertEquals(sequential, scanTestClasses(4));
+  }
+  
+  @Test
+  public void testSharedBundledSignatures() throws Exception {
+    final SharedCache sharedCache = new SharedCache();
+    final Signatures.ParsedSignatures parsed = Signatures.readBundledSignatures("jdk-unsafe-1.8", StdIoLogger.INSTANCE, sharedCache);
+    assertSame(parsed, Signatures.readBundledSignatures("jdk-unsafe-1.8", StdIoLogger.INSTANCE, sharedCache));
+    assertNotSame(parsed, Signatures.readBundledSignatures("jdk-unsafe-1.8", StdIoLogger.INSTANCE, null));
+    try {
+      parsed.signatures.clear();
+      fail("Shared signatures must be unmodifiable");
+    } catch (UnsupportedOperationException uoe) {
+      // pass
+    }
+    // without a shared cache nothing is kept:
+    assertNotSame(Signatures.readBundledSignatures("jdk-unsafe-1.8", StdIoLogger.INSTANCE, null),
+        Signatures.readBundledSignatures("jdk-unsafe-1.8", StdIoLogger.INSTANCE, null));
+  }
+  
+  @Test
+  public void testHierarchyRelevance() throws Exception {
+    checker.parseSignaturesString("java.util.AbstractCollection#isEmpty() @ Foobar");
+    final ClassMetadata arrayList = checker.lookupRelatedClass("java/util/ArrayList", "java/util/ArrayList");
+    final ClassMetadata string = checker.lookupRelatedClass("java/lang/String", "java/lang/String");
+    assertTrue(forbiddenSignatures.isHierarchyRelevant(arrayList, checker));
+    assertFalse(forbiddenSignatures.isHierarchyRelevant(string, checker));
+    // the cached flags are invalidated if the signatures change:
+    checker.parseSignaturesString("java.lang.Comparable @ Foobar");
+    assertTrue(forbiddenSignatures.isHierarchyRelevant(string, checker));
+    checker.parseSignaturesString("java.lang.invoke.** @ Foobar");
+    assertTrue(forbiddenSignatures.isHierarchyRelevant(checker.lookupRelatedClass("java/lang/invoke/MethodHandle", "java/lang/invoke/MethodHandle"), checker));
+  }
+  
+  @Test
+  public void testHierarchyRelevanceWithSharedMetadata() throws Exception {
+    checker.parseSignaturesString("java.lang.Comparable @ Foobar");
+    final Checker other = new Checker(StdIoLogger.INSTANCE, ClassLoader.getSystemClassLoader(), FAIL_ON_MISSING_CLASSES, FAIL_ON_VIOLATION, FAIL_ON_UNRESOLVABLE_SIGNATURES);
+    other.parseSignaturesString("java.util.AbstractCollection#isEmpty() @ Foobar");
+    // metadata shared by both checkers (like with a SharedCache), each one keeps its own results:
+    final ClassMetadata string = checker.lookupRelatedClass("java/lang/String", "java/lang/String");
+    for (int i = 0; i < 2; i++) {
+      assertTrue(forbiddenSignatures.isHierarchyRelevant(string, checker));
+      assertFalse(other.forbiddenSignatures.isHierarchyRelevant(string, other));
+    }
+  }
+  
+  @Test
+  public void testStatistics() throws Exception {
+    checker.parseSignaturesString("java.lang.StringBuilder#reverse() @ Foobar");
+    final String resource = AsmUtils.getClassResourceName(CheckerSetupTest.class.getName());
+    checker.streamReadClassToCheck(CheckerSetupTest.class.getClassLoader().getResourceAsStream(resource), resource);
+    checker.run();
+    
+    final ScanStatistics stats = checker.getStatistics();
+    assertEquals(1L, stats.getCount(ScanStatistics.Counter.CLASSES_SCANNED));
+    assertTrue(stats.getCount(ScanStatistics.Counter.BYTES_READ) > 0L);
+    assertTrue(stats.getCount(ScanStatistics.Counter.RELATED_CLASSES_LOADED) > 0L);
+    assertTrue(stats.getCount(ScanStatistics.Counter.RELATED_CLASS_CACHE_HITS) > 0L);
+    assertTrue(stats.getCount(ScanStatistics.Counter.SIGNATURE_LOOKUPS) > 0L);
+    assertTrue(stats.getCount(ScanStatistics.Counter.ANCESTOR_WALK_STEPS) > 0L);
+    assertTrue(stats.getNanos(ScanStatistics.Phase.SIGNATURES) > 0L);
+    assertTrue(stats.getNanos(ScanStatistics.Phase.CLASSES_TO_CHECK) > 0L);
+    assertTrue(stats.getNanos(ScanStatistics.Phase.SCANNING) > 0L);
+    final String json = stats.toJson();
+    assertTrue(json, json.contains("\"classesScanned\": 1"));
+    assertTrue(json, json.contains("\"scanning\": "));
+  }
+  
   @Test
   public void testEmptyCtor() throws Exception {
     Checker chk = new Checker(StdIoLogger.INSTANCE, ClassLoader.getSystemClassLoader());
@@ -0,0 +1,87 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import static de.thetaphi.forbiddenapis.Checker.Option.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/** Guards that the scanner does not allocate while checking instructions, once their results are cached. */
+public final class ClassScannerAllocationTest {
+
+  private static final int WARMUP = 20000, ITERATIONS = 100000;
+
+  /** Returns the number of bytes allocated by the current thread, using the extension of the Oracle/OpenJDK runtime
+   * (looked up via reflection, so the test is skipped on other runtimes). */
+  private static long getAllocatedBytes(ThreadMXBean bean, Method getter) throws Exception {
+    return ((Long) getter.invoke(bean, Thread.currentThread().getId())).longValue();
+  }
+
+  private static void visitInstructions(MethodVisitor mv, Type stringType) {
+    mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "length", "()I", false);
+    mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/util/ArrayList", "size", "()I", false);
+    mv.visitFieldInsn(Opcodes.GETSTATIC, "java/lang/Integer", "MAX_VALUE", "I");
+    mv.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Object");
+    mv.visitTypeInsn(Opcodes.ANEWARRAY, "[Ljava/lang/String;");
+    mv.visitMultiANewArrayInsn("[[Ljava/lang/Object;", 2);
+    mv.visitLdcInsn(stringType);
+  }
+
+  @Test
+  public void testNoAllocationOnCachedResults() throws Exception {
+    final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    final Method getter;
+    try {
+      getter = Class.forName("com.sun.management.ThreadMXBean").getMethod("getThreadAllocatedBytes", long.class);
+    } catch (ClassNotFoundException | NoSuchMethodException e) {
+      assumeTrue("Runtime cannot measure allocated bytes", false);
+      return;
+    }
+    assumeTrue("Runtime cannot measure allocated bytes", getter.getDeclaringClass().isInstance(bean));
+
+    final Checker checker = new Checker(StdIoLogger.INSTANCE, ClassLoader.getSystemClassLoader(), FAIL_ON_MISSING_CLASSES, FAIL_ON_VIOLATION);
+    assumeTrue("This test only works with a supported JDK (see docs)", checker.isSupportedJDK);
+    checker.parseSignaturesString("java.lang.String#substring(int,int) @ Foobar\njava.util.AbstractList#clear() @ Foobar");
+    final String internalName = Type.getInternalName(ClassScannerAllocationTest.class);
+    final ClassMetadata metadata = checker.lookupRelatedClass(internalName, internalName);
+    final ClassScanner scanner = new ClassScanner(metadata, checker, checker.forbiddenSignatures, new GlobMatcher(), true, new ResolutionCache());
+    final MethodVisitor mv = scanner.visitMethod(Opcodes.ACC_PUBLIC, "test", "()V", null, null);
+    final Type stringType = Type.getObjectType("java/lang/String");
+
+    for (int i = 0; i < WARMUP; i++) {
+      visitInstructions(mv, stringType);
+    }
+    final long before = getAllocatedBytes(bean, getter);
+    for (int i = 0; i < ITERATIONS; i++) {
+      visitInstructions(mv, stringType);
+    }
+    final long allocated = getAllocatedBytes(bean, getter) - before;
+    // allow some noise of the measurement itself, but much less than one byte per instruction:
+    assertTrue("Scanning cached instructions allocated " + allocated + " bytes", allocated < ITERATIONS / 10);
+    assertTrue(scanner.violations.isEmpty());
+  }
+
+}
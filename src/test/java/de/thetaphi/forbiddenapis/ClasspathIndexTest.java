@@ -0,0 +1,189 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public final class ClasspathIndexTest {
+
+  private static final ClasspathIndex.Environment ENV = new ClasspathIndex.Environment() {
+    @Override
+    public boolean isRuntimePath(File file) {
+      return false;
+    }
+
+    @Override
+    public JarMetadataIndex getJarIndex(File jarFile) {
+      return null;
+    }
+  };
+
+  @Rule
+  public final TemporaryFolder tempDir = new TemporaryFolder();
+
+  private File dir;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = tempDir.getRoot().getCanonicalFile();
+  }
+
+  private static void copyClass(Class<?> clazz, OutputStream out) throws IOException {
+    try (final InputStream in = clazz.getClassLoader().getResourceAsStream(AsmUtils.getClassResourceName(clazz.getName()))) {
+      final byte[] buffer = new byte[8192];
+      int len;
+      while ((len = in.read(buffer)) >= 0) {
+        out.write(buffer, 0, len);
+      }
+    }
+  }
+
+  private File writeJar(String name, String classPath, Class<?>... classes) throws IOException {
+    final File jarFile = new File(dir, name);
+    final Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    if (classPath != null) {
+      manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, classPath);
+    }
+    try (final JarOutputStream out = new JarOutputStream(new FileOutputStream(jarFile), manifest)) {
+      for (final Class<?> clazz : classes) {
+        out.putNextEntry(new ZipEntry(AsmUtils.getClassResourceName(clazz.getName())));
+        copyClass(clazz, out);
+        out.closeEntry();
+      }
+    }
+    return jarFile;
+  }
+
+  private File writeDirectory(String name, Class<?>... classes) throws IOException {
+    final File classesDir = new File(dir, name);
+    for (final Class<?> clazz : classes) {
+      final File f = new File(classesDir, AsmUtils.getClassResourceName(clazz.getName()));
+      assertTrue(f.getParentFile().mkdirs() || f.getParentFile().isDirectory());
+      try (final OutputStream out = new FileOutputStream(f)) {
+        copyClass(clazz, out);
+      }
+    }
+    return classesDir;
+  }
+
+  @Test
+  public void testFirstElementWins() throws IOException {
+    final File classes = writeDirectory("classes", ClasspathIndex.class);
+    final File jar1 = writeJar("test1.jar", null, ClasspathIndex.class, JarMetadataIndex.class);
+    final File jar2 = writeJar("test2.jar", null, JarMetadataIndex.class, MetadataCacheFile.class);
+    try (final ClasspathIndex index = new ClasspathIndex(Arrays.asList(classes, jar1, jar2, new File(dir, "missing.jar")), ENV, StdIoLogger.INSTANCE)) {
+      assertEquals(3, index.size());
+      assertEquals(classes, index.find(ClasspathIndex.class.getName()).file);
+      assertEquals(jar1, index.find(JarMetadataIndex.class.getName()).file);
+      assertEquals(jar2, index.find(MetadataCacheFile.class.getName()).file);
+      assertNull(index.find(Checker.class.getName()));
+
+      final ClasspathIndex.Element element = index.find(JarMetadataIndex.class.getName());
+      assertFalse(element.isMultiRelease());
+      assertEquals("de/thetaphi/forbiddenapis/JarMetadataIndex",
+          AsmUtils.readAndPatchClass(element.readBytes(JarMetadataIndex.class.getName())).getClassName());
+      assertEquals("de/thetaphi/forbiddenapis/ClasspathIndex",
+          AsmUtils.readAndPatchClass(index.find(ClasspathIndex.class.getName()).readBytes(ClasspathIndex.class.getName())).getClassName());
+    }
+  }
+
+  @Test
+  public void testManifestClassPath() throws IOException {
+    final File jar2 = writeJar("test2.jar", null, JarMetadataIndex.class, MetadataCacheFile.class);
+    final File jar1 = writeJar("test1.jar", "test2.jar", ClasspathIndex.class);
+    final File jar3 = writeJar("test3.jar", null, JarMetadataIndex.class, Checker.class);
+    try (final ClasspathIndex index = new ClasspathIndex(Arrays.asList(jar1, jar3), ENV, StdIoLogger.INSTANCE)) {
+      assertEquals(4, index.size());
+      assertEquals(jar1, index.find(ClasspathIndex.class.getName()).file);
+      // referenced JAR files are searched directly after the referencing one:
+      assertEquals(jar2, index.find(JarMetadataIndex.class.getName()).file);
+      assertEquals(jar3, index.find(Checker.class.getName()).file);
+    }
+  }
+
+  @Test
+  public void testInvalidJarFile() throws IOException {
+    final File pom = new File(dir, "notazip.pom");
+    Files.write(pom.toPath(), "<project/>".getBytes(StandardCharsets.UTF_8));
+    final File classes = writeDirectory("classes", ClasspathIndex.class);
+    try (final ClasspathIndex index = new ClasspathIndex(Arrays.asList(pom, classes), ENV, StdIoLogger.INSTANCE)) {
+      assertEquals(1, index.size());
+      assertEquals(classes, index.find(ClasspathIndex.class.getName()).file);
+    }
+  }
+
+  @Test
+  public void testClasspathFiles() throws IOException {
+    final File jar = writeJar("test.jar", null, ClasspathIndex.class);
+    try (final URLClassLoader loader = URLClassLoader.newInstance(new URL[] { jar.toURI().toURL() }, ClassLoader.getSystemClassLoader())) {
+      assertEquals(Collections.singletonList(jar), ClasspathIndex.getClasspathFiles(loader));
+    }
+    assertNull(ClasspathIndex.getClasspathFiles(new ClassLoader() {}));
+  }
+
+  @Test
+  public void testPersistentJarIndex() throws IOException {
+    final File jar1 = writeJar("test1.jar", null, ClasspathIndex.class);
+    final File jar2 = writeJar("test2.jar", null, ClasspathIndex.class, JarMetadataIndex.class);
+    final File cacheDir = new File(dir, "cache");
+    JarMetadataIndex.open(cacheDir, jar2, StdIoLogger.INSTANCE).save();
+    final ClasspathIndex.Environment env = new ClasspathIndex.Environment() {
+      @Override
+      public boolean isRuntimePath(File file) {
+        return false;
+      }
+
+      @Override
+      public JarMetadataIndex getJarIndex(File jarFile) {
+        try {
+          return JarMetadataIndex.open(cacheDir, jarFile, StdIoLogger.INSTANCE);
+        } catch (IOException ioe) {
+          throw new AssertionError(ioe);
+        }
+      }
+    };
+    try (final ClasspathIndex index = new ClasspathIndex(Arrays.asList(jar1, jar2), env, StdIoLogger.INSTANCE)) {
+      assertEquals(2, index.size());
+      assertEquals(jar1, index.find(ClasspathIndex.class.getName()).file);
+      assertEquals(jar2, index.find(JarMetadataIndex.class.getName()).file);
+      assertNull(index.find(Checker.class.getName()));
+    }
+  }
+
+}
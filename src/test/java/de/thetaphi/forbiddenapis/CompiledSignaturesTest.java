@@ -0,0 +1,91 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import de.thetaphi.forbiddenapis.Signatures.ParsedSignature;
+import de.thetaphi.forbiddenapis.Signatures.ParsedSignatures;
+
+public final class CompiledSignaturesTest {
+
+  private static void assertRoundTrip(String name) throws IOException, ParseException {
+    final ParsedSignatures expected = Signatures.parseBundledSignatures(name, StdIoLogger.INSTANCE);
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CompiledSignatures.write(expected, out);
+    final ParsedSignatures actual = CompiledSignatures.read(new ByteArrayInputStream(out.toByteArray()));
+    assertEquals(expected.numberOfFiles, actual.numberOfFiles);
+    assertEquals(expected.forbidNonPortableRuntime, actual.forbidNonPortableRuntime);
+    assertEquals(expected.signatures.size(), actual.signatures.size());
+    for (int i = 0; i < expected.signatures.size(); i++) {
+      final ParsedSignature e = expected.signatures.get(i), a = actual.signatures.get(i);
+      assertEquals(e.signature, a.signature);
+      assertEquals(e.message, a.message);
+      assertEquals(e.clazz, a.clazz);
+      assertEquals(e.member, a.member);
+      assertEquals(e.methodDescriptor, a.methodDescriptor);
+      assertSame(e.reporting, a.reporting);
+      assertEquals(e.ignoreMissingClasses, a.ignoreMissingClasses);
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    assertRoundTrip("jdk-unsafe-1.8");
+    assertRoundTrip("jdk-unsafe-15");
+    assertRoundTrip("jdk-deprecated-21");
+    assertRoundTrip("jdk-internal-21");
+    assertRoundTrip("jdk-system-out");
+    assertRoundTrip("jdk-reflection");
+  }
+
+  @Test
+  public void testIncludesFlattened() throws Exception {
+    final ParsedSignatures unsafe17 = Signatures.parseBundledSignatures("jdk-unsafe-1.7", StdIoLogger.INSTANCE);
+    final ParsedSignatures unsafe18 = Signatures.parseBundledSignatures("jdk-unsafe-1.8", StdIoLogger.INSTANCE);
+    assertEquals(1, unsafe17.numberOfFiles);
+    assertEquals(2, unsafe18.numberOfFiles);
+    assertTrue(unsafe18.signatures.size() > unsafe17.signatures.size());
+  }
+
+  @Test
+  public void testParseSignature() throws Exception {
+    ParsedSignature s = Signatures.parseSignature("java.lang.String#valueOf(char[], int,int)", "msg", null, false);
+    assertEquals("java.lang.String", s.clazz);
+    assertEquals("valueOf", s.member);
+    assertEquals("([CII)V", s.methodDescriptor);
+    assertTrue(s.isMethod());
+    s = Signatures.parseSignature("java.lang.String#CASE_INSENSITIVE_ORDER", null, null, false);
+    assertTrue(s.isField());
+    assertNull(s.methodDescriptor);
+    s = Signatures.parseSignature("java.lang.**", null, null, false);
+    assertNull(s.member);
+    try {
+      Signatures.parseSignature("java.lang.**#foo()", null, null, false);
+      fail("Should fail to parse glob with method");
+    } catch (ParseException pe) {
+      // pass
+    }
+  }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.thetaphi.forbiddenapis;
+
+import static de.thetaphi.forbiddenapis.Checker.Option.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Test;
+
+@SuppressForbidden
+public final class FlightRecorderEventsTest {
+
+  @Test
+  public void testEvents() throws Exception {
+    assumeTrue("Runtime has no flight recorder", FlightRecorderEvents.INSTANCE instanceof JfrEvents);
+    final File file = File.createTempFile("forbiddenapis", ".jfr");
+    try {
+      try (final Recording recording = new Recording()) {
+        recording.enable("de.thetaphi.forbiddenapis.SignaturesParsing");
+        recording.enable("de.thetaphi.forbiddenapis.RelatedClassLoading");
+        recording.enable("de.thetaphi.forbiddenapis.ClassScanning");
+        recording.start();
+        
+        final Checker checker = new Checker(StdIoLogger.INSTANCE, ClassLoader.getSystemClassLoader(), FAIL_ON_MISSING_CLASSES, FAIL_ON_VIOLATION);
+        assumeTrue("This test only works with a supported JDK (see docs)", checker.isSupportedJDK);
+        checker.parseSignaturesString("java.lang.StringBuilder#reverse() @ Foobar");
+        final String resource = AsmUtils.getClassResourceName(GlobMatcher.class.getName());
+        checker.streamReadClassToCheck(GlobMatcher.class.getClassLoader().getResourceAsStream(resource), resource);
+        checker.run();
+        
+        recording.stop();
+        recording.dump(file.toPath());
+      }
+      // the flight recorder stays initialized, but no events are created without a recording:
+      assertNull(FlightRecorderEvents.INSTANCE.beginRelatedClassLoading());
+      assertNull(FlightRecorderEvents.INSTANCE.beginClassScanning());
+      
+      final List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+      final Set<String> loadedClasses = new HashSet<>();
+      boolean parsed = false, scanned = false;
+      for (final RecordedEvent e : events) {
+        switch (e.getEventType().getName()) {
+          case "de.thetaphi.forbiddenapis.SignaturesParsing":
+            assertEquals("inline signatures", e.getString("source"));
+            assertEquals(1, e.getInt("signatures"));
+            parsed = true;
+            break;
+          case "de.thetaphi.forbiddenapis.RelatedClassLoading":
+            loadedClasses.add(e.getString("className") + ":" + e.getString("source"));
+            break;
+          case "de.thetaphi.forbiddenapis.ClassScanning":
+            assertEquals(GlobMatcher.class.getName(), e.getString("className"));
+            assertTrue(e.getInt("instructions") > 0);
+            assertEquals(0, e.getInt("violations"));
+            scanned = true;
+            break;
+          default:
+            break;
+        }
+      }
+      assertTrue(parsed);
+      assertTrue(scanned);
+      assertTrue(loadedClasses.toString(), loadedClasses.contains("java.lang.StringBuilder:runtime"));
+    } finally {
+      assertTrue(file.delete());
+    }
+  }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public final class GlobMatcherTest {
+
+  @Test
+  public void testGlob() {
+    GlobMatcher m = new GlobMatcher("a.b.c.*");
+    assertTrue(m.matches("a.b.c.d"));
+    assertTrue(m.matches("a.b.c.def"));
+    assertFalse(m.matches("a.b.c"));
+    assertFalse(m.matches("a.b.c.d.e"));
+    
+    m = new GlobMatcher("a.b.c.**");
+    assertTrue(m.matches("a.b.c.d"));
+    assertTrue(m.matches("a.b.c.def"));
+    assertTrue(m.matches("a.b.c.d.e"));
+    assertTrue(m.matches("a.b.c.d.e.f"));
+    
+    m = new GlobMatcher("sun.*.*");
+    assertTrue(m.matches("sun.misc.Unsafe"));
+    assertTrue(m.matches("sun.misc.Unsafe$1"));
+    assertFalse(m.matches("sun.misc.Unsafe.xy"));
+    
+    m = new GlobMatcher("java.**.Array?");
+    assertTrue(m.matches("java.util.Arrays"));
+    assertFalse(m.matches("java.util.ArrayList"));
+    assertFalse(m.matches("java.util.Array"));
+    assertTrue(m.matches("java.lang.reflect.Arrays"));
+    
+    m = new GlobMatcher();
+    assertFalse(m.matches("java.lang.String"));
+  }
+  
+  @Test
+  public void testMultipleGlobs() {
+    final GlobMatcher m = new GlobMatcher("java.util.**", "java.lang.*", "java.**", "java.util.List");
+    assertArrayEquals(new int[] { 0, 2, 3 }, m.getMatches("java.util.List"));
+    assertArrayEquals(new int[] { 1, 2 }, m.getMatches("java.lang.String"));
+    assertArrayEquals(new int[] { 2 }, m.getMatches("java.lang.reflect.Method"));
+    assertArrayEquals(new int[0], m.getMatches("javax.swing.JFrame"));
+    assertEquals(1, m.getFirstMatch("java.lang.Object"));
+    assertEquals(-1, m.getFirstMatch("org.example.Foo"));
+  }
+  
+  @Test
+  public void testSameAsRegex() {
+    final String[] globs = { "a.*", "a.**.b", "?.b*", "**.a?", "b.*.*", "a.b.c", "**" };
+    final Random r = new Random(42L);
+    for (int i = 0; i < 5000; i++) {
+      final StringBuilder sb = new StringBuilder();
+      for (int j = r.nextInt(8); j > 0; j--) {
+        sb.append("ab.c".charAt(r.nextInt(4)));
+      }
+      final String className = sb.toString();
+      for (int g = 0; g < globs.length; g++) {
+        final Pattern pattern = AsmUtils.glob2Pattern(globs[g]);
+        final GlobMatcher matcher = new GlobMatcher(globs[g]);
+        assertEquals(globs[g] + " on " + className, pattern.matcher(className).matches(), matcher.matches(className));
+      }
+      final GlobMatcher all = new GlobMatcher(globs);
+      assertEquals(className, AsmUtils.glob2Pattern(globs).matcher(className).matches(), all.matches(className));
+    }
+  }
+  
+  @Test
+  public void testCrazyPatterns() {
+    assertTrue(new GlobMatcher("java.{**}.Array").matches("java.{foo.bar}.Array"));
+    assertTrue(new GlobMatcher("java./**<>.Array$1").matches("java./x<>.Array$1"));
+    assertTrue(new GlobMatcher("+^$").matches("+^$"));
+  }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.thetaphi.forbiddenapis.Checker.ViolationSeverity;
+
+public final class IncrementalCacheTest {
+
+  @Rule
+  public final TemporaryFolder tempDir = new TemporaryFolder();
+
+  private File file;
+
+  @Before
+  public void setUp() {
+    file = new File(tempDir.getRoot(), "incremental.bin");
+  }
+
+  private static IncrementalCache.Entry createEntry() {
+    final Map<String,Long> related = new HashMap<>();
+    related.put("java/lang/String", 42L);
+    related.put("foo/Missing", 0L);
+    return new IncrementalCache.Entry("foo.Bar", "Bar.java", 4711L, related, Arrays.asList(
+        new ForbiddenViolation(0, "Forbidden method invocation: java.lang.String#substring(int,int)", "in foo.Bar (Bar.java:12)", 12, ViolationSeverity.ERROR),
+        new ForbiddenViolation(1, "Forbidden field access: foo.Baz#x", null, -1, ViolationSeverity.WARNING)
+    ));
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    final IncrementalCache cache = new IncrementalCache(file, 1L);
+    assertFalse(cache.load());
+    cache.put(createEntry());
+    cache.put(new IncrementalCache.Entry("foo.Baz", null, 1L, Collections.<String,Long>emptyMap(), Collections.<ForbiddenViolation>emptyList()));
+    cache.save();
+
+    final IncrementalCache cache2 = new IncrementalCache(file, 1L);
+    assertTrue(cache2.load());
+    assertEquals(2, cache2.size());
+    final IncrementalCache.Entry expected = createEntry(), actual = cache2.getPrevious("foo.Bar");
+    assertNotNull(actual);
+    assertEquals(expected.sourceFile, actual.sourceFile);
+    assertEquals(expected.bytecodeFingerprint, actual.bytecodeFingerprint);
+    assertEquals(expected.relatedClasses, actual.relatedClasses);
+    assertEquals(expected.violations.size(), actual.violations.size());
+    for (int i = 0; i < expected.violations.size(); i++) {
+      assertEquals(expected.violations.get(i).format("foo.Bar", "Bar.java"), actual.violations.get(i).format("foo.Bar", "Bar.java"));
+      assertEquals(expected.violations.get(i).severity, actual.violations.get(i).severity);
+    }
+    assertNull(cache2.getPrevious("foo.Baz").sourceFile);
+    assertNull(cache2.getPrevious("foo.Other"));
+  }
+
+  @Test
+  public void testConfigMismatch() throws IOException {
+    final IncrementalCache cache = new IncrementalCache(file, 1L);
+    cache.put(createEntry());
+    cache.save();
+
+    final IncrementalCache cache2 = new IncrementalCache(file, 2L);
+    assertFalse(cache2.load());
+    assertEquals(0, cache2.size());
+  }
+
+  @Test
+  public void testOnlyCurrentEntriesSaved() throws IOException {
+    final IncrementalCache cache = new IncrementalCache(file, 1L);
+    cache.put(createEntry());
+    cache.save();
+
+    final IncrementalCache cache2 = new IncrementalCache(file, 1L);
+    assertTrue(cache2.load());
+    cache2.save();
+
+    final IncrementalCache cache3 = new IncrementalCache(file, 1L);
+    assertTrue(cache3.load());
+    assertEquals(0, cache3.size());
+  }
+
+  /** Writes an empty cache file, but replaces the trailing entry count by the given bytes. */
+  private void writeCorruptFile(byte... tail) throws IOException {
+    new IncrementalCache(file, 1L).save();
+    final byte[] data = Files.readAllBytes(file.toPath());
+    try (final FileOutputStream out = new FileOutputStream(file)) {
+      out.write(data, 0, data.length - 1);
+      out.write(tail);
+    }
+  }
+
+  private void assertCorrupt() {
+    final IncrementalCache cache = new IncrementalCache(file, 1L);
+    try {
+      cache.load();
+      fail("Corrupt cache file should not load");
+    } catch (IOException ioe) {
+      assertTrue(ioe.getMessage(), ioe.getMessage().startsWith("Corrupt cache file"));
+    }
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testNegativeCount() throws IOException {
+    writeCorruptFile((byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0x0F);
+    assertCorrupt();
+  }
+
+  @Test
+  public void testNullClassName() throws IOException {
+    writeCorruptFile((byte) 1, (byte) 0, (byte) 0, (byte) 0, (byte) 0, (byte) 0, (byte) 0, (byte) 0, (byte) 0, (byte) 0, (byte) 0, (byte) 0);
+    assertCorrupt();
+  }
+
+}
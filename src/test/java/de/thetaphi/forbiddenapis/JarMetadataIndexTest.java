@@ -0,0 +1,115 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public final class JarMetadataIndexTest {
+
+  @Rule
+  public final TemporaryFolder tempDir = new TemporaryFolder();
+
+  private File dir, cacheDir, jarFile;
+
+  @Before
+  public void setUp() {
+    dir = tempDir.getRoot();
+    cacheDir = new File(dir, "cache");
+    jarFile = new File(dir, "test.jar");
+  }
+
+  private void writeJar(Class<?>... classes) throws IOException {
+    try (final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jarFile))) {
+      for (final Class<?> clazz : classes) {
+        final String name = AsmUtils.getClassResourceName(clazz.getName());
+        out.putNextEntry(new ZipEntry(name));
+        try (final InputStream in = clazz.getClassLoader().getResourceAsStream(name)) {
+          final byte[] buffer = new byte[8192];
+          int len;
+          while ((len = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, len);
+          }
+        }
+        out.closeEntry();
+      }
+    }
+  }
+
+  private static ClassMetadata readClass(Class<?> clazz) throws IOException {
+    try (final InputStream in = clazz.getClassLoader().getResourceAsStream(AsmUtils.getClassResourceName(clazz.getName()))) {
+      return new ClassMetadata(AsmUtils.readAndPatchClass(in), false, false);
+    }
+  }
+
+  @Test
+  public void testIndex() throws IOException {
+    writeJar(JarMetadataIndex.class, MetadataCacheFile.class);
+    final JarMetadataIndex index = JarMetadataIndex.open(cacheDir, jarFile, StdIoLogger.INSTANCE);
+    assertNotNull(index);
+    assertTrue(index.contains(JarMetadataIndex.class.getName()));
+    assertTrue(index.contains(MetadataCacheFile.class.getName()));
+    assertFalse(index.contains(Checker.class.getName()));
+    assertNull(index.get(JarMetadataIndex.class.getName()));
+    index.put(readClass(JarMetadataIndex.class));
+    index.save();
+
+    final JarMetadataIndex index2 = JarMetadataIndex.open(cacheDir, jarFile, StdIoLogger.INSTANCE);
+    assertFalse(index2.contains(Checker.class.getName()));
+    final ClassMetadata c = index2.get(JarMetadataIndex.class.getName());
+    assertNotNull(c);
+    assertEquals(readClass(JarMetadataIndex.class).methods, c.methods);
+    assertNull(index2.get(MetadataCacheFile.class.getName()));
+  }
+
+  @Test
+  public void testTouchedJar() throws IOException {
+    writeJar(JarMetadataIndex.class);
+    final JarMetadataIndex index = JarMetadataIndex.open(cacheDir, jarFile, StdIoLogger.INSTANCE);
+    index.put(readClass(JarMetadataIndex.class));
+    index.save();
+
+    assertTrue(jarFile.setLastModified(jarFile.lastModified() - 10000L));
+    final JarMetadataIndex index2 = JarMetadataIndex.open(cacheDir, jarFile, StdIoLogger.INSTANCE);
+    assertNotNull(index2.get(JarMetadataIndex.class.getName()));
+  }
+
+  @Test
+  public void testModifiedJar() throws IOException {
+    writeJar(JarMetadataIndex.class);
+    final JarMetadataIndex index = JarMetadataIndex.open(cacheDir, jarFile, StdIoLogger.INSTANCE);
+    index.put(readClass(JarMetadataIndex.class));
+    index.save();
+
+    writeJar(JarMetadataIndex.class, MetadataCacheFile.class);
+    final JarMetadataIndex index2 = JarMetadataIndex.open(cacheDir, jarFile, StdIoLogger.INSTANCE);
+    assertTrue(index2.contains(MetadataCacheFile.class.getName()));
+    assertNull(index2.get(JarMetadataIndex.class.getName()));
+  }
+
+}
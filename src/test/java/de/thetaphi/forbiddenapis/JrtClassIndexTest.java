@@ -0,0 +1,43 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeNotNull;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+public final class JrtClassIndexTest {
+
+  @Test
+  public void testRuntimeClasses() throws IOException {
+    final JrtClassIndex index = JrtClassIndex.create();
+    assumeNotNull(index); // only Java 9+
+    assertEquals("java.base", index.getModule("java.lang.String"));
+    assertEquals("java.sql", index.getModule("java.sql.Connection"));
+    assertTrue(AsmUtils.isRuntimeModule(index.getModule("java.util.concurrent.ConcurrentHashMap")));
+    assertNull(index.getModule(JrtClassIndex.class.getName()));
+    assertNull(index.getModule("NoPackage"));
+    final byte[] bytecode = JrtClassIndex.readBytes("java.base", "java.lang.String");
+    assertNotNull(bytecode);
+    assertEquals("java/lang/String", AsmUtils.readAndPatchClass(bytecode).getClassName());
+    assertNull(JrtClassIndex.readBytes("java.base", "java.lang.DoesNotExist"));
+  }
+
+}
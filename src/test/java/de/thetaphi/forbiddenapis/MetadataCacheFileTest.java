@@ -0,0 +1,157 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public final class MetadataCacheFileTest {
+
+  @Rule
+  public final TemporaryFolder tempDir = new TemporaryFolder();
+
+  private File dir;
+
+  @Before
+  public void setUp() {
+    dir = tempDir.getRoot();
+  }
+
+  private static void assertSameMetadata(ClassMetadata expected, ClassMetadata actual) {
+    assertNotNull(actual);
+    assertEquals(expected.className, actual.className);
+    assertEquals(expected.superName, actual.superName);
+    assertEquals(Arrays.asList(expected.interfaces), Arrays.asList(actual.interfaces));
+    assertEquals(expected.isInterface, actual.isInterface);
+    assertEquals(expected.isRuntimeClass, actual.isRuntimeClass);
+    assertEquals(expected.isNonPortableRuntime, actual.isNonPortableRuntime);
+    assertEquals(expected.methods, actual.methods);
+    assertEquals(expected.fields, actual.fields);
+    assertEquals(expected.signaturePolymorphicMethods, actual.signaturePolymorphicMethods);
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    final File file = new File(dir, MetadataCacheFile.getFileName("runtime", "foo"));
+    final MetadataCacheFile cache = new MetadataCacheFile(file, "foo");
+    assertFalse(cache.load());
+    final ClassMetadata string = new ClassMetadata(String.class, true),
+        object = new ClassMetadata(Object.class, true),
+        methodHandle = new ClassMetadata(MethodHandle.class, true),
+        list = new ClassMetadata(java.util.List.class, false);
+    cache.put(string);
+    cache.put(object);
+    cache.put(methodHandle);
+    cache.put(list);
+    cache.save();
+    assertTrue(file.isFile());
+    assertEquals(1, dir.listFiles().length);
+
+    final MetadataCacheFile cache2 = new MetadataCacheFile(file, "foo");
+    assertTrue(cache2.load());
+    assertEquals(4, cache2.size());
+    assertSameMetadata(string, cache2.get("java.lang.String"));
+    assertSameMetadata(object, cache2.get("java.lang.Object"));
+    assertSameMetadata(methodHandle, cache2.get("java.lang.invoke.MethodHandle"));
+    assertSameMetadata(list, cache2.get("java.util.List"));
+    assertNull(cache2.get("java.lang.Integer"));
+  }
+
+  @Test
+  public void testKeyMismatch() throws IOException {
+    final File file = new File(dir, "test.bin");
+    final MetadataCacheFile cache = new MetadataCacheFile(file, "foo");
+    cache.put(new ClassMetadata(String.class, true));
+    cache.save();
+
+    final MetadataCacheFile cache2 = new MetadataCacheFile(file, "bar");
+    assertFalse(cache2.load());
+    assertEquals(0, cache2.size());
+  }
+
+  @Test
+  public void testTruncatedFile() throws IOException {
+    final File file = new File(dir, "test.bin");
+    final MetadataCacheFile cache = new MetadataCacheFile(file, "foo");
+    cache.put(new ClassMetadata(String.class, true));
+    cache.save();
+
+    final byte[] data = Files.readAllBytes(file.toPath());
+    try (final FileOutputStream out = new FileOutputStream(file)) {
+      out.write(data, 0, data.length / 2);
+    }
+    final MetadataCacheFile cache2 = new MetadataCacheFile(file, "foo");
+    assertFalse(cache2.load());
+    assertEquals(0, cache2.size());
+  }
+
+  /** Writes an empty cache file, but replaces the trailing class count by the given bytes. */
+  private static void writeCorruptFile(File file, byte... tail) throws IOException {
+    final MetadataCacheFile cache = new MetadataCacheFile(file, "foo");
+    cache.reset("stamp", null);
+    cache.save();
+    final byte[] data = Files.readAllBytes(file.toPath());
+    try (final FileOutputStream out = new FileOutputStream(file)) {
+      out.write(data, 0, data.length - 1);
+      out.write(tail);
+    }
+  }
+
+  private static void assertCorrupt(File file) {
+    final MetadataCacheFile cache = new MetadataCacheFile(file, "foo");
+    try {
+      cache.load();
+      fail("Corrupt cache file should not load");
+    } catch (IOException ioe) {
+      assertTrue(ioe.getMessage(), ioe.getMessage().startsWith("Corrupt cache file"));
+    }
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testNegativeCount() throws IOException {
+    final File file = new File(dir, "test.bin");
+    writeCorruptFile(file, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0x0F);
+    assertCorrupt(file);
+  }
+
+  @Test
+  public void testHugeCount() throws IOException {
+    final File file = new File(dir, "test.bin");
+    writeCorruptFile(file, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0x07);
+    assertCorrupt(file);
+  }
+
+  @Test
+  public void testNullClassName() throws IOException {
+    final File file = new File(dir, "test.bin");
+    writeCorruptFile(file, (byte) 1, (byte) 0, (byte) 0, (byte) 0, (byte) 0, (byte) 0, (byte) 0, (byte) 0);
+    assertCorrupt(file);
+  }
+
+}
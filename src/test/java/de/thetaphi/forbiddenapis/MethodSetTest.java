@@ -0,0 +1,81 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.objectweb.asm.commons.Method;
+
+public final class MethodSetTest {
+
+  @Test
+  public void testLookups() {
+    final MethodSet set = MethodSet.of(Arrays.asList(
+        new Method("substring", "(I)Ljava/lang/String;"),
+        new Method("length", "()I"),
+        new Method("substring", "(II)Ljava/lang/String;"),
+        new Method("<init>", "()V"),
+        new Method("length", "()I")
+    ));
+    assertEquals(4, set.size());
+    assertTrue(set.contains(new Method("length", "()I")));
+    assertTrue(set.contains("substring", "(II)Ljava/lang/String;"));
+    assertFalse(set.contains(new Method("length", "()J")));
+    assertFalse(set.contains(new Method("isEmpty", "()Z")));
+    assertFalse(set.contains("length"));
+    
+    assertEquals(Arrays.asList(new Method("substring", "(I)Ljava/lang/String;"), new Method("substring", "(II)Ljava/lang/String;")),
+        set.getMethodsByName("substring"));
+    assertEquals(Arrays.asList(new Method("<init>", "()V")), set.getMethodsByName("<init>"));
+    assertTrue(set.getMethodsByName("sub").isEmpty());
+    assertTrue(set.getMethodsByName("zzz").isEmpty());
+    
+    final Set<Method> expected = new HashSet<>(Arrays.asList(
+        new Method("substring", "(I)Ljava/lang/String;"),
+        new Method("length", "()I"),
+        new Method("substring", "(II)Ljava/lang/String;"),
+        new Method("<init>", "()V")
+    ));
+    assertEquals(expected, set);
+    assertEquals(expected.hashCode(), set.hashCode());
+  }
+
+  @Test
+  public void testNameSet() {
+    final NameSet set = NameSet.of(Arrays.asList("out", "err", "in", "out"));
+    assertEquals(3, set.size());
+    assertTrue(set.contains("err"));
+    assertFalse(set.contains("console"));
+    assertEquals(new HashSet<>(Arrays.asList("in", "out", "err")), set);
+    assertSame(NameSet.EMPTY, NameSet.of(new HashSet<String>()));
+  }
+
+  @Test
+  public void testMetadataOfRuntimeClass() {
+    final ClassMetadata c = new ClassMetadata(String.class, true);
+    assertTrue(c.methods.contains(new Method("substring", "(II)Ljava/lang/String;")));
+    assertTrue(c.methods.getMethodsByName("valueOf").size() > 1);
+    assertTrue(c.fields.contains("CASE_INSENSITIVE_ORDER"));
+    assertSame("java/lang/Object", c.superName);
+  }
+
+}
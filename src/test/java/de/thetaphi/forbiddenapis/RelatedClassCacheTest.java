@@ -0,0 +1,111 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public final class RelatedClassCacheTest {
+
+  private static final ClassMetadata OBJECT_METADATA = new ClassMetadata(Object.class, true);
+
+  @Test
+  public void testLoadOnceConcurrently() throws Exception {
+    final ScanStatistics statistics = new ScanStatistics();
+    final RelatedClassCache cache = new RelatedClassCache(statistics);
+    final AtomicInteger loads = new AtomicInteger();
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final RelatedClassCache.Loader loader = new RelatedClassCache.Loader() {
+      @Override
+      public ClassMetadata load(String clazz) {
+        loads.incrementAndGet();
+        return OBJECT_METADATA;
+      }
+    };
+    final ExecutorService exec = Executors.newFixedThreadPool(8);
+    try {
+      final List<Future<ClassMetadata>> results = new ArrayList<>();
+      for (int i = 0; i < 64; i++) {
+        results.add(exec.submit(new Callable<ClassMetadata>() {
+          @Override
+          public ClassMetadata call() throws Exception {
+            startLatch.await();
+            return cache.get("java.lang.Object", loader);
+          }
+        }));
+      }
+      startLatch.countDown();
+      for (final Future<ClassMetadata> f : results) {
+        assertSame(OBJECT_METADATA, f.get());
+      }
+    } finally {
+      exec.shutdown();
+    }
+    assertEquals(1, loads.get());
+    assertEquals(1, cache.size());
+    assertEquals(1L, statistics.getCount(ScanStatistics.Counter.RELATED_CLASSES_LOADED));
+    assertEquals(63L, statistics.getCount(ScanStatistics.Counter.RELATED_CLASS_CACHE_HITS));
+  }
+
+  @Test
+  public void testNegativeEntries() throws Exception {
+    final ScanStatistics statistics = new ScanStatistics();
+    final RelatedClassCache cache = new RelatedClassCache(statistics);
+    final AtomicInteger loads = new AtomicInteger();
+    final RelatedClassCache.Loader loader = new RelatedClassCache.Loader() {
+      @Override
+      public ClassMetadata load(String clazz) throws IOException {
+        loads.incrementAndGet();
+        if (clazz.equals("foo.Broken")) {
+          throw new FileNotFoundException(clazz);
+        }
+        return null;
+      }
+    };
+    for (int i = 0; i < 3; i++) {
+      try {
+        cache.get("foo.Missing", loader);
+        fail("Class should not be found");
+      } catch (ClassNotFoundException cnfe) {
+        assertEquals("foo.Missing", cnfe.getMessage());
+      }
+      try {
+        cache.get("foo.Broken", loader);
+        fail("Class should fail to load");
+      } catch (FileNotFoundException fnfe) {
+        assertEquals("foo.Broken", fnfe.getMessage());
+      }
+    }
+    assertEquals(2, loads.get());
+    assertEquals(3L, statistics.getCount(ScanStatistics.Counter.RELATED_CLASSES_NOT_FOUND));
+  }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import de.thetaphi.forbiddenapis.Checker.ViolationSeverity;
+import de.thetaphi.forbiddenapis.Signatures.ViolationResult;
+
+public final class ResolutionCacheTest {
+
+  @Test
+  public void testCache() {
+    final ResolutionCache cache = new ResolutionCache();
+    final ResolutionCache.Key key = new ResolutionCache.Key();
+    final ViolationResult violation = new ViolationResult("Forbidden method invocation", ViolationSeverity.ERROR);
+    
+    assertSame(ResolutionCache.NOT_CACHED, cache.get(key.set("java/lang/String", "length", "()I", ResolutionCache.METHOD_VIRTUAL)));
+    assertNull(cache.put(key.copy(), null));
+    assertSame(ResolutionCache.NOT_CACHED, cache.get(key.set("java/lang/String", "trim", "()Ljava/lang/String;", ResolutionCache.METHOD_VIRTUAL)));
+    assertSame(violation, cache.put(key.copy(), violation));
+    
+    // the reused key does not change the stored keys:
+    assertNull(cache.get(key.set("java/lang/String", "length", "()I", ResolutionCache.METHOD_VIRTUAL)));
+    assertSame(violation, cache.get(key.set("java/lang/String", "trim", "()Ljava/lang/String;", ResolutionCache.METHOD_VIRTUAL)));
+    
+    // the kind of access is part of the key:
+    assertSame(ResolutionCache.NOT_CACHED, cache.get(key.set("java/lang/String", "trim", "()Ljava/lang/String;", ResolutionCache.METHOD_NONVIRTUAL)));
+    assertSame(ResolutionCache.NOT_CACHED, cache.get(key.set("java/lang/String", "trim", "", ResolutionCache.FIELD)));
+    assertEquals(2, cache.size());
+    
+    // types and descriptors:
+    assertSame(ResolutionCache.NOT_CACHED, cache.get(key.set("java/lang/String", "", "", ResolutionCache.TYPE)));
+    cache.put(key.copy(), null);
+    assertNull(cache.get(key.set("java/lang/String", "", "", ResolutionCache.TYPE)));
+    assertSame(ResolutionCache.NOT_CACHED, cache.get(key.set("Ljava/lang/String;", "", "", ResolutionCache.DESCRIPTOR)));
+    assertEquals(3, cache.size());
+  }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public final class SharedCacheTest {
+
+  @Rule
+  public final TemporaryFolder tempDir = new TemporaryFolder();
+
+  private File dir;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = tempDir.getRoot().getCanonicalFile();
+  }
+
+  private File createJar(String name) throws IOException {
+    final File f = new File(dir, name);
+    Files.write(f.toPath(), new byte[] { 1, 2, 3 });
+    return f;
+  }
+
+  private static ClassMetadata putClass(Map<String,ClassMetadata> classes) {
+    final ClassMetadata c = new ClassMetadata(SharedCacheTest.class, false);
+    classes.put(c.getBinaryClassName(), c);
+    return c;
+  }
+
+  @Test
+  public void testLeastRecentlyUsedJarFilesDropped() throws IOException {
+    final SharedCache cache = new SharedCache(2);
+    final File jar1 = createJar("test1.jar"), jar2 = createJar("test2.jar"), jar3 = createJar("test3.jar");
+    final ClassMetadata c = putClass(cache.getJarClasses(jar1));
+    putClass(cache.getJarClasses(jar2));
+    // use the first one again, so the second one is the least recently used:
+    assertSame(c, cache.getJarClasses(jar1).get(c.getBinaryClassName()));
+    putClass(cache.getJarClasses(jar3));
+    assertNotNull(cache.getJarClasses(jar1).get(c.getBinaryClassName()));
+    assertNull(cache.getJarClasses(jar2).get(c.getBinaryClassName()));
+  }
+
+  @Test
+  public void testChangedJarFilesDropped() throws IOException {
+    final SharedCache cache = new SharedCache();
+    final File jar1 = createJar("test1.jar");
+    final ClassMetadata c = putClass(cache.getJarClasses(jar1));
+    Files.write(jar1.toPath(), new byte[] { 1, 2, 3, 4 });
+    assertNull(cache.getJarClasses(jar1).get(c.getBinaryClassName()));
+    putClass(cache.getJarClasses(jar1));
+    assertTrue(jar1.delete());
+    assertNull(cache.getJarClasses(jar1).get(c.getBinaryClassName()));
+    assertTrue(cache.toString(), cache.toString().contains("jarFiles=1,"));
+  }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * (C) Copyright Uwe Schindler (Generics Policeman) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.thetaphi.forbiddenapis.cli;
+
+import static org.junit.Assert.*;
+
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.thetaphi.forbiddenapis.Logger;
+
+public final class CliDaemonTest {
+
+  /** Scanned by the daemon, the signatures forbid {@link String#trim()}. */
+  static final class Violator {
+    String run(String s) {
+      return s.trim();
+    }
+  }
+
+  /** Collects all messages (including debug) of the daemon and the client. */
+  static final class CollectingLogger implements Logger {
+    final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
+
+    @Override
+    public void error(String msg) {
+      messages.add("ERROR: " + msg);
+    }
+
+    @Override
+    public void warn(String msg) {
+      messages.add("WARN: " + msg);
+    }
+
+    @Override
+    public void info(String msg) {
+      messages.add(msg);
+    }
+
+    @Override
+    public void debug(String msg) {
+      messages.add("DEBUG: " + msg);
+    }
+
+    boolean contains(String substring) {
+      synchronized (messages) {
+        for (final String s : messages) {
+          if (s.contains(substring)) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+  }
+
+  @Rule
+  public final TemporaryFolder tempDir = new TemporaryFolder();
+
+  private File dir;
+
+  @Before
+  public void setUp() {
+    dir = tempDir.getRoot();
+  }
+
+  @Test
+  public void testForwardChecks() throws Exception {
+    final File portFile = new File(dir, "daemon.port");
+    final CollectingLogger daemonLogger = new CollectingLogger();
+    final CliDaemon daemon = new CliDaemon(daemonLogger, portFile, 0);
+    final Thread thread = new Thread() {
+      @Override
+      public void run() {
+        try {
+          daemon.serve();
+        } catch (IOException ioe) {
+          throw new AssertionError(ioe);
+        }
+      }
+    };
+    thread.start();
+    try {
+      assertTrue(portFile.isFile());
+      Files.write(new File(dir, "signatures.txt").toPath(), "java.lang.String#trim() @ Not allowed in this test\n".getBytes(StandardCharsets.UTF_8));
+      final File classes = new File(Violator.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+      // relative paths are resolved against the working directory of the client:
+      final String[] args = {
+          "-d", classes.getPath(), "-f", "signatures.txt", "--allowmissingclasses", "--daemon", portFile.getPath(),
+          "--includes", "de/thetaphi/forbiddenapis/cli/CliDaemonTest$Violator.class"
+      };
+      for (int i = 0; i < 2; i++) {
+        final CollectingLogger clientLogger = new CollectingLogger();
+        assertEquals(CliMain.EXIT_VIOLATION, CliDaemon.forward(portFile, CliDaemon.CMD_RUN, dir, args, clientLogger));
+        assertTrue(clientLogger.messages.toString(), clientLogger.contains("java.lang.String#trim() [Not allowed in this test]"));
+        assertTrue(clientLogger.messages.toString(), clientLogger.contains("Scanned 1 class file(s)"));
+      }
+    } finally {
+      assertEquals(CliMain.EXIT_SUCCESS, CliDaemon.forward(portFile, CliDaemon.CMD_STOP, null, null, new CollectingLogger()));
+      thread.join(10000L);
+    }
+    assertFalse(thread.isAlive());
+    assertFalse(portFile.exists());
+    assertTrue(daemonLogger.contains("Daemon stopped."));
+  }
+
+  @Test
+  public void testRejectWrongSecret() throws Exception {
+    final File portFile = new File(dir, "daemon.port");
+    final CollectingLogger daemonLogger = new CollectingLogger();
+    final CliDaemon daemon = new CliDaemon(daemonLogger, portFile, 0);
+    final Thread thread = new Thread() {
+      @Override
+      public void run() {
+        try {
+          daemon.serve();
+        } catch (IOException ioe) {
+          throw new AssertionError(ioe);
+        }
+      }
+    };
+    thread.start();
+    try {
+      final File wrongPortFile = new File(dir, "wrong.port");
+      Files.write(wrongPortFile.toPath(), (daemon.getPort() + "\nwrongsecret\n").getBytes(StandardCharsets.UTF_8));
+      try {
+        CliDaemon.forward(wrongPortFile, CliDaemon.CMD_STOP, null, null, new CollectingLogger());
+        fail("Daemon should close the connection");
+      } catch (EOFException e) {
+        // pass
+      }
+      // an announced secret larger than the real one is rejected without reading (and allocating) it:
+      try (final Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+        final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+        out.writeInt(CliDaemon.MAGIC);
+        out.writeInt(Integer.MAX_VALUE);
+        out.flush();
+        assertEquals(-1, socket.getInputStream().read());
+      }
+      assertTrue(daemonLogger.messages.toString(), daemonLogger.contains("Rejected connection with invalid secret"));
+      assertTrue(portFile.isFile());
+    } finally {
+      assertEquals(CliMain.EXIT_SUCCESS, CliDaemon.forward(portFile, CliDaemon.CMD_STOP, null, null, new CollectingLogger()));
+      thread.join(10000L);
+    }
+    assertFalse(thread.isAlive());
+  }
+
+  @Test(expected = FileNotFoundException.class)
+  public void testNoDaemon() throws IOException {
+    CliDaemon.forward(new File(dir, "missing.port"), CliDaemon.CMD_RUN, dir, new String[0], new CollectingLogger());
+  }
+
+}